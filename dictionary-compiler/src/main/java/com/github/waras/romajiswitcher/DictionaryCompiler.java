@@ -0,0 +1,237 @@
+package com.github.waras.romajiswitcher;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Compiles mecab-ipadic CSV files into the binary dictionary read by {@link MappedDictionary}.
+ * - Romaji keys come from the katakana reading via {@link KanaRomanizer}
+ * - Rows whose readings share a key are merged into one multi-candidate entry
+ * - baseScore is derived from the IPADIC word cost (lower cost = more common = higher score)
+ * - Input files are parsed in parallel, one task per file
+ *
+ * Usage: DictionaryCompiler &lt;ipadic-dir&gt; &lt;output.rjd&gt; [--encoding EUC-JP] [--max-candidates 16] [--threads N]
+ */
+public class DictionaryCompiler {
+    // mecab-ipadic columns: surface,left_id,right_id,cost,pos1..pos4,conj_type,conj_form,base,reading,pronunciation
+    private static final int SURFACE = 0;
+    private static final int COST = 3;
+    private static final int READING = 11;
+
+    private final Charset encoding;
+    private final int maxCandidates;
+    private final int threads;
+
+    public DictionaryCompiler(Charset encoding, int maxCandidates, int threads) {
+        this.encoding = encoding;
+        this.maxCandidates = maxCandidates;
+        this.threads = threads;
+    }
+
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: DictionaryCompiler <ipadic-dir> <output.rjd>"
+                + " [--encoding EUC-JP] [--max-candidates 16] [--threads N]");
+            System.exit(1);
+        }
+
+        Charset encoding = Charset.forName("EUC-JP");
+        int maxCandidates = 16;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 2; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--encoding" -> encoding = Charset.forName(args[i + 1]);
+                case "--max-candidates" -> maxCandidates = Integer.parseInt(args[i + 1]);
+                case "--threads" -> threads = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+
+        Path input = Paths.get(args[0]);
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(input)) {
+            files = listing.filter(p -> p.toString().endsWith(".csv")).sorted().collect(Collectors.toList());
+        }
+        if (files.isEmpty()) {
+            throw new FileNotFoundException("No .csv files in " + input);
+        }
+
+        Result result = new DictionaryCompiler(encoding, maxCandidates, threads).compile(files, Paths.get(args[1]));
+        System.out.println(result);
+    }
+
+    /**
+     * Parse the CSV files, merge their rows and write the binary dictionary
+     */
+    public Result compile(List<Path> files, Path output) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, files.size())));
+        List<Future<FileResult>> futures = new ArrayList<>();
+        try {
+            for (Path file : files) {
+                futures.add(executor.submit(() -> parseFile(file)));
+            }
+
+            Map<String, Map<String, Row>> merged = new HashMap<>();
+            long rows = 0;
+            long skipped = 0;
+            for (Future<FileResult> future : futures) {
+                FileResult part = get(future);
+                rows += part.rows;
+                skipped += part.skipped;
+                part.entries.forEach((romaji, candidates) -> {
+                    Map<String, Row> target = merged.computeIfAbsent(romaji, k -> new HashMap<>());
+                    candidates.forEach((surface, row) -> target.merge(surface, row, Row::cheaper));
+                });
+            }
+            long parsed = System.nanoTime();
+
+            Map<String, List<ConversionCandidate>> entries = new HashMap<>(merged.size() * 2);
+            long candidateCount = 0;
+            for (Map.Entry<String, Map<String, Row>> e : merged.entrySet()) {
+                List<ConversionCandidate> candidates = e.getValue().entrySet().stream()
+                    .sorted(Comparator.comparingInt((Map.Entry<String, Row> c) -> c.getValue().cost)
+                        .thenComparing(Map.Entry::getKey))
+                    .limit(maxCandidates)
+                    .map(c -> new ConversionCandidate(c.getKey(), c.getValue().hiragana, scoreFromCost(c.getValue().cost)))
+                    .collect(Collectors.toList());
+                candidateCount += candidates.size();
+                entries.put(e.getKey(), candidates);
+            }
+
+            Path parent = output.toAbsolutePath().getParent();
+            if (parent != null) {
+                Files.createDirectories(parent);
+            }
+            MappedDictionary.write(output, entries);
+            long end = System.nanoTime();
+
+            return new Result(files.size(), rows, skipped, entries.size(), candidateCount,
+                (parsed - start) / 1_000_000, (end - start) / 1_000_000);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private FileResult parseFile(Path file) throws IOException {
+        FileResult result = new FileResult();
+        try (BufferedReader reader = Files.newBufferedReader(file, encoding)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty()) {
+                    continue;
+                }
+                result.rows++;
+
+                List<String> fields = splitCsv(line);
+                if (fields.size() <= READING) {
+                    result.skipped++;
+                    continue;
+                }
+                String surface = fields.get(SURFACE);
+                String hiragana = KanaRomanizer.toHiragana(fields.get(READING));
+                String romaji = KanaRomanizer.toRomaji(hiragana);
+                if (surface.isEmpty() || romaji == null || romaji.isEmpty()) {
+                    result.skipped++;
+                    continue;
+                }
+                int cost;
+                try {
+                    cost = Integer.parseInt(fields.get(COST).trim());
+                } catch (NumberFormatException e) {
+                    result.skipped++;
+                    continue;
+                }
+
+                result.entries.computeIfAbsent(romaji, k -> new HashMap<>())
+                    .merge(surface, new Row(hiragana, cost), Row::cheaper);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Split one CSV line; fields may be double-quoted (IPADIC quotes surfaces containing commas)
+     */
+    static List<String> splitCsv(String line) {
+        List<String> fields = new ArrayList<>(13);
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Map IPADIC word cost (roughly -5000..15000, lower = more common) onto baseScore 1..200
+     */
+    static int scoreFromCost(int cost) {
+        return Math.max(1, Math.min(200, 150 - cost / 100));
+    }
+
+    private static FileResult get(Future<FileResult> future) throws IOException, InterruptedException {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("Failed to parse dictionary file", e.getCause());
+        }
+    }
+
+    private record Row(String hiragana, int cost) {
+        static Row cheaper(Row a, Row b) {
+            return b.cost < a.cost ? b : a;
+        }
+    }
+
+    private static final class FileResult {
+        final Map<String, Map<String, Row>> entries = new HashMap<>();
+        long rows;
+        long skipped;
+    }
+
+    /**
+     * Counts and timings of one compile run
+     */
+    public record Result(int files, long rows, long skipped, int entries, long candidates,
+                         long parseMillis, long totalMillis) {
+        public double entriesPerSecond() {
+            return totalMillis == 0 ? entries : entries * 1000.0 / totalMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("Compiled %d entries (%d candidates) from %d rows in %d files, %d skipped%n"
+                    + "Parse: %d ms, total: %d ms (%.0f entries/sec, %.0f rows/sec)",
+                entries, candidates, rows, files, skipped, parseMillis, totalMillis, entriesPerSecond(),
+                totalMillis == 0 ? rows : rows * 1000.0 / totalMillis);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for compiling IPADIC CSV files into the binary dictionary
+ */
+public class DictionaryCompilerTest {
+
+    @Test
+    void testCompileMergesReadingsAcrossFiles(@TempDir Path tempDir) throws Exception {
+        Path nouns = tempDir.resolve("Noun.csv");
+        Files.write(nouns, Arrays.asList(
+            "神,1285,1285,4000,名詞,一般,*,*,*,*,神,カミ,カミ",
+            "紙,1285,1285,5000,名詞,一般,*,*,*,*,紙,カミ,カミ",
+            "学校,1285,1285,3000,名詞,一般,*,*,*,*,学校,ガッコウ,ガッコー",
+            "\"，\",1285,1285,3000,記号,読点,*,*,*,*,，,*,*",
+            "broken line"
+        ), StandardCharsets.UTF_8);
+        Path adjectives = tempDir.resolve("Adj.csv");
+        Files.write(adjectives, Arrays.asList(
+            "髪,1285,1285,4500,名詞,一般,*,*,*,*,髪,カミ,カミ",
+            "紙,1285,1285,4200,名詞,一般,*,*,*,*,紙,カミ,カミ",
+            "凄い,43,43,-200,形容詞,自立,*,*,形容詞・アウオ段,基本形,凄い,スゴイ,スゴイ"
+        ), StandardCharsets.UTF_8);
+
+        Path output = tempDir.resolve("out/ipadic.rjd");
+        DictionaryCompiler.Result result = new DictionaryCompiler(StandardCharsets.UTF_8, 16, 2)
+            .compile(List.of(nouns, adjectives), output);
+
+        assertEquals(8, result.rows());
+        assertEquals(2, result.skipped());
+        assertEquals(3, result.entries());
+        assertEquals(5, result.candidates());
+
+        MappedDictionary dictionary = MappedDictionary.open(output);
+        List<ConversionCandidate> kami = dictionary.getCandidates("kami");
+        assertEquals(3, kami.size());
+        // Ordered by cost; duplicate surfaces keep the cheaper row
+        assertEquals("神", kami.get(0).kanji);
+        assertEquals("紙", kami.get(1).kanji);
+        assertEquals(DictionaryCompiler.scoreFromCost(4200), kami.get(1).baseScore);
+        assertEquals("かみ", kami.get(1).hiragana);
+
+        assertEquals("学校", dictionary.getCandidates("gakkou").get(0).kanji);
+        assertEquals(152, dictionary.getCandidates("sugoi").get(0).baseScore);
+    }
+
+    @Test
+    void testMaxCandidates(@TempDir Path tempDir) throws Exception {
+        Path csv = tempDir.resolve("Noun.csv");
+        Files.write(csv, Arrays.asList(
+            "交,1,1,300,名詞,*,*,*,*,*,交,コウ,コウ",
+            "効,1,1,100,名詞,*,*,*,*,*,効,コウ,コウ",
+            "高,1,1,200,名詞,*,*,*,*,*,高,コウ,コウ"
+        ), StandardCharsets.UTF_8);
+
+        Path output = tempDir.resolve("ipadic.rjd");
+        new DictionaryCompiler(StandardCharsets.UTF_8, 2, 1).compile(List.of(csv), output);
+
+        List<ConversionCandidate> kou = MappedDictionary.open(output).getCandidates("kou");
+        assertEquals(2, kou.size());
+        assertEquals("効", kou.get(0).kanji);
+        assertEquals("高", kou.get(1).kanji);
+    }
+
+    @Test
+    void testSplitCsvHandlesQuotes() {
+        assertEquals(Arrays.asList("a,b", "c", ""), DictionaryCompiler.splitCsv("\"a,b\",c,"));
+        assertEquals(Arrays.asList("say \"hi\"", "x"), DictionaryCompiler.splitCsv("\"say \"\"hi\"\"\",x"));
+    }
+
+    @Test
+    void testScoreFromCost() {
+        assertEquals(100, DictionaryCompiler.scoreFromCost(5000));
+        assertEquals(200, DictionaryCompiler.scoreFromCost(-8000));
+        assertEquals(1, DictionaryCompiler.scoreFromCost(30000));
+    }
+}
@@ -0,0 +1,125 @@
+package com.github.waras.romajiswitcher;
+
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link TextScanner} on the incubating Vector API: classifies a full vector of chars per step
+ * with unsigned range compares and stores the lane masks straight into the bitmasks.
+ * Only loaded (reflectively, by {@link MessageScan}) when jdk.incubator.vector is in the boot layer.
+ */
+final class VectorTextScanner implements TextScanner {
+    /** Lane masks are stored as longs, so at most 64 lanes */
+    private static final VectorSpecies<Short> SPECIES = ShortVector.SPECIES_PREFERRED.length() <= 64
+        ? ShortVector.SPECIES_PREFERRED : ShortVector.SPECIES_256;
+
+    /** Per-thread copy of the message; the Vector API cannot read a String directly */
+    private final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[256]);
+
+    @Override
+    public String getName() {
+        return "vector (" + SPECIES.length() + " lanes)";
+    }
+
+    @Override
+    public MessageScan scan(CharSequence text) {
+        int length = text.length();
+        char[] chars = copy(text, length);
+        long[] word = new long[MessageScan.words(length)];
+        long[] whitespace = new long[word.length];
+        int japanese = -1;
+
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            ShortVector v = ShortVector.fromCharArray(SPECIES, chars, i);
+            if (japanese < 0) {
+                VectorMask<Short> kana = japanese(v);
+                if (kana.anyTrue()) {
+                    japanese = i + kana.firstTrue();
+                }
+            }
+            // A lane count that divides 64 keeps each step inside one long
+            word[i >>> 6] |= asciiWordChars(v).toLong() << i;
+            whitespace[i >>> 6] |= asciiWhitespace(v).toLong() << i;
+        }
+        for (; i < length; i++) {
+            char ch = chars[i];
+            if (japanese < 0 && MessageScan.isJapanese(ch)) {
+                japanese = i;
+            }
+            if (MessageScan.isAsciiWordChar(ch)) {
+                word[i >>> 6] |= 1L << i;
+            } else if (MessageScan.isAsciiWhitespace(ch)) {
+                whitespace[i >>> 6] |= 1L << i;
+            }
+        }
+        return new MessageScan(text, japanese, word, whitespace);
+    }
+
+    @Override
+    public int indexOfJapanese(CharSequence text) {
+        int length = text.length();
+        char[] chars = copy(text, length);
+        int i = 0;
+        for (int bound = SPECIES.loopBound(length); i < bound; i += SPECIES.length()) {
+            VectorMask<Short> kana = japanese(ShortVector.fromCharArray(SPECIES, chars, i));
+            if (kana.anyTrue()) {
+                return i + kana.firstTrue();
+            }
+        }
+        for (; i < length; i++) {
+            if (MessageScan.isJapanese(chars[i])) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Hiragana and katakana (U+3040-U+30FF) or kanji (U+4E00-U+9FFF)
+     */
+    private static VectorMask<Short> japanese(ShortVector v) {
+        return inRange(v, 0x3040, 0x30FF).or(inRange(v, 0x4E00, 0x9FFF));
+    }
+
+    /**
+     * a-z, A-Z (setting bit 0x20 lowercases letters and maps no other char into a-z), '-' and '\''
+     */
+    private static VectorMask<Short> asciiWordChars(ShortVector v) {
+        return inRange(v.or((short) 0x20), 'a', 'z')
+            .or(v.eq((short) '-'))
+            .or(v.eq((short) '\''));
+    }
+
+    /**
+     * The ASCII chars {@link Character#isWhitespace} accepts: space, U+0009-U+000D, U+001C-U+001F
+     */
+    private static VectorMask<Short> asciiWhitespace(ShortVector v) {
+        return v.eq((short) ' ').or(inRange(v, 0x09, 0x0D)).or(inRange(v, 0x1C, 0x1F));
+    }
+
+    /**
+     * Lanes with first <= char <= last, as one subtraction and one unsigned compare
+     */
+    private static VectorMask<Short> inRange(ShortVector v, int first, int last) {
+        return v.sub((short) first).compare(VectorOperators.UNSIGNED_LE, (short) (last - first));
+    }
+
+    private char[] copy(CharSequence text, int length) {
+        char[] chars = buffers.get();
+        if (chars.length < length) {
+            chars = new char[Math.max(length, chars.length * 2)];
+            buffers.set(chars);
+        }
+        if (text instanceof String string) {
+            string.getChars(0, length, chars, 0);
+        } else {
+            for (int i = 0; i < length; i++) {
+                chars[i] = text.charAt(i);
+            }
+        }
+        return chars;
+    }
+}
@@ -0,0 +1,72 @@
+package com.github.waras.romajiswitcher;
+
+import java.time.Duration;
+import java.util.Arrays;
+
+/**
+ * Request timeout derived from recent latencies: p99 of the last {@value #WINDOW} samples times a
+ * multiplier, kept between a minimum and a maximum. Until enough samples exist the maximum is used.
+ */
+public class AdaptiveTimeout {
+    private static final int WINDOW = 256;
+    private static final int MIN_SAMPLES = 20;
+
+    private final long minimumNanos;
+    private final long maximumNanos;
+    private final double multiplier;
+    private final long[] samples = new long[WINDOW];
+    private int count;
+    private int next;
+    private long p99Nanos;
+    private volatile long currentNanos;
+
+    /**
+     * @param minimum Lower bound of the timeout
+     * @param maximum Upper bound, and the timeout until enough samples were recorded
+     * @param multiplier Headroom over the observed p99 latency
+     */
+    public AdaptiveTimeout(Duration minimum, Duration maximum, double multiplier) {
+        if (minimum.compareTo(maximum) > 0) {
+            throw new IllegalArgumentException("minimum " + minimum + " exceeds maximum " + maximum);
+        }
+        this.minimumNanos = minimum.toNanos();
+        this.maximumNanos = maximum.toNanos();
+        this.multiplier = multiplier;
+        this.currentNanos = maximumNanos;
+    }
+
+    /**
+     * Record the latency of a completed (or timed-out) request
+     */
+    public synchronized void record(long latencyNanos) {
+        samples[next] = latencyNanos;
+        next = (next + 1) % WINDOW;
+        count = Math.min(count + 1, WINDOW);
+        if (count < MIN_SAMPLES) {
+            return;
+        }
+
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        p99Nanos = sorted[(int) Math.ceil(count * 0.99) - 1];
+        currentNanos = Math.max(minimumNanos, Math.min(maximumNanos, (long) (p99Nanos * multiplier)));
+    }
+
+    /**
+     * Timeout to use for the next request
+     */
+    public Duration current() {
+        return Duration.ofNanos(currentNanos);
+    }
+
+    /**
+     * Observed p99 latency, or 0 until enough samples were recorded
+     */
+    public synchronized Duration getP99() {
+        return Duration.ofNanos(p99Nanos);
+    }
+
+    public synchronized int getSampleCount() {
+        return count;
+    }
+}
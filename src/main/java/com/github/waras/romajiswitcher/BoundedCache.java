@@ -0,0 +1,405 @@
+package com.github.waras.romajiswitcher;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongBiFunction;
+
+/**
+ * Size-bounded, thread-safe cache with hit/miss/eviction counters.
+ * Eviction policies:
+ * - LRU: least recently used entry is evicted
+ * - TINY_LFU: W-TinyLFU style; new entries enter a small LRU window and are only
+ *   admitted to the main area if they are used more often than the entry they would evict
+ * Optionally entries carry a time-to-live, and a weigher bounds the total weight
+ * (e.g. estimated bytes) in addition to the entry count.
+ */
+public class BoundedCache<K, V> {
+
+    public enum EvictionPolicy {
+        LRU,
+        TINY_LFU
+    }
+
+    private final int maximumSize;
+    private final EvictionPolicy policy;
+    private final long maximumWeight;
+    private final ToLongBiFunction<? super K, ? super V> weigher;
+    private final LongSupplier nanoClock;
+    private final LinkedHashMap<K, Node<V>> window;
+    private final LinkedHashMap<K, Node<V>> main;
+    private final int windowSize;
+    private final FrequencySketch sketch;
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+    private long generation;
+    private long totalWeight;
+
+    /**
+     * @param maximumSize Maximum number of entries (at least 1)
+     * @param policy Eviction policy
+     */
+    public BoundedCache(int maximumSize, EvictionPolicy policy) {
+        this(maximumSize, policy, Long.MAX_VALUE, null);
+    }
+
+    /**
+     * @param maximumSize Maximum number of entries (at least 1)
+     * @param policy Eviction policy
+     * @param maximumWeight Maximum total weight of all entries
+     * @param weigher Weight of one entry (e.g. estimated bytes), or null to bound by count only
+     */
+    public BoundedCache(int maximumSize, EvictionPolicy policy, long maximumWeight,
+                        ToLongBiFunction<? super K, ? super V> weigher) {
+        this(maximumSize, policy, maximumWeight, weigher, System::nanoTime);
+    }
+
+    BoundedCache(int maximumSize, EvictionPolicy policy, long maximumWeight,
+                 ToLongBiFunction<? super K, ? super V> weigher, LongSupplier nanoClock) {
+        if (maximumSize < 1) {
+            throw new IllegalArgumentException("maximumSize must be at least 1: " + maximumSize);
+        }
+        if (maximumWeight < 1) {
+            throw new IllegalArgumentException("maximumWeight must be at least 1: " + maximumWeight);
+        }
+        this.maximumSize = maximumSize;
+        this.policy = policy;
+        this.maximumWeight = maximumWeight;
+        this.weigher = weigher;
+        this.nanoClock = nanoClock;
+        this.main = new LinkedHashMap<>(16, 0.75f, true);
+
+        if (policy == EvictionPolicy.TINY_LFU) {
+            // 1% admission window, as in W-TinyLFU
+            this.windowSize = Math.max(1, maximumSize / 100);
+            this.window = new LinkedHashMap<>(16, 0.75f, true);
+            this.sketch = new FrequencySketch(maximumSize);
+        } else {
+            this.windowSize = 0;
+            this.window = null;
+            this.sketch = null;
+        }
+    }
+
+    /**
+     * Get a cached value, or null if absent or expired
+     */
+    public synchronized V get(K key) {
+        if (sketch != null) {
+            sketch.increment(key);
+        }
+
+        LinkedHashMap<K, Node<V>> owner = main;
+        Node<V> node = main.get(key);
+        if (node == null && window != null) {
+            owner = window;
+            node = window.get(key);
+        }
+
+        if (node != null && node.isExpired(nanoClock)) {
+            owner.remove(key);
+            totalWeight -= node.weight;
+            expirations++;
+            node = null;
+        }
+
+        if (node != null) {
+            hits++;
+            return node.value;
+        }
+        misses++;
+        return null;
+    }
+
+    /**
+     * Insert or replace a value that never expires
+     */
+    public synchronized void put(K key, V value) {
+        put(key, value, null);
+    }
+
+    /**
+     * Insert or replace a value
+     * @param timeToLive How long the value stays readable, or null for no expiry
+     */
+    public synchronized void put(K key, V value, Duration timeToLive) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+
+        long expiresAt = 0;
+        if (timeToLive != null) {
+            // 0 means "never"
+            expiresAt = nanoClock.getAsLong() + timeToLive.toNanos();
+            if (expiresAt == 0) {
+                expiresAt = 1;
+            }
+        }
+        Node<V> node = new Node<>(value, weigher != null ? weigher.applyAsLong(key, value) : 0, expiresAt);
+
+        if (main.containsKey(key)) {
+            replace(main, key, node);
+        } else if (window == null) {
+            replace(main, key, node);
+            if (main.size() > maximumSize) {
+                evictEldest(main);
+            }
+        } else {
+            replace(window, key, node);
+            if (window.size() > windowSize) {
+                admit();
+            }
+        }
+
+        while (totalWeight > maximumWeight) {
+            evictEldest(main.isEmpty() ? window : main);
+        }
+    }
+
+    /**
+     * Insert a value only if the cache was not cleared since {@code expectedGeneration} was read.
+     * Prevents a value computed from stale data from being cached after an invalidation.
+     * @return true if the value was stored
+     */
+    public synchronized boolean putIfGeneration(K key, V value, long expectedGeneration) {
+        return putIfGeneration(key, value, null, expectedGeneration);
+    }
+
+    /**
+     * {@link #putIfGeneration(Object, Object, long)} with a time-to-live
+     */
+    public synchronized boolean putIfGeneration(K key, V value, Duration timeToLive, long expectedGeneration) {
+        if (generation != expectedGeneration) {
+            return false;
+        }
+        put(key, value, timeToLive);
+        return true;
+    }
+
+    private void replace(LinkedHashMap<K, Node<V>> map, K key, Node<V> node) {
+        Node<V> old = map.put(key, node);
+        totalWeight += node.weight - (old != null ? old.weight : 0);
+    }
+
+    /**
+     * Move the window's eldest entry into the main area if its frequency beats the main victim
+     */
+    private void admit() {
+        Map.Entry<K, Node<V>> candidate = window.entrySet().iterator().next();
+        window.remove(candidate.getKey());
+
+        int mainCapacity = maximumSize - windowSize;
+        if (main.size() < mainCapacity) {
+            main.put(candidate.getKey(), candidate.getValue());
+            return;
+        }
+        if (main.isEmpty()) {
+            totalWeight -= candidate.getValue().weight;
+            evictions++;
+            return;
+        }
+
+        K victim = main.keySet().iterator().next();
+        if (sketch.frequency(candidate.getKey()) > sketch.frequency(victim)) {
+            totalWeight -= main.remove(victim).weight;
+            main.put(candidate.getKey(), candidate.getValue());
+        } else {
+            totalWeight -= candidate.getValue().weight;
+        }
+        evictions++;
+    }
+
+    private void evictEldest(LinkedHashMap<K, Node<V>> map) {
+        Iterator<Node<V>> eldest = map.values().iterator();
+        totalWeight -= eldest.next().weight;
+        eldest.remove();
+        evictions++;
+    }
+
+    /**
+     * Copy of the entries that have not expired, without affecting recency, frequency or counters
+     */
+    public synchronized Map<K, V> snapshot() {
+        Map<K, V> copy = new LinkedHashMap<>();
+        for (LinkedHashMap<K, Node<V>> area : window != null ? List.of(window, main) : List.of(main)) {
+            area.forEach((key, node) -> {
+                if (!node.isExpired(nanoClock)) {
+                    copy.put(key, node.value);
+                }
+            });
+        }
+        return copy;
+    }
+
+    /**
+     * Remove a single entry
+     */
+    public synchronized V remove(K key) {
+        Node<V> node = main.remove(key);
+        if (node == null && window != null) {
+            node = window.remove(key);
+        }
+        if (node == null) {
+            return null;
+        }
+        totalWeight -= node.weight;
+        return node.value;
+    }
+
+    /**
+     * Remove all entries and start a new generation (counters are kept)
+     */
+    public synchronized void clear() {
+        main.clear();
+        if (window != null) {
+            window.clear();
+        }
+        totalWeight = 0;
+        generation++;
+    }
+
+    /**
+     * Current generation; incremented by every {@link #clear()}
+     */
+    public synchronized long generation() {
+        return generation;
+    }
+
+    /**
+     * Number of entries, including expired entries that were not read or evicted yet
+     */
+    public synchronized int size() {
+        return main.size() + (window != null ? window.size() : 0);
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    public EvictionPolicy getPolicy() {
+        return policy;
+    }
+
+    /**
+     * Total weight of the cached entries (0 without a weigher)
+     */
+    public synchronized long getWeight() {
+        return totalWeight;
+    }
+
+    public long getMaximumWeight() {
+        return maximumWeight;
+    }
+
+    public synchronized long getHitCount() {
+        return hits;
+    }
+
+    public synchronized long getMissCount() {
+        return misses;
+    }
+
+    public synchronized long getEvictionCount() {
+        return evictions;
+    }
+
+    /**
+     * Number of entries dropped because their time-to-live had passed
+     */
+    public synchronized long getExpiredCount() {
+        return expirations;
+    }
+
+    /**
+     * Hit rate in [0, 1] (0 when nothing was requested yet)
+     */
+    public synchronized double getHitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+
+    private static final class Node<V> {
+        final V value;
+        final long weight;
+        /** System.nanoTime() deadline, or 0 for no expiry */
+        final long expiresAt;
+
+        Node(V value, long weight, long expiresAt) {
+            this.value = value;
+            this.weight = weight;
+            this.expiresAt = expiresAt;
+        }
+
+        boolean isExpired(LongSupplier nanoClock) {
+            return expiresAt != 0 && nanoClock.getAsLong() - expiresAt >= 0;
+        }
+    }
+
+    /**
+     * 4-bit count-min sketch used as the TinyLFU admission filter.
+     * Counters are halved every 10 × capacity increments so old popularity fades.
+     */
+    private static final class FrequencySketch {
+        private static final int DEPTH = 4;
+        private static final int MAX_COUNT = 15;
+        private static final int[] SEEDS = {0x9E3779B9, 0x85EBCA6B, 0xC2B2AE35, 0x27D4EB2F};
+
+        private final byte[][] table;
+        private final int mask;
+        private final int sampleSize;
+        private int additions;
+
+        FrequencySketch(int capacity) {
+            int width = Integer.highestOneBit(Math.max(16, capacity) * 8 - 1);
+            this.table = new byte[DEPTH][width];
+            this.mask = width - 1;
+            this.sampleSize = Math.max(10, capacity * 10);
+        }
+
+        void increment(Object key) {
+            int hash = spread(key.hashCode());
+            boolean added = false;
+            for (int row = 0; row < DEPTH; row++) {
+                int index = indexOf(hash, row);
+                if (table[row][index] < MAX_COUNT) {
+                    table[row][index]++;
+                    added = true;
+                }
+            }
+            if (added && ++additions >= sampleSize) {
+                reset();
+            }
+        }
+
+        int frequency(Object key) {
+            int hash = spread(key.hashCode());
+            int min = MAX_COUNT;
+            for (int row = 0; row < DEPTH; row++) {
+                min = Math.min(min, table[row][indexOf(hash, row)]);
+            }
+            return min;
+        }
+
+        private int indexOf(int hash, int row) {
+            int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % DEPTH];
+            return (h ^ (h >>> 16)) & mask;
+        }
+
+        private void reset() {
+            for (byte[] row : table) {
+                for (int i = 0; i < row.length; i++) {
+                    row[i] >>= 1;
+                }
+            }
+            additions /= 2;
+        }
+
+        private static int spread(int h) {
+            h ^= h >>> 16;
+            h *= 0x45D9F3B;
+            return h ^ (h >>> 16);
+        }
+    }
+}
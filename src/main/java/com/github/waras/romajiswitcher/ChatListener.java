@@ -1,46 +1,93 @@
 package com.github.waras.romajiswitcher;
 
+import io.papermc.paper.chat.ChatRenderer;
 import io.papermc.paper.event.player.AsyncChatEvent;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TextComponent;
-import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 
+import java.time.Duration;
+import java.util.function.Supplier;
+
 /**
  * Listens for chat events and converts romaji to Japanese with color support
  * Only modifies the message content, preserving player name and other plugins' modifications
+ * A message is converted once; every recipient then sees it with their own colors and romaji display.
  */
 public class ChatListener implements Listener {
     private final UserPreferences preferences;
-    private final RomajiDictionary dictionary;
-    private final ConversionStats stats;
+    private final Supplier<RomajiDictionary> dictionary;
+    private final Supplier<ConversionStats> stats;
+    private final RomajiClassifier classifier;
+    private final MessageCache messageCache;
+    private final Duration deadline;
 
     /**
      * Constructor with only preferences (backward compatible)
      */
     public ChatListener(UserPreferences preferences) {
-        this.preferences = preferences;
-        this.dictionary = null;
-        this.stats = null;
+        this(preferences, () -> null, () -> null);
     }
 
     /**
      * Constructor with dictionary and stats (new system)
      */
     public ChatListener(UserPreferences preferences, RomajiDictionary dictionary, ConversionStats stats) {
+        this(preferences, () -> dictionary, () -> stats);
+    }
+
+    /**
+     * Constructor for a dictionary that is published later (loaded in the background).
+     * Messages use the legacy converter until both suppliers return a value.
+     */
+    public ChatListener(UserPreferences preferences, Supplier<RomajiDictionary> dictionary,
+                        Supplier<ConversionStats> stats) {
+        this(preferences, dictionary, stats, null);
+    }
+
+    /**
+     * Constructor with a classifier that leaves non-romaji words and messages unconverted
+     * @param classifier Classifier, or null to convert every romaji-shaped word
+     */
+    public ChatListener(UserPreferences preferences, Supplier<RomajiDictionary> dictionary,
+                        Supplier<ConversionStats> stats, RomajiClassifier classifier) {
+        this(preferences, dictionary, stats, classifier, null);
+    }
+
+    /**
+     * Constructor with a cache of converted messages
+     * @param messageCache Cache for repeated messages, or null to convert every message
+     */
+    public ChatListener(UserPreferences preferences, Supplier<RomajiDictionary> dictionary,
+                        Supplier<ConversionStats> stats, RomajiClassifier classifier, MessageCache messageCache) {
+        this(preferences, dictionary, stats, classifier, messageCache, null);
+    }
+
+    /**
+     * Constructor with a per-message deadline
+     * @param deadline Longest a message may wait for Google IME results, or null for no limit
+     */
+    public ChatListener(UserPreferences preferences, Supplier<RomajiDictionary> dictionary,
+                        Supplier<ConversionStats> stats, RomajiClassifier classifier, MessageCache messageCache,
+                        Duration deadline) {
         this.preferences = preferences;
         this.dictionary = dictionary;
         this.stats = stats;
+        this.classifier = classifier;
+        this.messageCache = messageCache;
+        this.deadline = deadline;
     }
 
     @EventHandler(priority = EventPriority.NORMAL)
     public void onChat(AsyncChatEvent event) {
         Player player = event.getPlayer();
 
-        if (!preferences.isEnabled(player.getUniqueId())) {
+        // Single read of the player's prebuilt settings
+        RenderProfile profile = preferences.getProfile(player.getUniqueId());
+        if (!profile.isEnabled()) {
             return;
         }
 
@@ -52,88 +99,32 @@ public class ChatListener implements Listener {
             return;
         }
 
-        // Skip conversion if text contains full-width Japanese characters
-        if (RomajiConverter.containsFullWidthJapanese(text)) {
+        ConvertedMessage converted = convert(text);
+        if (converted == null || !converted.isConverted()) {
             return;
         }
 
-        // Choose conversion method based on availability
-        Component converted;
-        if (dictionary != null && stats != null) {
-            // Use new dictionary-based system
-            converted = convertWithColorsDictionary(text, player.getUniqueId());
-        } else {
-            // Use original system (backward compatible)
-            converted = convertWithColors(text, player.getUniqueId());
-        }
-
-        if (converted != null && !converted.equals(message)) {
-            event.message(converted);
-        }
+        // The sender's rendering is the message seen by the console and other plugins;
+        // each player who receives it gets their own rendering
+        Component senderView = converted.render(profile);
+        event.message(senderView);
+        event.renderer(viewerRenderer(event.renderer(), converted, senderView, preferences));
     }
 
     /**
-     * Convert text with color support
+     * Renderer that gives each receiving player the message rendered with their own profile
+     * before passing it on; a message another plugin replaced after us is passed on unchanged
+     * @param senderView The message as set on the event
      */
-    private Component convertWithColors(String text, java.util.UUID playerId) {
-        // Get user's color preferences
-        String[] colors = preferences.getColors(playerId);
-        NamedTextColor japaneseColor = ColorManager.getColor(colors[0]);
-        NamedTextColor romajiColor = ColorManager.getColor(colors[1]);
-
-        StringBuilder result = new StringBuilder();
-        Component componentResult = Component.empty();
-        StringBuilder currentWord = new StringBuilder();
-
-        for (int i = 0; i < text.length(); i++) {
-            char ch = text.charAt(i);
-
-            if (Character.isLetter(ch) || ch == '-' || ch == '\'') {
-                currentWord.append(ch);
-            } else {
-                // Process accumulated word
-                if (currentWord.length() > 0) {
-                    String word = currentWord.toString();
-                    RomajiConverter.ConversionResult convResult = RomajiConverter.convertWord(word);
-                    
-                    // Only color if conversion happened (Japanese text is different from original)
-                    if (!convResult.japanese.equals(word)) {
-                        // Japanese part with color
-                        Component japaneseComponent = Component.text(convResult.japanese)
-                            .color(japaneseColor);
-                        
-                        // Romaji part with color (inside parentheses)
-                        Component romajiComponent = Component.text("(" + convResult.originalRomaji + ")")
-                            .color(romajiColor);
-                        
-                        componentResult = componentResult.append(japaneseComponent).append(romajiComponent);
-                    } else {
-                        componentResult = componentResult.append(Component.text(word));
-                    }
-                    currentWord = new StringBuilder();
-                }
-                componentResult = componentResult.append(Component.text(String.valueOf(ch)));
-            }
-        }
-
-        // Process final word
-        if (currentWord.length() > 0) {
-            String word = currentWord.toString();
-            RomajiConverter.ConversionResult convResult = RomajiConverter.convertWord(word);
-            
-            if (!convResult.japanese.equals(word)) {
-                Component japaneseComponent = Component.text(convResult.japanese)
-                    .color(japaneseColor);
-                Component romajiComponent = Component.text("(" + convResult.originalRomaji + ")")
-                    .color(romajiColor);
-                
-                componentResult = componentResult.append(japaneseComponent).append(romajiComponent);
-            } else {
-                componentResult = componentResult.append(Component.text(word));
-            }
-        }
-
-        return componentResult;
+    static ChatRenderer viewerRenderer(ChatRenderer renderer, ConvertedMessage converted, Component senderView,
+                                       UserPreferences preferences) {
+        return (source, displayName, rendered, viewer) -> {
+            // Keep changes other plugins made to the message after us
+            Component viewerMessage = rendered == senderView && viewer instanceof Player recipient
+                ? converted.render(preferences.getProfile(recipient.getUniqueId()))
+                : rendered;
+            return renderer.render(source, displayName, viewerMessage, viewer);
+        };
     }
 
     /**
@@ -147,67 +138,44 @@ public class ChatListener implements Listener {
     }
 
     /**
-     * Convert text with color support using the new dictionary-based system
+     * Convert a message, or reuse the conversion of an identical earlier message
+     * @return The conversion, or null if the text contains Japanese characters
      */
-    private Component convertWithColorsDictionary(String text, java.util.UUID playerId) {
-        // Get user's color preferences
-        String[] colors = preferences.getColors(playerId);
-        NamedTextColor japaneseColor = ColorManager.getColor(colors[0]);
-        NamedTextColor romajiColor = ColorManager.getColor(colors[1]);
-
-        Component componentResult = Component.empty();
-        StringBuilder currentWord = new StringBuilder();
-
-        for (int i = 0; i < text.length(); i++) {
-            char ch = text.charAt(i);
-
-            if (Character.isLetter(ch) || ch == '-' || ch == '\'') {
-                currentWord.append(ch);
-            } else {
-                // Process accumulated word
-                if (currentWord.length() > 0) {
-                    String word = currentWord.toString();
-                    RomajiConverter.ConversionResult convResult = 
-                        RomajiConverter.convertWordWithDictionary(word, dictionary, stats);
-                    
-                    // Only color if conversion happened
-                    if (!convResult.japanese.equals(word)) {
-                        // Japanese part with color
-                        Component japaneseComponent = Component.text(convResult.japanese)
-                            .color(japaneseColor);
-                        
-                        // Romaji part with color
-                        Component romajiComponent = Component.text("(" + convResult.originalRomaji + ")")
-                            .color(romajiColor);
-                        
-                        componentResult = componentResult.append(japaneseComponent).append(romajiComponent);
-                    } else {
-                        componentResult = componentResult.append(Component.text(word));
-                    }
-                    currentWord = new StringBuilder();
-                }
-                componentResult = componentResult.append(Component.text(String.valueOf(ch)));
+    private ConvertedMessage convert(String text) {
+        Deadline messageDeadline = deadline != null ? Deadline.after(deadline) : Deadline.NONE;
+
+        // Choose conversion method based on availability (dictionary first: stats is published before it)
+        RomajiDictionary currentDictionary = dictionary.get();
+        ConversionStats currentStats = stats.get();
+        boolean useDictionary = currentDictionary != null && currentStats != null;
+        MessageCache.Key key = MessageCache.key(text, useDictionary ? currentDictionary : null);
+
+        if (messageCache != null) {
+            ConvertedMessage cached = messageCache.get(key);
+            if (cached != null) {
+                return cached;
             }
         }
 
-        // Process final word
-        if (currentWord.length() > 0) {
-            String word = currentWord.toString();
-            RomajiConverter.ConversionResult convResult = 
-                RomajiConverter.convertWordWithDictionary(word, dictionary, stats);
-            
-            if (!convResult.japanese.equals(word)) {
-                Component japaneseComponent = Component.text(convResult.japanese)
-                    .color(japaneseColor);
-                Component romajiComponent = Component.text("(" + convResult.originalRomaji + ")")
-                    .color(romajiColor);
-                
-                componentResult = componentResult.append(japaneseComponent).append(romajiComponent);
-            } else {
-                componentResult = componentResult.append(Component.text(word));
-            }
+        // One pass finds Japanese characters and the word boundaries the lexer needs;
+        // skip conversion if text contains full-width Japanese characters
+        MessageScan scan = MessageScan.of(text);
+        if (scan.containsJapanese()) {
+            return null;
         }
 
-        return componentResult;
+        ConvertedMessage converted;
+        if (useDictionary) {
+            // Use new dictionary-based system
+            converted = ConvertedMessage.convert(scan, currentDictionary, currentStats, classifier, messageDeadline);
+        } else {
+            // Use original system (backward compatible)
+            converted = ConvertedMessage.convert(scan, null, null, classifier);
+        }
+        // A message that missed its deadline is converted again next time, with the results that arrived since
+        if (messageCache != null && !converted.isDeadlineMissed()) {
+            messageCache.put(key, converted);
+        }
+        return converted;
     }
 }
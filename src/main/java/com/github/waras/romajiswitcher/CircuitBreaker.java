@@ -0,0 +1,198 @@
+package com.github.waras.romajiswitcher;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe circuit breaker for an unreliable backend.
+ * CLOSED: calls pass; after {@code failureThreshold} consecutive failures the breaker opens.
+ * OPEN: calls are rejected until {@code openDuration} has passed, then the breaker half-opens.
+ * HALF_OPEN: a single probe call passes; its success closes the breaker, its failure opens it again.
+ * Results of calls admitted before the breaker opened do not affect the probe.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long openNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAt;
+    private boolean probeInFlight;
+
+    private long openedCount;
+    private long halfOpenedCount;
+    private long closedCount;
+    private long rejectedCount;
+
+    /**
+     * @param failureThreshold Consecutive failures that open the breaker (at least 1)
+     * @param openDuration How long the breaker stays open before a probe call is allowed
+     */
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        this(failureThreshold, openDuration, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration openDuration, LongSupplier nanoClock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("failureThreshold must be at least 1: " + failureThreshold);
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Ask permission for one call; every granted call must be followed by
+     * {@link Permit#onSuccess()} or {@link Permit#onFailure()}
+     * @return The permit, or null if the call is rejected
+     */
+    public synchronized Permit tryAcquire() {
+        if (state == State.OPEN) {
+            if (nanoClock.getAsLong() - openedAt < openNanos) {
+                rejectedCount++;
+                return null;
+            }
+            state = State.HALF_OPEN;
+            halfOpenedCount++;
+            probeInFlight = false;
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                rejectedCount++;
+                return null;
+            }
+            probeInFlight = true;
+            return new Permit(halfOpenedCount);
+        }
+        return new Permit(0);
+    }
+
+    private synchronized void onSuccess(Permit permit) {
+        if (state == State.OPEN) {
+            // Late result of a call made before the breaker opened
+            return;
+        }
+        if (state == State.HALF_OPEN) {
+            if (!isProbe(permit)) {
+                // Late result of a call made before the breaker opened; only the probe decides
+                return;
+            }
+            state = State.CLOSED;
+            closedCount++;
+            probeInFlight = false;
+        }
+        consecutiveFailures = 0;
+    }
+
+    private synchronized void onFailure(Permit permit) {
+        if (state == State.HALF_OPEN) {
+            if (isProbe(permit)) {
+                open();
+            }
+        } else if (state == State.CLOSED && ++consecutiveFailures >= failureThreshold) {
+            open();
+        }
+    }
+
+    private synchronized void cancel(Permit permit) {
+        if (state == State.HALF_OPEN && isProbe(permit)) {
+            probeInFlight = false;
+        }
+    }
+
+    private boolean isProbe(Permit permit) {
+        return permit.probeOf != 0 && permit.probeOf == halfOpenedCount;
+    }
+
+    private void open() {
+        state = State.OPEN;
+        openedAt = nanoClock.getAsLong();
+        openedCount++;
+        consecutiveFailures = 0;
+        probeInFlight = false;
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Number of CLOSED/HALF_OPEN → OPEN transitions
+     */
+    public synchronized long getOpenedCount() {
+        return openedCount;
+    }
+
+    /**
+     * Number of OPEN → HALF_OPEN transitions
+     */
+    public synchronized long getHalfOpenedCount() {
+        return halfOpenedCount;
+    }
+
+    /**
+     * Number of HALF_OPEN → CLOSED transitions
+     */
+    public synchronized long getClosedCount() {
+        return closedCount;
+    }
+
+    /**
+     * Number of calls rejected while open or while a probe was running
+     */
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+
+    /**
+     * Permission for one call. Only the first reported outcome counts.
+     */
+    public final class Permit {
+        /** Half-open period this permit probes (its halfOpenedCount), or 0 for a normal call */
+        private final long probeOf;
+        private boolean reported;
+
+        private Permit(long probeOf) {
+            this.probeOf = probeOf;
+        }
+
+        public void onSuccess() {
+            if (report()) {
+                CircuitBreaker.this.onSuccess(this);
+            }
+        }
+
+        public void onFailure() {
+            if (report()) {
+                CircuitBreaker.this.onFailure(this);
+            }
+        }
+
+        /**
+         * The call was not made after all; a probe slot is freed for the next call
+         */
+        public void cancel() {
+            if (report()) {
+                CircuitBreaker.this.cancel(this);
+            }
+        }
+
+        private boolean report() {
+            synchronized (CircuitBreaker.this) {
+                if (reported) {
+                    return false;
+                }
+                reported = true;
+                return true;
+            }
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package com.github.waras.romajiswitcher;
 
 import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.Style;
 
 /**
  * Minecraft color code manager
  */
 public class ColorManager {
     private static final java.util.Map<String, NamedTextColor> COLOR_MAP = new java.util.HashMap<>();
+    /**
+     * One shared Style per color, so rendered components do not each build their own
+     */
+    private static final java.util.Map<NamedTextColor, Style> STYLE_MAP = new java.util.HashMap<>();
 
     static {
         COLOR_MAP.put("black", NamedTextColor.BLACK);
@@ -25,6 +30,10 @@ public class ColorManager {
         COLOR_MAP.put("light_purple", NamedTextColor.LIGHT_PURPLE);
         COLOR_MAP.put("yellow", NamedTextColor.YELLOW);
         COLOR_MAP.put("white", NamedTextColor.WHITE);
+
+        for (NamedTextColor color : COLOR_MAP.values()) {
+            STYLE_MAP.put(color, Style.style(color));
+        }
     }
 
     public static NamedTextColor getColor(String colorName) {
@@ -34,6 +43,13 @@ public class ColorManager {
         return COLOR_MAP.getOrDefault(colorName.toLowerCase(), NamedTextColor.WHITE);
     }
 
+    /**
+     * Shared style for a color name (white if unknown)
+     */
+    public static Style getStyle(String colorName) {
+        return STYLE_MAP.get(getColor(colorName));
+    }
+
     public static boolean isValidColor(String colorName) {
         return colorName != null && COLOR_MAP.containsKey(colorName.toLowerCase());
     }
@@ -0,0 +1,192 @@
+package com.github.waras.romajiswitcher;
+
+import java.util.*;
+
+/**
+ * Compact read-only store for system (IPADIC) entries.
+ * Romaji keys live in a {@link DoubleArrayTrie}; candidates are packed into parallel int arrays
+ * that point into one shared char pool, so no per-entry objects are kept on the heap.
+ * Candidate objects are only materialized for the entry being looked up.
+ */
+public class CompactDictionary implements SystemDictionary {
+    private final DoubleArrayTrie index;
+    private final int[] entryOffsets;      // entry i owns candidates [entryOffsets[i], entryOffsets[i + 1])
+    private final int[] candidateKanji;    // string id
+    private final int[] candidateHiragana; // string id, -1 = null
+    private final int[] candidateScores;
+    private final int[] stringOffsets;     // string id i is pool[stringOffsets[i], stringOffsets[i + 1])
+    private final char[] pool;
+
+    private CompactDictionary(DoubleArrayTrie index, int[] entryOffsets, int[] candidateKanji,
+                              int[] candidateHiragana, int[] candidateScores, int[] stringOffsets, char[] pool) {
+        this.index = index;
+        this.entryOffsets = entryOffsets;
+        this.candidateKanji = candidateKanji;
+        this.candidateHiragana = candidateHiragana;
+        this.candidateScores = candidateScores;
+        this.stringOffsets = stringOffsets;
+        this.pool = pool;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Check if a romaji key exists (key must already be lowercase)
+     */
+    @Override
+    public boolean contains(CharSequence romaji) {
+        return index.get(romaji) >= 0;
+    }
+
+    /**
+     * Get the candidates for a romaji key (key must already be lowercase)
+     * @return Candidates in insertion order, or an empty list
+     */
+    @Override
+    public List<ConversionCandidate> getCandidates(CharSequence romaji) {
+        int entry = index.get(romaji);
+        if (entry < 0) {
+            return Collections.emptyList();
+        }
+        return materialize(entry);
+    }
+
+    /**
+     * Get the entry for a romaji key as a (system priority) DictionaryEntry, or null
+     */
+    @Override
+    public DictionaryEntry getEntry(String romaji) {
+        int entry = index.get(romaji);
+        if (entry < 0) {
+            return null;
+        }
+        return new DictionaryEntry(romaji, materialize(entry), 0);
+    }
+
+    /**
+     * Visit every entry in key order
+     */
+    @Override
+    public void forEach(java.util.function.Consumer<DictionaryEntry> consumer) {
+        index.forEach((romaji, entry) -> consumer.accept(new DictionaryEntry(romaji, materialize(entry), 0)));
+    }
+
+    @Override
+    public int size() {
+        return index.size();
+    }
+
+    /**
+     * Approximate heap used by the index and packed arrays, in bytes
+     */
+    public long estimatedBytes() {
+        return index.estimatedBytes()
+            + 4L * (entryOffsets.length + candidateKanji.length + candidateHiragana.length
+                + candidateScores.length + stringOffsets.length)
+            + 2L * pool.length;
+    }
+
+    private List<ConversionCandidate> materialize(int entry) {
+        int from = entryOffsets[entry];
+        int to = entryOffsets[entry + 1];
+        List<ConversionCandidate> candidates = new ArrayList<>(to - from);
+        for (int c = from; c < to; c++) {
+            candidates.add(new ConversionCandidate(string(candidateKanji[c]), string(candidateHiragana[c]),
+                candidateScores[c]));
+        }
+        return candidates;
+    }
+
+    private String string(int id) {
+        if (id < 0) {
+            return null;
+        }
+        return new String(pool, stringOffsets[id], stringOffsets[id + 1] - stringOffsets[id]);
+    }
+
+    /**
+     * Collects entries, then packs them. Adding a key twice replaces the earlier candidates.
+     */
+    public static class Builder {
+        private final Map<String, List<ConversionCandidate>> entries = new LinkedHashMap<>();
+
+        public Builder add(String romaji, List<ConversionCandidate> candidates) {
+            if (romaji != null && candidates != null && !candidates.isEmpty()) {
+                entries.put(romaji.toLowerCase(), new ArrayList<>(candidates));
+            }
+            return this;
+        }
+
+        public int size() {
+            return entries.size();
+        }
+
+        public CompactDictionary build() {
+            int entryCount = entries.size();
+            int candidateCount = 0;
+            for (List<ConversionCandidate> candidates : entries.values()) {
+                candidateCount += candidates.size();
+            }
+
+            String[] keys = new String[entryCount];
+            int[] values = new int[entryCount];
+            int[] entryOffsets = new int[entryCount + 1];
+            int[] kanji = new int[candidateCount];
+            int[] hiragana = new int[candidateCount];
+            int[] scores = new int[candidateCount];
+
+            Map<String, Integer> stringIds = new HashMap<>();
+            List<String> strings = new ArrayList<>();
+            int poolLength = 0;
+
+            int entry = 0;
+            int c = 0;
+            for (Map.Entry<String, List<ConversionCandidate>> e : entries.entrySet()) {
+                keys[entry] = e.getKey();
+                values[entry] = entry;
+                entryOffsets[entry] = c;
+                for (ConversionCandidate candidate : e.getValue()) {
+                    for (int field = 0; field < 2; field++) {
+                        String value = field == 0 ? candidate.kanji : candidate.hiragana;
+                        int id = -1;
+                        if (value != null) {
+                            Integer existing = stringIds.get(value);
+                            if (existing == null) {
+                                existing = strings.size();
+                                stringIds.put(value, existing);
+                                strings.add(value);
+                                poolLength += value.length();
+                            }
+                            id = existing;
+                        }
+                        if (field == 0) {
+                            kanji[c] = id;
+                        } else {
+                            hiragana[c] = id;
+                        }
+                    }
+                    scores[c] = candidate.baseScore;
+                    c++;
+                }
+                entry++;
+            }
+            entryOffsets[entryCount] = c;
+
+            char[] pool = new char[poolLength];
+            int[] stringOffsets = new int[strings.size() + 1];
+            int offset = 0;
+            for (int i = 0; i < strings.size(); i++) {
+                String value = strings.get(i);
+                stringOffsets[i] = offset;
+                value.getChars(0, value.length(), pool, offset);
+                offset += value.length();
+            }
+            stringOffsets[strings.size()] = offset;
+
+            return new CompactDictionary(DoubleArrayTrie.build(keys, values), entryOffsets, kanji, hiragana,
+                scores, stringOffsets, pool);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package com.github.waras.romajiswitcher;
+
+import java.util.function.Function;
+
+/**
+ * One tier of a {@link ConversionPipeline}: in-memory cache, compiled dictionary, learned tier,
+ * remote IME, rule-based kana, or a stand-in for tests.
+ * Tiers are asked in order and the first confident result wins.
+ */
+public interface ConversionBackend {
+
+    /**
+     * Short name used for metrics and budgets (e.g. "dictionary")
+     */
+    String getName();
+
+    /**
+     * @param query Word being converted
+     * @param budgetNanos Time this tier may spend; tiers that wait (e.g. for the network) must not exceed it
+     * @return A result, or null if this tier has nothing for the word
+     */
+    Result lookup(Query query, long budgetNanos);
+
+    /**
+     * A tier's answer. A tentative result is used only if no later tier is confident
+     * (e.g. a dictionary reading that Google IME may still refine).
+     * @param timedOut The tier gave up waiting for an answer when its budget ran out
+     */
+    record Result(ConversionCandidate candidate, boolean confident, boolean timedOut) {
+        public Result(ConversionCandidate candidate, boolean confident) {
+            this(candidate, confident, false);
+        }
+
+        public static Result confident(ConversionCandidate candidate) {
+            return new Result(candidate, true);
+        }
+
+        public static Result tentative(ConversionCandidate candidate) {
+            return new Result(candidate, false);
+        }
+
+        /**
+         * No answer because the tier stopped waiting (e.g. for the network) at the end of its budget
+         */
+        public static Result gaveUp() {
+            return new Result(null, false, true);
+        }
+    }
+
+    /**
+     * A word being converted. The dictionary's best candidate (its reading) is looked up once,
+     * on first use, and shared by all tiers. Used by one thread at a time.
+     */
+    final class Query {
+        private final String key;
+        private final String word;
+        private final Function<String, ConversionCandidate> readingLookup;
+        private ConversionCandidate reading;
+        private boolean readingLoaded;
+
+        /**
+         * @param key Lowercase romaji word
+         * @param readingLookup Best dictionary candidate for a key, or null
+         */
+        public Query(String key, Function<String, ConversionCandidate> readingLookup) {
+            this(key, key, readingLookup);
+        }
+
+        /**
+         * @param word The word as typed, for tiers that keep its case (e.g. the romaji echo)
+         */
+        public Query(String key, String word, Function<String, ConversionCandidate> readingLookup) {
+            this.key = key;
+            this.word = word;
+            this.readingLookup = readingLookup;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        /**
+         * The word as typed
+         */
+        public String word() {
+            return word;
+        }
+
+        /**
+         * Best dictionary candidate for the word, or null if it is not in the dictionary
+         */
+        public ConversionCandidate reading() {
+            if (!readingLoaded) {
+                reading = readingLookup.apply(key);
+                readingLoaded = true;
+            }
+            return reading;
+        }
+    }
+}
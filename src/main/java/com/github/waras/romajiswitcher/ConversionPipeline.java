@@ -0,0 +1,283 @@
+package com.github.waras.romajiswitcher;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Ordered tiers of {@link ConversionBackend}s. A word is passed down the tiers until one gives a
+ * confident result; otherwise the first tentative result (from the earliest tier) is used.
+ * Each tier has a latency budget and keeps its own hit counts and latency histogram.
+ */
+public class ConversionPipeline {
+    private final List<Tier> tiers;
+
+    private ConversionPipeline(List<Tier> tiers) {
+        this.tiers = List.copyOf(tiers);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Converted word and the tier that produced it
+     */
+    public record Outcome(ConversionCandidate candidate, String tier) {
+    }
+
+    /**
+     * Convert one word
+     * @param key Lowercase romaji word
+     * @param readingLookup Best dictionary candidate for a key, looked up at most once
+     * @return The result, or null if no tier had one
+     */
+    public Outcome convert(String key, Function<String, ConversionCandidate> readingLookup) {
+        return convert(key, readingLookup, Deadline.NONE);
+    }
+
+    /**
+     * Convert one word, giving no tier more time than is left until the deadline
+     * @param deadline Deadline of the message the word belongs to
+     */
+    public Outcome convert(String key, Function<String, ConversionCandidate> readingLookup, Deadline deadline) {
+        return convert(new ConversionBackend.Query(key, readingLookup), deadline);
+    }
+
+    /**
+     * Convert one query, giving no tier more time than is left until the deadline
+     */
+    public Outcome convert(ConversionBackend.Query query, Deadline deadline) {
+        Outcome tentative = null;
+
+        for (Tier tier : tiers) {
+            long budget = tier.budgetNanos;
+            long remaining = deadline.remainingNanos();
+            boolean cut = remaining < budget;
+            if (cut) {
+                budget = Math.max(0, remaining);
+            }
+            long start = System.nanoTime();
+            ConversionBackend.Result result = tier.backend.lookup(query, budget);
+            tier.stats.record(System.nanoTime() - start, budget, result, cut);
+
+            if (result == null || result.candidate() == null) {
+                continue;
+            }
+            if (result.confident()) {
+                return new Outcome(result.candidate(), tier.getName());
+            }
+            if (tentative == null) {
+                tentative = new Outcome(result.candidate(), tier.getName());
+            }
+        }
+        return tentative;
+    }
+
+    public List<Tier> getTiers() {
+        return tiers;
+    }
+
+    /**
+     * Tier with the given name, or null
+     */
+    public Tier getTier(String name) {
+        for (Tier tier : tiers) {
+            if (tier.getName().equals(name)) {
+                return tier;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * A copy of this pipeline with the same-named tier replaced (e.g. a stand-in remote tier in tests).
+     * The new tier keeps the old tier's budget and starts with empty metrics.
+     */
+    public ConversionPipeline withBackend(ConversionBackend backend) {
+        List<Tier> replaced = new ArrayList<>(tiers.size());
+        boolean found = false;
+        for (Tier tier : tiers) {
+            if (tier.getName().equals(backend.getName())) {
+                replaced.add(new Tier(backend, tier.budgetNanos));
+                found = true;
+            } else {
+                replaced.add(tier);
+            }
+        }
+        if (!found) {
+            throw new IllegalArgumentException("No tier named " + backend.getName());
+        }
+        return new ConversionPipeline(replaced);
+    }
+
+    /**
+     * One backend with its budget and metrics
+     */
+    public static final class Tier {
+        private final ConversionBackend backend;
+        private final TierStats stats = new TierStats();
+        private volatile long budgetNanos;
+
+        Tier(ConversionBackend backend, long budgetNanos) {
+            this.backend = backend;
+            this.budgetNanos = budgetNanos;
+        }
+
+        public String getName() {
+            return backend.getName();
+        }
+
+        public ConversionBackend getBackend() {
+            return backend;
+        }
+
+        public Duration getBudget() {
+            return Duration.ofNanos(budgetNanos);
+        }
+
+        public void setBudget(Duration budget) {
+            this.budgetNanos = Math.max(0, budget.toNanos());
+        }
+
+        public TierStats getStats() {
+            return stats;
+        }
+
+        @Override
+        public String toString() {
+            return getName() + ": " + stats;
+        }
+    }
+
+    /**
+     * Per-tier counters and a latency histogram with power-of-two nanosecond buckets
+     */
+    public static final class TierStats {
+        private static final int BUCKETS = 64;
+
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder tentative = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+        private final LongAdder overBudget = new LongAdder();
+        private final LongAdder deadlineMisses = new LongAdder();
+        private final AtomicLongArray histogram = new AtomicLongArray(BUCKETS);
+
+        void record(long nanos, long budgetNanos, ConversionBackend.Result result, boolean deadlineCut) {
+            boolean confident = result != null && result.candidate() != null && result.confident();
+            if (result == null || result.candidate() == null) {
+                misses.increment();
+            } else if (confident) {
+                hits.increment();
+            } else {
+                tentative.increment();
+            }
+            if (deadlineCut && result != null && result.timedOut()) {
+                deadlineMisses.increment();
+            }
+            if (nanos > budgetNanos) {
+                overBudget.increment();
+            }
+            histogram.incrementAndGet(bucket(nanos));
+        }
+
+        private static int bucket(long nanos) {
+            return nanos <= 0 ? 0 : Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(nanos));
+        }
+
+        /**
+         * Lookups answered with a confident result
+         */
+        public long getHitCount() {
+            return hits.sum();
+        }
+
+        public long getTentativeCount() {
+            return tentative.sum();
+        }
+
+        public long getMissCount() {
+            return misses.sum();
+        }
+
+        /**
+         * Lookups that took longer than the tier's budget
+         */
+        public long getOverBudgetCount() {
+            return overBudget.sum();
+        }
+
+        /**
+         * Lookups that gave up waiting because the message deadline cut their budget
+         */
+        public long getDeadlineMissCount() {
+            return deadlineMisses.sum();
+        }
+
+        public long getLookupCount() {
+            return getHitCount() + getTentativeCount() + getMissCount();
+        }
+
+        /**
+         * Latency at the given quantile (0-1), rounded up to a power of two nanoseconds; 0 without samples
+         */
+        public Duration getLatency(double quantile) {
+            long[] counts = new long[BUCKETS];
+            long total = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                counts[i] = histogram.get(i);
+                total += counts[i];
+            }
+            if (total == 0) {
+                return Duration.ZERO;
+            }
+
+            long rank = Math.max(1, (long) Math.ceil(total * quantile));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Duration.ofNanos(i == 0 ? 0 : 1L << Math.min(62, i));
+                }
+            }
+            return Duration.ofNanos(Long.MAX_VALUE);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d hits, %d tentative, %d misses, %d over budget, %d deadline misses, p50 %d µs, p99 %d µs",
+                getHitCount(), getTentativeCount(), getMissCount(), getOverBudgetCount(), getDeadlineMissCount(),
+                getLatency(0.5).toNanos() / 1000, getLatency(0.99).toNanos() / 1000);
+        }
+    }
+
+    /**
+     * Collects tiers in lookup order
+     */
+    public static final class Builder {
+        private final List<Tier> tiers = new ArrayList<>();
+
+        private Builder() {
+        }
+
+        /**
+         * Append a tier
+         * @param budget Time the tier may spend per lookup
+         */
+        public Builder add(ConversionBackend backend, Duration budget) {
+            for (Tier tier : tiers) {
+                if (tier.getName().equals(backend.getName())) {
+                    throw new IllegalArgumentException("Duplicate tier " + backend.getName());
+                }
+            }
+            tiers.add(new Tier(backend, Math.max(0, budget.toNanos())));
+            return this;
+        }
+
+        public ConversionPipeline build() {
+            return new ConversionPipeline(tiers);
+        }
+    }
+}
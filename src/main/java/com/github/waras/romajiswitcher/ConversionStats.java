@@ -106,6 +106,18 @@ public class ConversionStats {
         return Math.log(info.count + 1) / Math.log(2) * 10;
     }
 
+    /**
+     * Number of recorded uses of a specific romaji/kanji combination
+     */
+    public synchronized long getCount(String romaji, String kanji) {
+        if (romaji == null || kanji == null) {
+            return 0;
+        }
+        Map<String, UsageInfo> candidates = stats.get(romaji.toLowerCase());
+        UsageInfo info = candidates != null ? candidates.get(kanji) : null;
+        return info != null ? info.count : 0;
+    }
+
     /**
      * Get all usage statistics
      */
@@ -0,0 +1,196 @@
+package com.github.waras.romajiswitcher;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.format.Style;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A chat message converted once, as spans of plain text and converted words.
+ * Each viewer's component is built from the spans with their own styles; one component is kept per
+ * distinct style variant, so viewers with the same settings share it.
+ */
+public final class ConvertedMessage {
+
+    /**
+     * Plain text (romaji is null) or a converted word with the romaji it came from
+     */
+    public record Span(String text, String romaji) {
+        public boolean isConverted() {
+            return romaji != null;
+        }
+    }
+
+    /**
+     * What a rendering depends on
+     */
+    private record Variant(Style japaneseStyle, Style romajiStyle, boolean showRomaji) {
+    }
+
+    private final List<Span> spans;
+    private final boolean converted;
+    private final boolean deadlineMissed;
+    private final Map<Variant, Component> variants = new ConcurrentHashMap<>();
+
+    private ConvertedMessage(List<Span> spans, boolean deadlineMissed) {
+        this.spans = List.copyOf(spans);
+        this.converted = spans.stream().anyMatch(Span::isConverted);
+        this.deadlineMissed = deadlineMissed;
+    }
+
+    /**
+     * Convert the romaji words of a message; everything else, and words that convert to themselves,
+     * becomes plain text (adjacent plain text is merged into one span)
+     * @param dictionary Dictionary to convert with, or null for the legacy converter
+     */
+    public static ConvertedMessage convert(String text, RomajiDictionary dictionary, ConversionStats stats) {
+        return convert(text, dictionary, stats, null);
+    }
+
+    /**
+     * Convert a message, leaving words the classifier does not take for romaji as typed (words with a
+     * kanji map or dictionary entry are always converted). If too little
+     * of the message is romaji, nothing is converted and no dictionary or network lookup is made.
+     * @param classifier Classifier to screen words with, or null to convert every romaji-shaped word
+     */
+    public static ConvertedMessage convert(String text, RomajiDictionary dictionary, ConversionStats stats,
+                                           RomajiClassifier classifier) {
+        return convert(MessageScan.of(text), dictionary, stats, classifier);
+    }
+
+    /**
+     * Convert a message that has already been scanned (e.g. for Japanese characters)
+     */
+    public static ConvertedMessage convert(MessageScan scan, RomajiDictionary dictionary, ConversionStats stats,
+                                           RomajiClassifier classifier) {
+        return convert(scan, dictionary, stats, classifier, Deadline.NONE);
+    }
+
+    /**
+     * Convert a message within a deadline. Google IME results that have not arrived by then are not
+     * waited for; those words keep their local conversion and the lookups finish in the background.
+     */
+    public static ConvertedMessage convert(MessageScan scan, RomajiDictionary dictionary, ConversionStats stats,
+                                           RomajiClassifier classifier, Deadline deadline) {
+        String text = scan.getText().toString();
+        // Words are classified up front so skipped words never reach the dictionary or Google IME
+        List<int[]> tokens = new ArrayList<>();
+        List<String> words = new ArrayList<>();
+        // Letters in romaji words, letters in other romaji-shaped words, romaji-shaped words
+        int[] counts = new int[3];
+        MessageLexer.tokenize(scan, (type, start, end) -> {
+            boolean romaji = type == MessageLexer.SpanType.ROMAJI_WORD
+                && (classifier == null || isKnownWord(text, start, end, dictionary)
+                    || classifier.isRomajiWord(text, start, end));
+            if (type == MessageLexer.SpanType.ROMAJI_WORD) {
+                counts[romaji ? 0 : 1] += end - start;
+                counts[2]++;
+            }
+            if (romaji) {
+                words.add(text.substring(start, end));
+            }
+            tokens.add(new int[] {start, end, romaji ? 1 : 0});
+        });
+
+        if (classifier != null && !classifier.isRomajiMessage(counts[0], counts[1])) {
+            classifier.record(0, counts[2], false);
+            return new ConvertedMessage(text.isEmpty() ? List.of() : List.of(new Span(text, null)), false);
+        }
+
+        // One Google IME request for the whole message instead of one per word
+        boolean prefetched = dictionary == null || words.isEmpty() || dictionary.prefetchGoogleIME(words, deadline);
+
+        List<Span> spans = new ArrayList<>();
+        StringBuilder plain = new StringBuilder();
+        for (int[] token : tokens) {
+            int start = token[0];
+            int end = token[1];
+            if (token[2] == 0) {
+                plain.append(text, start, end);
+                continue;
+            }
+
+            RomajiConverter.ConversionResult convResult = dictionary != null
+                ? RomajiConverter.convertWordWithDictionary(text.substring(start, end), dictionary, stats, deadline)
+                : RomajiConverter.convertWord(text, start, end);
+
+            // Only words that changed are shown as converted
+            if (convResult.japanese.length() == end - start
+                    && text.regionMatches(start, convResult.japanese, 0, end - start)) {
+                plain.append(convResult.japanese);
+                continue;
+            }
+            if (plain.length() > 0) {
+                spans.add(new Span(plain.toString(), null));
+                plain.setLength(0);
+            }
+            spans.add(new Span(convResult.japanese, convResult.originalRomaji));
+        }
+        if (plain.length() > 0) {
+            spans.add(new Span(plain.toString(), null));
+        }
+        if (classifier != null) {
+            classifier.record(words.size(), counts[2] - words.size(), true);
+        }
+        return new ConvertedMessage(spans, dictionary != null && (!prefetched || deadline.isExpired()));
+    }
+
+    /**
+     * Whether the word has its own conversion (/romaji dictionary add, IPADIC or user dictionary),
+     * whatever the classifier would make of it (e.g. "lol", "www")
+     */
+    private static boolean isKnownWord(String text, int start, int end, RomajiDictionary dictionary) {
+        String key = text.substring(start, end).toLowerCase();
+        return RomajiConverter.getKanjiEntry(key) != null || (dictionary != null && dictionary.contains(key));
+    }
+
+    public List<Span> getSpans() {
+        return spans;
+    }
+
+    /**
+     * Whether conversion ran past its deadline, so some words may lack their Google IME result
+     */
+    public boolean isDeadlineMissed() {
+        return deadlineMissed;
+    }
+
+    /**
+     * Whether any word was converted
+     */
+    public boolean isConverted() {
+        return converted;
+    }
+
+    /**
+     * Component for a viewer with the given profile
+     */
+    public Component render(RenderProfile viewer) {
+        return render(viewer.getJapaneseStyle(), viewer.getRomajiStyle(), viewer.isShowRomaji());
+    }
+
+    /**
+     * Component with the given styles, built once per distinct combination
+     * @param showRomaji Append the romaji in parentheses after each converted word
+     */
+    public Component render(Style japaneseStyle, Style romajiStyle, boolean showRomaji) {
+        return variants.computeIfAbsent(new Variant(japaneseStyle, romajiStyle, showRomaji), this::build);
+    }
+
+    private Component build(Variant variant) {
+        TextComponent.Builder builder = Component.text();
+        for (Span span : spans) {
+            if (!span.isConverted()) {
+                builder.append(Component.text(span.text()));
+                continue;
+            }
+            builder.append(Component.text(span.text(), variant.japaneseStyle()));
+            if (variant.showRomaji()) {
+                builder.append(Component.text("(" + span.romaji() + ")", variant.romajiStyle()));
+            }
+        }
+        return builder.build();
+    }
+}
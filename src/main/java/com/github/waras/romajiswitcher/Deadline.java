@@ -0,0 +1,40 @@
+package com.github.waras.romajiswitcher;
+
+import java.time.Duration;
+
+/**
+ * Time by which a chat message must be converted. Stages that wait (the Google IME prefetch, the
+ * remote tier) wait at most until then; lookups still pending keep running in the background.
+ */
+public final class Deadline {
+    /**
+     * No time limit
+     */
+    public static final Deadline NONE = new Deadline(0, false);
+
+    private final long deadlineNanos;
+    private final boolean bounded;
+
+    private Deadline(long deadlineNanos, boolean bounded) {
+        this.deadlineNanos = deadlineNanos;
+        this.bounded = bounded;
+    }
+
+    /**
+     * Deadline the given time from now
+     */
+    public static Deadline after(Duration timeout) {
+        return new Deadline(System.nanoTime() + timeout.toNanos(), true);
+    }
+
+    /**
+     * Nanoseconds left (negative once passed), or Long.MAX_VALUE without a limit
+     */
+    public long remainingNanos() {
+        return bounded ? deadlineNanos - System.nanoTime() : Long.MAX_VALUE;
+    }
+
+    public boolean isExpired() {
+        return remainingNanos() <= 0;
+    }
+}
@@ -10,6 +10,8 @@ public class DictionaryEntry {
     public final String romaji;
     public final List<ConversionCandidate> candidates;
     public final int userPriority;
+    /** Whether the entry belongs to the user dictionary (saved to and cleared with it) */
+    public final boolean user;
 
     /**
      * @param romaji The romanized input (lowercase)
@@ -17,9 +19,18 @@ public class DictionaryEntry {
      * @param userPriority Priority for user-registered entries (0 = system entry, > 0 = user entry)
      */
     public DictionaryEntry(String romaji, List<ConversionCandidate> candidates, int userPriority) {
+        this(romaji, candidates, userPriority, userPriority > 0);
+    }
+
+    /**
+     * @param user Whether the entry belongs to the user dictionary, also when it keeps system
+     *             priority (an edited system entry)
+     */
+    public DictionaryEntry(String romaji, List<ConversionCandidate> candidates, int userPriority, boolean user) {
         this.romaji = romaji.toLowerCase();
         this.candidates = candidates != null ? new ArrayList<>(candidates) : new ArrayList<>();
         this.userPriority = userPriority;
+        this.user = user;
     }
 
     /**
@@ -60,7 +71,7 @@ public class DictionaryEntry {
 
     @Override
     public String toString() {
-        return String.format("DictionaryEntry{romaji='%s', candidates=%d, userPriority=%d}", 
-            romaji, candidates.size(), userPriority);
+        return String.format("DictionaryEntry{romaji='%s', candidates=%d, userPriority=%d, user=%b}",
+            romaji, candidates.size(), userPriority, user);
     }
 }
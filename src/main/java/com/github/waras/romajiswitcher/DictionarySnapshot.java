@@ -0,0 +1,113 @@
+package com.github.waras.romajiswitcher;
+
+import java.util.*;
+
+/**
+ * Immutable, versioned view of the dictionary: the system store plus the user overlay.
+ * Readers take the current snapshot once per lookup and never lock; every change builds
+ * a new snapshot that RomajiDictionary publishes with a single reference swap.
+ */
+public final class DictionarySnapshot {
+    private final long version;
+    private final SystemDictionary system;
+    private final Map<String, DictionaryEntry> overlay;
+    private final RomajiDictionary.LoadTimings loadTimings;
+    private final int size;
+
+    /**
+     * @param system System entries, or null
+     * @param overlay User entries and edited system entries (copied; entries must not be mutated afterwards)
+     */
+    DictionarySnapshot(long version, SystemDictionary system, Map<String, DictionaryEntry> overlay,
+                       RomajiDictionary.LoadTimings loadTimings) {
+        this.version = version;
+        this.system = system;
+        this.overlay = Collections.unmodifiableMap(new HashMap<>(overlay));
+        this.loadTimings = loadTimings;
+        this.size = countEntries(system, this.overlay);
+    }
+
+    /**
+     * A snapshot with the same system entries and a new overlay, one version later
+     */
+    DictionarySnapshot withOverlay(Map<String, DictionaryEntry> newOverlay) {
+        return new DictionarySnapshot(version + 1, system, newOverlay, loadTimings);
+    }
+
+    /**
+     * Increases by one every time a snapshot replaces the previous one
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public RomajiDictionary.LoadTimings getLoadTimings() {
+        return loadTimings;
+    }
+
+    /**
+     * Look up an entry: overlay first, then the system store (key must already be lowercase)
+     */
+    public DictionaryEntry find(String key) {
+        DictionaryEntry entry = overlay.get(key);
+        if (entry == null && system != null) {
+            entry = system.getEntry(key);
+        }
+        return entry;
+    }
+
+    /**
+     * Candidates for a key, or an empty list (key must already be lowercase)
+     */
+    public List<ConversionCandidate> getCandidates(String key) {
+        DictionaryEntry entry = overlay.get(key);
+        if (entry != null) {
+            return Collections.unmodifiableList(entry.candidates);
+        }
+        return system != null ? Collections.unmodifiableList(system.getCandidates(key)) : Collections.emptyList();
+    }
+
+    public boolean contains(String key) {
+        return overlay.containsKey(key) || (system != null && system.contains(key));
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Every entry, overlay entries replacing system entries with the same key
+     */
+    public Collection<DictionaryEntry> entries() {
+        List<DictionaryEntry> entries = new ArrayList<>(overlay.values());
+        if (system != null) {
+            system.forEach(entry -> {
+                if (!overlay.containsKey(entry.romaji)) {
+                    entries.add(entry);
+                }
+            });
+        }
+        return Collections.unmodifiableCollection(entries);
+    }
+
+    Map<String, DictionaryEntry> overlay() {
+        return overlay;
+    }
+
+    SystemDictionary system() {
+        return system;
+    }
+
+    private static int countEntries(SystemDictionary system, Map<String, DictionaryEntry> overlay) {
+        if (system == null) {
+            return overlay.size();
+        }
+        int overlayOnly = 0;
+        for (String key : overlay.keySet()) {
+            if (!system.contains(key)) {
+                overlayOnly++;
+            }
+        }
+        return system.size() + overlayOnly;
+    }
+}
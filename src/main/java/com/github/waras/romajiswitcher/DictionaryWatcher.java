@@ -0,0 +1,87 @@
+package com.github.waras.romajiswitcher;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Watches the data folder for changes to dictionary files and runs a callback once the
+ * changes have settled (editors and copies usually produce several events per save).
+ * The callback runs on the watcher's own daemon thread.
+ */
+public class DictionaryWatcher implements Closeable {
+    private final Path folder;
+    private final Set<String> fileNames;
+    private final long debounceMillis;
+    private final Runnable onChange;
+    private final WatchService watchService;
+    private final Thread thread;
+    private volatile boolean running = true;
+
+    /**
+     * @param folder Folder to watch (not recursive)
+     * @param fileNames File names inside the folder that trigger the callback
+     * @param debounceMillis Quiet period after the last event before the callback runs
+     * @param onChange Called after changes settle
+     */
+    public DictionaryWatcher(Path folder, Set<String> fileNames, long debounceMillis, Runnable onChange)
+            throws IOException {
+        this.folder = folder;
+        this.fileNames = fileNames;
+        this.debounceMillis = debounceMillis;
+        this.onChange = onChange;
+        this.watchService = folder.getFileSystem().newWatchService();
+        folder.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+            StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        this.thread = new Thread(this::run, "RomajiSwitcher-DictionaryWatcher");
+        this.thread.setDaemon(true);
+    }
+
+    public void start() {
+        thread.start();
+    }
+
+    private void run() {
+        boolean pending = false;
+        while (running) {
+            WatchKey key;
+            try {
+                // Block until something happens; once a change is pending, wait only for the quiet period
+                key = pending ? watchService.poll(debounceMillis, TimeUnit.MILLISECONDS) : watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            if (key == null) {
+                pending = false;
+                try {
+                    onChange.run();
+                } catch (RuntimeException e) {
+                    System.err.println("Dictionary reload after file change failed: " + e.getMessage());
+                }
+                continue;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    pending = true;
+                } else if (event.context() instanceof Path changed && fileNames.contains(changed.toString())) {
+                    pending = true;
+                }
+            }
+            if (!key.reset()) {
+                System.err.println("Dictionary watcher stopped: " + folder + " is no longer accessible");
+                return;
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        running = false;
+        watchService.close();
+        thread.interrupt();
+    }
+}
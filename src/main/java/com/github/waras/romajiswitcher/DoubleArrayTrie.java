@@ -0,0 +1,278 @@
+package com.github.waras.romajiswitcher;
+
+import java.util.*;
+
+/**
+ * Read-only double-array trie mapping string keys to int values.
+ * Two int arrays (base/check) replace per-key objects:
+ * - transition from state s with code c goes to t = base[s] + c, valid if check[t] == s + 1
+ * - code 0 is the end-of-key marker; its slot stores the value as base[t] = -(value + 1)
+ */
+public class DoubleArrayTrie {
+    private static final int END = 0;
+
+    private final int[] base;
+    private final int[] check;
+    private final char[] alphabet;
+    private final int[] asciiCodes;
+    private final int size;
+
+    private DoubleArrayTrie(int[] base, int[] check, char[] alphabet, int[] asciiCodes, int size) {
+        this.base = base;
+        this.check = check;
+        this.alphabet = alphabet;
+        this.asciiCodes = asciiCodes;
+        this.size = size;
+    }
+
+    /**
+     * Build a trie from keys; values[i] is stored for keys[i]
+     * @param keys Unique keys
+     * @param values Non-negative values
+     */
+    public static DoubleArrayTrie build(String[] keys, int[] values) {
+        if (keys.length != values.length) {
+            throw new IllegalArgumentException("keys and values differ in length");
+        }
+
+        Integer[] order = new Integer[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparing(i -> keys[i]));
+
+        String[] sortedKeys = new String[keys.length];
+        int[] sortedValues = new int[keys.length];
+        for (int i = 0; i < order.length; i++) {
+            sortedKeys[i] = keys[order[i]];
+            sortedValues[i] = values[order[i]];
+            if (i > 0 && sortedKeys[i].equals(sortedKeys[i - 1])) {
+                throw new IllegalArgumentException("Duplicate key: " + sortedKeys[i]);
+            }
+        }
+
+        // Codes follow char order, so sorted keys are also sorted by code
+        TreeSet<Character> chars = new TreeSet<>();
+        for (String key : sortedKeys) {
+            for (int i = 0; i < key.length(); i++) {
+                chars.add(key.charAt(i));
+            }
+        }
+        char[] alphabet = new char[chars.size()];
+        int[] asciiCodes = new int[128];
+        Arrays.fill(asciiCodes, -1);
+        int code = 0;
+        for (char c : chars) {
+            alphabet[code] = c;
+            if (c < 128) {
+                asciiCodes[c] = code + 1;
+            }
+            code++;
+        }
+
+        Builder builder = new Builder(sortedKeys, sortedValues, alphabet, asciiCodes);
+        return builder.build();
+    }
+
+    /**
+     * @return Value stored for the key, or -1 if absent
+     */
+    public int get(CharSequence key) {
+        int state = 0;
+        for (int i = 0; i < key.length(); i++) {
+            int c = codeOf(key.charAt(i));
+            if (c < 0) {
+                return -1;
+            }
+            int next = base[state] + c;
+            if (next >= check.length || check[next] != state + 1) {
+                return -1;
+            }
+            state = next;
+        }
+
+        int end = base[state] + END;
+        if (end < 0 || end >= check.length || check[end] != state + 1) {
+            return -1;
+        }
+        return -base[end] - 1;
+    }
+
+    /**
+     * Visit every (key, value) pair in key order
+     */
+    public void forEach(java.util.function.ObjIntConsumer<String> consumer) {
+        visit(0, new StringBuilder(), consumer);
+    }
+
+    private void visit(int state, StringBuilder prefix, java.util.function.ObjIntConsumer<String> consumer) {
+        int b = base[state];
+        if (b < 0) {
+            return;
+        }
+        if (b + END < check.length && check[b + END] == state + 1) {
+            consumer.accept(prefix.toString(), -base[b + END] - 1);
+        }
+        for (int code = 1; code <= alphabet.length; code++) {
+            int next = b + code;
+            if (next < check.length && check[next] == state + 1) {
+                prefix.append(alphabet[code - 1]);
+                visit(next, prefix, consumer);
+                prefix.setLength(prefix.length() - 1);
+            }
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Approximate heap used by the arrays, in bytes
+     */
+    public long estimatedBytes() {
+        return 4L * (base.length + check.length + asciiCodes.length) + 2L * alphabet.length;
+    }
+
+    private int codeOf(char c) {
+        if (c < 128) {
+            return asciiCodes[c];
+        }
+        int index = Arrays.binarySearch(alphabet, c);
+        return index < 0 ? -1 : index + 1;
+    }
+
+    /**
+     * First-fit placement of sibling groups (as in Darts)
+     */
+    private static final class Builder {
+        private final String[] keys;
+        private final int[] values;
+        private final char[] alphabet;
+        private final int[] asciiCodes;
+        private int[] base;
+        private int[] check;
+        private BitSet usedBases;
+        private int nextCheckPos;
+        private int maxIndex;
+
+        Builder(String[] keys, int[] values, char[] alphabet, int[] asciiCodes) {
+            this.keys = keys;
+            this.values = values;
+            this.alphabet = alphabet;
+            this.asciiCodes = asciiCodes;
+            int initial = Math.max(1024, keys.length * 4);
+            this.base = new int[initial];
+            this.check = new int[initial];
+            this.usedBases = new BitSet(initial);
+        }
+
+        DoubleArrayTrie build() {
+            check[0] = -1; // root slot is never a child
+            if (keys.length > 0) {
+                place(0, 0, keys.length, 0);
+            } else {
+                base[0] = 1;
+            }
+            int length = maxIndex + alphabet.length + 2;
+            ensureCapacity(length);
+            return new DoubleArrayTrie(Arrays.copyOf(base, length), Arrays.copyOf(check, length),
+                    alphabet, asciiCodes, keys.length);
+        }
+
+        /**
+         * Place the children of {@code state}, covering keys [lo, hi) that share the first {@code depth} chars
+         */
+        private void place(int state, int lo, int hi, int depth) {
+            // Group keys by their code at this depth (END for keys that stop here)
+            int[] codes = new int[alphabet.length + 1];
+            int[] starts = new int[alphabet.length + 2];
+            int groups = 0;
+            int previous = -1;
+            for (int i = lo; i < hi; i++) {
+                int code = depth < keys[i].length() ? codeOf(keys[i].charAt(depth)) : END;
+                if (code != previous) {
+                    codes[groups] = code;
+                    starts[groups] = i;
+                    groups++;
+                    previous = code;
+                }
+            }
+            starts[groups] = hi;
+
+            int begin = findBase(codes, groups);
+            base[state] = begin;
+            for (int g = 0; g < groups; g++) {
+                check[begin + codes[g]] = state + 1;
+                maxIndex = Math.max(maxIndex, begin + codes[g]);
+            }
+
+            for (int g = 0; g < groups; g++) {
+                int child = begin + codes[g];
+                if (codes[g] == END) {
+                    base[child] = -values[starts[g]] - 1;
+                } else {
+                    place(child, starts[g], starts[g + 1], depth + 1);
+                }
+            }
+        }
+
+        private int findBase(int[] codes, int groups) {
+            int first = codes[0];
+            int pos = Math.max(first + 1, nextCheckPos) - 1;
+            int occupied = 0;
+            boolean seenFree = false;
+
+            while (true) {
+                pos++;
+                ensureCapacity(pos + alphabet.length + 1);
+                if (check[pos] != 0) {
+                    occupied++;
+                    continue;
+                }
+                if (!seenFree) {
+                    nextCheckPos = pos;
+                    seenFree = true;
+                }
+
+                int begin = pos - first;
+                if (begin < 1 || usedBases.get(begin)) {
+                    continue;
+                }
+                boolean fits = true;
+                for (int g = 1; g < groups; g++) {
+                    if (check[begin + codes[g]] != 0) {
+                        fits = false;
+                        break;
+                    }
+                }
+                if (!fits) {
+                    continue;
+                }
+
+                usedBases.set(begin);
+                // Skip densely packed regions on later searches
+                if ((double) occupied / (pos - nextCheckPos + 1) >= 0.95) {
+                    nextCheckPos = pos;
+                }
+                return begin;
+            }
+        }
+
+        private int codeOf(char c) {
+            if (c < 128) {
+                return asciiCodes[c];
+            }
+            return Arrays.binarySearch(alphabet, c) + 1;
+        }
+
+        private void ensureCapacity(int size) {
+            if (size < base.length) {
+                return;
+            }
+            int newLength = Math.max(size + 1, base.length * 2);
+            base = Arrays.copyOf(base, newLength);
+            check = Arrays.copyOf(check, newLength);
+        }
+    }
+}
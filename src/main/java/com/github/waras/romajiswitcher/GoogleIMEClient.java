@@ -1,53 +1,170 @@
 package com.github.waras.romajiswitcher;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+
 import java.io.IOException;
+import java.net.URI;
 import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Client for Google CGI API for Japanese Input (仮名漢字変換)
- * Converts hiragana to kanji with caching support
+ * Converts hiragana to kanji with caching support.
+ * Requests are sent asynchronously over a shared {@link HttpClient}, which keeps connections alive
+ * between requests; the blocking methods wait on the async ones.
+ * Concurrent lookups of the same uncached hiragana share one outstanding request.
+ * Outbound requests pass a token-bucket rate limit and a circuit breaker, and use a timeout
+ * that adapts to the observed p99 latency; rejected lookups resolve like failures without being cached.
  */
 public class GoogleIMEClient {
     private static final String API_URL = "http://www.google.com/transliterate";
     private static final String LANG_PAIR = "ja-Hira|ja";
-    private static final int TIMEOUT_MS = 3000;
-    
-    private Map<String, List<String>> cache;
-    private boolean enabled;
+    private static final Duration TIMEOUT = Duration.ofMillis(3000);
+    private static final int CACHE_SIZE = 10_000;
+    private static final long CACHE_BYTES = 4L * 1024 * 1024;
+    private static final Duration CACHE_TTL = Duration.ofHours(6);
+    /** Failures are retried after this, so a network blip does not downgrade a word for long */
+    private static final Duration NEGATIVE_TTL = Duration.ofMinutes(1);
+    private static final Duration MIN_TIMEOUT = Duration.ofMillis(250);
+    private static final double TIMEOUT_P99_MULTIPLIER = 3.0;
+    private static final int BREAKER_FAILURES = 5;
+    private static final Duration BREAKER_OPEN = Duration.ofSeconds(30);
+    private static final double REQUESTS_PER_SECOND = 20;
+    private static final int REQUEST_BURST = 40;
+
+    private final URI endpoint;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+    private volatile BoundedCache<String, List<String>> cache;
+    private volatile Duration cacheTtl = CACHE_TTL;
+    private volatile Duration negativeTtl = NEGATIVE_TTL;
+    private volatile boolean enabled;
+    /** Outstanding API requests by hiragana, shared by concurrent callers */
+    private final Map<String, CompletableFuture<List<String>>> inFlight = new ConcurrentHashMap<>();
+    private final LongAdder apiRequests = new LongAdder();
+    private final LongAdder coalescedRequests = new LongAdder();
+    private volatile AdaptiveTimeout requestTimeout;
+    private volatile CircuitBreaker circuitBreaker = new CircuitBreaker(BREAKER_FAILURES, BREAKER_OPEN);
+    private volatile TokenBucket rateLimiter = new TokenBucket(REQUESTS_PER_SECOND, REQUEST_BURST);
+    private volatile IMECacheFile persistentCache;
 
     public GoogleIMEClient() {
-        this.cache = new ConcurrentHashMap<>();
+        this(URI.create(API_URL), TIMEOUT);
+    }
+
+    /**
+     * @param endpoint Transliterate endpoint (query parameters are appended)
+     * @param timeout Connect timeout and maximum per-request timeout
+     */
+    public GoogleIMEClient(URI endpoint, Duration timeout) {
+        this.endpoint = endpoint;
+        this.timeout = timeout;
+        // HTTP/1.1 avoids an h2c upgrade attempt on every new plain-http connection
+        this.httpClient = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(timeout)
+            .build();
+        this.cache = newCache(CACHE_SIZE, CACHE_BYTES);
+        this.requestTimeout = new AdaptiveTimeout(
+            MIN_TIMEOUT.compareTo(timeout) < 0 ? MIN_TIMEOUT : timeout, timeout, TIMEOUT_P99_MULTIPLIER);
         this.enabled = true;
     }
 
     /**
-     * Convert hiragana to kanji using Google IME API
-     * @param hiragana Input hiragana string
-     * @return Best kanji conversion or original hiragana if API fails
+     * Warm the result cache from a cache file and write new results behind to it.
+     * Call after {@link #configureCache}, which drops cached results.
+     * @return Number of results loaded
      */
-    public String convert(String hiragana) {
-        if (!enabled || hiragana == null || hiragana.isEmpty()) {
-            return hiragana;
+    public int attachPersistentCache(IMECacheFile file) {
+        BoundedCache<String, List<String>> current = cache;
+        long now = System.currentTimeMillis();
+        int loaded = 0;
+        for (IMECacheFile.Entry entry : file.load()) {
+            long remaining = entry.expiresAtMillis() - now;
+            if (remaining > 0) {
+                current.put(entry.hiragana(), entry.candidates(), Duration.ofMillis(remaining));
+                loaded++;
+            }
         }
+        this.persistentCache = file;
+        return loaded;
+    }
 
-        // Check cache first
-        if (cache.containsKey(hiragana)) {
-            List<String> candidates = cache.get(hiragana);
-            return candidates.isEmpty() ? hiragana : candidates.get(0);
-        }
+    /**
+     * Replace the adaptive request timeout (recorded latencies are dropped)
+     * @param minimum Lower bound of the timeout
+     * @param maximum Upper bound, used until enough latencies were observed
+     * @param p99Multiplier Headroom over the observed p99 latency
+     */
+    public void configureTimeout(Duration minimum, Duration maximum, double p99Multiplier) {
+        this.requestTimeout = new AdaptiveTimeout(minimum, maximum, p99Multiplier);
+    }
 
-        try {
-            List<String> candidates = fetchFromAPI(hiragana);
-            cache.put(hiragana, candidates);
-            return candidates.isEmpty() ? hiragana : candidates.get(0);
-        } catch (Exception e) {
-            System.err.println("Google IME API error: " + e.getMessage());
-            cache.put(hiragana, new ArrayList<>()); // Cache the failure
-            return hiragana;
+    /**
+     * Replace the circuit breaker
+     * @param failureThreshold Consecutive failed requests that open the circuit
+     * @param openDuration How long requests are skipped before a probe request is sent
+     */
+    public void configureCircuitBreaker(int failureThreshold, Duration openDuration) {
+        this.circuitBreaker = new CircuitBreaker(failureThreshold, openDuration);
+    }
+
+    /**
+     * Replace the outbound rate limit
+     * @param requestsPerSecond Sustained request rate
+     * @param burst Requests allowed at once
+     */
+    public void configureRateLimit(double requestsPerSecond, int burst) {
+        this.rateLimiter = new TokenBucket(requestsPerSecond, burst);
+    }
+
+    /**
+     * Replace the result cache (cached results are dropped)
+     * @param maximumSize Maximum number of cached conversions
+     * @param maximumBytes Approximate memory budget of the cached conversions
+     * @param ttl How long successful results are kept
+     * @param negativeTtl How long failures are kept before the API is asked again
+     */
+    public void configureCache(int maximumSize, long maximumBytes, Duration ttl, Duration negativeTtl) {
+        this.cacheTtl = ttl;
+        this.negativeTtl = negativeTtl;
+        this.cache = newCache(maximumSize, maximumBytes);
+    }
+
+    private static BoundedCache<String, List<String>> newCache(int maximumSize, long maximumBytes) {
+        return new BoundedCache<>(maximumSize, BoundedCache.EvictionPolicy.LRU, maximumBytes,
+            GoogleIMEClient::estimateBytes);
+    }
+
+    /**
+     * Rough heap size of a cache entry: strings (header + UTF-16 chars), list and map node
+     */
+    static long estimateBytes(String hiragana, List<String> candidates) {
+        long bytes = 64 + 40 + 2L * hiragana.length() + 16 + 8L * candidates.size();
+        for (String candidate : candidates) {
+            bytes += 40 + 2L * candidate.length();
         }
+        return bytes;
+    }
+
+    /**
+     * Convert hiragana to kanji using Google IME API
+     * @param hiragana Input hiragana string
+     * @return Best kanji conversion or original hiragana if API fails
+     */
+    public String convert(String hiragana) {
+        return convertAsync(hiragana).join();
     }
 
     /**
@@ -56,93 +173,271 @@ public class GoogleIMEClient {
      * @return List of conversion candidates
      */
     public List<String> getCandidates(String hiragana) {
+        return new ArrayList<>(getCandidatesAsync(hiragana).join());
+    }
+
+    /**
+     * Convert hiragana to kanji without blocking the calling thread
+     * @return Future of the best conversion, or the original hiragana if the API fails (never completes exceptionally)
+     */
+    public CompletableFuture<String> convertAsync(String hiragana) {
         if (!enabled || hiragana == null || hiragana.isEmpty()) {
-            return new ArrayList<>();
+            return CompletableFuture.completedFuture(hiragana);
         }
+        return getCandidatesAsync(hiragana)
+            .thenApply(candidates -> candidates.isEmpty() ? hiragana : candidates.get(0));
+    }
 
-        if (cache.containsKey(hiragana)) {
-            return new ArrayList<>(cache.get(hiragana));
+    /**
+     * Get conversion candidates without blocking the calling thread
+     * @return Future of the (unmodifiable) candidates, empty if the API fails (never completes exceptionally)
+     */
+    public CompletableFuture<List<String>> getCandidatesAsync(String hiragana) {
+        if (!enabled || hiragana == null || hiragana.isEmpty()) {
+            return CompletableFuture.completedFuture(Collections.emptyList());
         }
+        BoundedCache<String, List<String>> current = cache;
+        Map<String, CompletableFuture<List<String>>> pending = new LinkedHashMap<>();
+        CompletableFuture<List<String>> result = lookup(hiragana, current, pending);
+        sendRequest(pending, current);
+        return result;
+    }
 
-        try {
-            List<String> candidates = fetchFromAPI(hiragana);
-            cache.put(hiragana, candidates);
+    /**
+     * Get conversion candidates for several segments (e.g. all words of a message) without blocking.
+     * Uncached segments are sent together in one request, as comma-separated segments.
+     * @return Future of the candidates per distinct segment, in input order (never completes exceptionally)
+     */
+    public CompletableFuture<Map<String, List<String>>> getCandidatesBatchAsync(Collection<String> segments) {
+        Map<String, CompletableFuture<List<String>>> results = new LinkedHashMap<>();
+        BoundedCache<String, List<String>> current = cache;
+        Map<String, CompletableFuture<List<String>>> pending = new LinkedHashMap<>();
+        for (String segment : segments) {
+            if (segment == null || segment.isEmpty() || results.containsKey(segment)) {
+                continue;
+            }
+            if (!enabled) {
+                results.put(segment, CompletableFuture.completedFuture(Collections.emptyList()));
+            } else if (segment.indexOf(',') >= 0) {
+                // A comma would split the segment; look it up on its own
+                results.put(segment, getCandidatesAsync(segment));
+            } else {
+                results.put(segment, lookup(segment, current, pending));
+            }
+        }
+        sendRequest(pending, current);
+
+        return CompletableFuture.allOf(results.values().toArray(new CompletableFuture<?>[0])).thenApply(done -> {
+            Map<String, List<String>> candidates = new LinkedHashMap<>();
+            results.forEach((segment, future) -> candidates.put(segment, future.join()));
             return candidates;
-        } catch (Exception e) {
-            System.err.println("Google IME API error: " + e.getMessage());
-            cache.put(hiragana, new ArrayList<>());
-            return new ArrayList<>();
+        });
+    }
+
+    /**
+     * Resolve a segment from the cache or an outstanding request, or register a new request in {@code pending}
+     */
+    private CompletableFuture<List<String>> lookup(String hiragana, BoundedCache<String, List<String>> results,
+                                                   Map<String, CompletableFuture<List<String>>> pending) {
+        // Check cache first (a single get, so a concurrent eviction cannot turn a hit into null)
+        List<String> cached = results.get(hiragana);
+        if (cached != null) {
+            return CompletableFuture.completedFuture(cached);
+        }
+
+        CompletableFuture<List<String>> request = new CompletableFuture<>();
+        CompletableFuture<List<String>> existing = inFlight.putIfAbsent(hiragana, request);
+        if (existing != null) {
+            coalescedRequests.increment();
+            // Copy, so one caller cancelling its future does not affect the others
+            return existing.copy();
         }
+        pending.put(hiragana, request);
+        return request.copy();
     }
 
     /**
-     * Fetch conversion candidates from Google IME API
+     * Send one request for all pending segments and complete their futures
      */
-    private List<String> fetchFromAPI(String hiragana) throws IOException {
-        String encodedText = URLEncoder.encode(hiragana, StandardCharsets.UTF_8);
-        String url = API_URL + "?langpair=" + LANG_PAIR + "&text=" + encodedText;
+    private void sendRequest(Map<String, CompletableFuture<List<String>>> pending,
+                             BoundedCache<String, List<String>> results) {
+        if (pending.isEmpty()) {
+            return;
+        }
 
-        try {
-            java.net.HttpURLConnection conn = (java.net.HttpURLConnection) new java.net.URL(url).openConnection();
-            conn.setRequestMethod("GET");
-            conn.setConnectTimeout(TIMEOUT_MS);
-            conn.setReadTimeout(TIMEOUT_MS);
-
-            int responseCode = conn.getResponseCode();
-            if (responseCode != 200) {
-                throw new IOException("HTTP " + responseCode);
+        // The breaker is asked first, so a rejected call does not spend a rate limit token
+        CircuitBreaker breaker = circuitBreaker;
+        CircuitBreaker.Permit permit = breaker.tryAcquire();
+        if (permit == null || !rateLimiter.tryAcquire()) {
+            if (permit != null) {
+                permit.cancel();
             }
+            // Rejected: answer like a failure, but do not cache it
+            pending.forEach((hiragana, request) -> {
+                inFlight.remove(hiragana, request);
+                request.complete(Collections.emptyList());
+            });
+            return;
+        }
 
-            java.io.BufferedReader reader = new java.io.BufferedReader(
-                new java.io.InputStreamReader(conn.getInputStream(), StandardCharsets.UTF_8)
-            );
-            StringBuilder response = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                response.append(line);
+        apiRequests.increment();
+        long generation = results.generation();
+        List<String> requested = new ArrayList<>(pending.keySet());
+        AdaptiveTimeout timeouts = requestTimeout;
+        long start = System.nanoTime();
+        fetchFromAPI(String.join(",", requested), timeouts.current()).handle((segments, error) -> {
+            timeouts.record(System.nanoTime() - start);
+            if (error != null) {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                System.err.println("Google IME API error: " + cause);
+                recordFailure(breaker, permit);
+                segments = Collections.emptyList();
+            } else {
+                recordSuccess(breaker, permit);
+            }
+            Map<String, List<String>> candidates = matchSegments(requested, segments);
+            for (String hiragana : requested) {
+                List<String> found = candidates.get(hiragana);
+                if (found != null) {
+                    Duration ttl = cacheTtl;
+                    results.putIfGeneration(hiragana, found, ttl, generation);
+                    IMECacheFile file = persistentCache;
+                    if (file != null) {
+                        file.append(hiragana, found, System.currentTimeMillis() + ttl.toMillis());
+                    }
+                } else if (error != null) {
+                    // Cache the failure briefly; a segment merely missing from an answer is asked again
+                    results.putIfGeneration(hiragana, Collections.emptyList(), negativeTtl, generation);
+                }
             }
-            reader.close();
+            return candidates;
+        }).whenComplete((candidates, error) -> {
+            // Cached before removal, so later callers find either the request or the result
+            pending.forEach((hiragana, request) -> {
+                inFlight.remove(hiragana, request);
+                List<String> found = candidates != null ? candidates.get(hiragana) : null;
+                request.complete(found != null ? found : Collections.emptyList());
+            });
+        });
+    }
 
-            return parseResponse(response.toString());
-        } catch (java.net.SocketTimeoutException e) {
-            throw new IOException("API timeout: " + e.getMessage());
+    private void recordFailure(CircuitBreaker breaker, CircuitBreaker.Permit permit) {
+        long opened = breaker.getOpenedCount();
+        permit.onFailure();
+        if (breaker.getOpenedCount() != opened) {
+            System.err.println("Google IME API circuit opened; requests are skipped until the next probe");
         }
     }
 
+    private void recordSuccess(CircuitBreaker breaker, CircuitBreaker.Permit permit) {
+        long closed = breaker.getClosedCount();
+        permit.onSuccess();
+        if (breaker.getClosedCount() != closed) {
+            System.out.println("Google IME API circuit closed; requests resumed");
+        }
+    }
+
+    /**
+     * Assign response segments to the requested segments: by position when the counts match,
+     * otherwise by grouping consecutive response segments whose echoed inputs add up to each
+     * requested segment (the API may split a segment further, e.g. きょうは into きょう and は, but
+     * never merges across a comma). A group answers with its first segment's candidates, like a
+     * single-word request.
+     */
+    static Map<String, List<String>> matchSegments(List<String> requested, List<Segment> segments) {
+        Map<String, List<String>> candidates = new HashMap<>();
+        if (segments.isEmpty()) {
+            return candidates;
+        }
+        if (requested.size() == 1) {
+            // The API may segment a single word further; keep the first segment as before
+            candidates.put(requested.get(0), segments.get(0).candidates());
+        } else if (segments.size() == requested.size()) {
+            for (int i = 0; i < requested.size(); i++) {
+                candidates.put(requested.get(i), segments.get(i).candidates());
+            }
+        } else {
+            int next = 0;
+            for (String word : requested) {
+                int first = next;
+                StringBuilder joined = new StringBuilder(word.length());
+                while (next < segments.size() && joined.length() < word.length()) {
+                    // The echoed input may carry the separating comma
+                    String input = segments.get(next++).input();
+                    for (int i = 0; i < input.length(); i++) {
+                        if (input.charAt(i) != ',') {
+                            joined.append(input.charAt(i));
+                        }
+                    }
+                }
+                if (!word.contentEquals(joined)) {
+                    // Out of step: keep what matched so far, and exact echoes of the rest
+                    for (int i = first; i < segments.size(); i++) {
+                        Segment segment = segments.get(i);
+                        if (requested.contains(segment.input())) {
+                            candidates.putIfAbsent(segment.input(), segment.candidates());
+                        }
+                    }
+                    break;
+                }
+                candidates.put(word, segments.get(first).candidates());
+            }
+        }
+        return candidates;
+    }
+
+    /**
+     * Fetch conversion candidates from Google IME API
+     * @param text Hiragana, with commas between segments
+     */
+    private CompletableFuture<List<Segment>> fetchFromAPI(String text, Duration timeout) {
+        String encodedText = URLEncoder.encode(text, StandardCharsets.UTF_8);
+        HttpRequest request = HttpRequest.newBuilder(
+                URI.create(endpoint + "?langpair=" + URLEncoder.encode(LANG_PAIR, StandardCharsets.UTF_8)
+                    + "&text=" + encodedText))
+            .timeout(timeout)
+            .GET()
+            .build();
+
+        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString(StandardCharsets.UTF_8))
+            .thenApply(response -> {
+                if (response.statusCode() != 200) {
+                    throw new CompletionException(new IOException("HTTP " + response.statusCode()));
+                }
+                return parseResponse(response.body());
+            });
+    }
+
+    /**
+     * One segment of an API response: the input hiragana and its candidates
+     */
+    record Segment(String input, List<String> candidates) {
+    }
+
     /**
      * Parse JSON response from Google IME API
-     * Expected format: [["hiragana", ["candidate1", "candidate2", ...]]]
+     * Expected format: [["segment1", ["candidate1", "candidate2", ...]], ["segment2", [...]], ...]
      */
-    private List<String> parseResponse(String json) {
-        List<String> candidates = new ArrayList<>();
-        
+    static List<Segment> parseResponse(String json) {
+        List<Segment> segments = new ArrayList<>();
         try {
-            // Simple JSON parsing - extract candidates from the array
-            // Format: [["input",["candidate1","candidate2",...]]]
-            int startIdx = json.indexOf("[[");
-            if (startIdx == -1) return candidates;
-            
-            int innerStart = json.indexOf("[\"", startIdx + 2);
-            if (innerStart == -1) return candidates;
-            
-            int endIdx = json.indexOf("]]", innerStart);
-            if (endIdx == -1) return candidates;
-            
-            String candidateStr = json.substring(innerStart + 1, endIdx);
-            
-            // Parse candidate strings - split by comma but respect quoted strings
-            String[] parts = candidateStr.split("\",\"");
-            for (String part : parts) {
-                String clean = part.replaceAll("^[\"\\[]", "").replaceAll("[\"\\]]$", "").trim();
-                if (!clean.isEmpty() && !clean.equals("[")) {
-                    candidates.add(clean);
+            for (JsonElement element : JsonParser.parseString(json).getAsJsonArray()) {
+                JsonArray pair = element.getAsJsonArray();
+                List<String> candidates = new ArrayList<>();
+                for (JsonElement candidate : pair.get(1).getAsJsonArray()) {
+                    String value = candidate.getAsString().trim();
+                    if (!value.isEmpty()) {
+                        candidates.add(value);
+                    }
                 }
+                segments.add(new Segment(pair.get(0).getAsString(), Collections.unmodifiableList(candidates)));
             }
-        } catch (Exception e) {
+        } catch (RuntimeException e) {
+            // Malformed JSON or unexpected shape (Gson throws JsonParseException / IllegalStateException)
             System.err.println("JSON parse error: " + e.getMessage());
         }
-        
-        return candidates;
+        return segments;
     }
 
     /**
@@ -172,4 +467,37 @@ public class GoogleIMEClient {
     public int getCacheSize() {
         return cache.size();
     }
+
+    /**
+     * Number of requests sent to the API
+     */
+    public long getRequestCount() {
+        return apiRequests.sum();
+    }
+
+    /**
+     * Number of lookups that joined an outstanding request instead of sending their own
+     */
+    public long getCoalescedCount() {
+        return coalescedRequests.sum();
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public TokenBucket getRateLimiter() {
+        return rateLimiter;
+    }
+
+    public AdaptiveTimeout getRequestTimeout() {
+        return requestTimeout;
+    }
+
+    /**
+     * Get the result cache (for hit rate, eviction and expiry statistics)
+     */
+    public BoundedCache<String, List<String>> getCache() {
+        return cache;
+    }
 }
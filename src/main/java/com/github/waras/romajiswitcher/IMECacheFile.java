@@ -0,0 +1,299 @@
+package com.github.waras.romajiswitcher;
+
+import java.io.*;
+import java.nio.file.*;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only file of Google IME results, so the result cache survives restarts.
+ *
+ * Format: int magic "RJIC", int version, then records of
+ * {@code int length, payload, int CRC32(payload)} where the payload is
+ * {@code long expiresAtMillis, UTF hiragana, short count, UTF candidate × count}.
+ * A later record for the same hiragana replaces earlier ones.
+ *
+ * Results are queued by {@link #append} and written behind by a background thread. When the file
+ * grows past the compaction threshold it is rewritten with only the latest live records.
+ * A file with an unknown header is set aside; a damaged tail is dropped on load.
+ */
+public class IMECacheFile implements Closeable {
+    static final int MAGIC = 0x524A4943; // "RJIC"
+    static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 64 * 1024;
+
+    /**
+     * One stored result
+     */
+    public record Entry(String hiragana, List<String> candidates, long expiresAtMillis) {
+    }
+
+    private final Path file;
+    private final long compactBytes;
+    private final int maxEntries;
+    private final BlockingQueue<Entry> queue = new LinkedBlockingQueue<>();
+    private ScheduledExecutorService flusher;
+
+    /**
+     * @param file Cache file
+     * @param compactBytes File size that triggers a compaction
+     * @param maxEntries Maximum number of records kept by a compaction (most recent first)
+     */
+    public IMECacheFile(Path file, long compactBytes, int maxEntries) {
+        this.file = file;
+        this.compactBytes = compactBytes;
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Read the live (unexpired) entries, latest record per hiragana, oldest first.
+     * Never throws: an unreadable file yields the entries read so far, or none.
+     */
+    public synchronized List<Entry> load() {
+        if (!Files.exists(file)) {
+            return Collections.emptyList();
+        }
+
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        boolean knownFormat;
+        boolean damaged = false;
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            knownFormat = readHeader(in);
+            if (knownFormat) {
+                damaged = !readRecords(in, entries);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to read IME cache file: " + e.getMessage());
+            knownFormat = !entries.isEmpty();
+            damaged = true;
+        }
+        if (!knownFormat) {
+            // Old version or not a cache file: start over rather than fail
+            System.err.println("Ignoring IME cache file with unknown format: " + file);
+            setAside();
+            return Collections.emptyList();
+        }
+
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAtMillis() <= now);
+        if (damaged) {
+            // Rewrite the good records, so appends do not follow a broken record
+            System.err.println("IME cache file is damaged; keeping " + entries.size() + " readable entries");
+            try {
+                rewrite(entries.values());
+            } catch (IOException e) {
+                System.err.println("Failed to repair IME cache file: " + e.getMessage());
+                setAside();
+            }
+        }
+        return new ArrayList<>(entries.values());
+    }
+
+    /**
+     * Queue a result to be written by the next flush
+     */
+    public void append(String hiragana, List<String> candidates, long expiresAtMillis) {
+        queue.add(new Entry(hiragana, List.copyOf(candidates), expiresAtMillis));
+    }
+
+    /**
+     * Flush queued results every {@code interval} on a daemon thread
+     */
+    public synchronized void start(Duration interval) {
+        if (flusher != null) {
+            return;
+        }
+        flusher = Executors.newSingleThreadScheduledExecutor(task -> {
+            Thread thread = new Thread(task, "RomajiSwitcher-IMECacheWriter");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = Math.max(1, interval.toMillis());
+        flusher.scheduleWithFixedDelay(() -> {
+            try {
+                flush();
+            } catch (IOException | RuntimeException e) {
+                System.err.println("Failed to write IME cache file: " + e.getMessage());
+            }
+        }, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Write all queued results, compacting the file if it grew past the threshold
+     */
+    public synchronized void flush() throws IOException {
+        List<Entry> batch = new ArrayList<>();
+        queue.drainTo(batch);
+        if (batch.isEmpty()) {
+            return;
+        }
+
+        boolean fresh = !Files.exists(file) || Files.size(file) == 0;
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+                Files.newOutputStream(file, StandardOpenOption.CREATE, StandardOpenOption.APPEND)))) {
+            if (fresh) {
+                writeHeader(out);
+            }
+            for (Entry entry : batch) {
+                writeRecord(out, entry);
+            }
+        }
+
+        if (Files.size(file) > compactBytes) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrite the file with the latest live record per hiragana, keeping at most maxEntries
+     */
+    public synchronized void compact() throws IOException {
+        Map<String, Entry> entries = new LinkedHashMap<>();
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (!readHeader(in)) {
+                return;
+            }
+            readRecords(in, entries);
+        }
+
+        long now = System.currentTimeMillis();
+        entries.values().removeIf(entry -> entry.expiresAtMillis() <= now);
+        List<Entry> live = new ArrayList<>(entries.values());
+        rewrite(live.subList(Math.max(0, live.size() - maxEntries), live.size()));
+    }
+
+    /**
+     * Stop the background writer and flush what is queued
+     */
+    @Override
+    public void close() throws IOException {
+        ScheduledExecutorService executor;
+        synchronized (this) {
+            executor = flusher;
+            flusher = null;
+        }
+        if (executor != null) {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+    }
+
+    private void rewrite(Collection<Entry> entries) throws IOException {
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            writeHeader(out);
+            for (Entry entry : entries) {
+                writeRecord(out, entry);
+            }
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void setAside() {
+        try {
+            Files.move(file, file.resolveSibling(file.getFileName() + ".bad"), StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            System.err.println("Failed to move unreadable IME cache file aside: " + e.getMessage());
+        }
+    }
+
+    private static void writeHeader(DataOutputStream out) throws IOException {
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    private static boolean readHeader(DataInputStream in) throws IOException {
+        byte[] header = new byte[HEADER_BYTES];
+        if (in.readNBytes(header, 0, HEADER_BYTES) != HEADER_BYTES) {
+            return false;
+        }
+        DataInputStream fields = new DataInputStream(new ByteArrayInputStream(header));
+        return fields.readInt() == MAGIC && fields.readInt() == VERSION;
+    }
+
+    private static void writeRecord(DataOutputStream out, Entry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        DataOutputStream payload = new DataOutputStream(bytes);
+        payload.writeLong(entry.expiresAtMillis());
+        payload.writeUTF(entry.hiragana());
+        payload.writeShort(entry.candidates().size());
+        for (String candidate : entry.candidates()) {
+            payload.writeUTF(candidate);
+        }
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes.toByteArray());
+        out.writeInt(bytes.size());
+        bytes.writeTo(out);
+        out.writeInt((int) crc.getValue());
+    }
+
+    /**
+     * Read records into {@code entries} (latest per hiragana moves to the end)
+     * @return false if reading stopped at a truncated or corrupt record
+     */
+    private static boolean readRecords(DataInputStream in, Map<String, Entry> entries) throws IOException {
+        while (true) {
+            int length;
+            try {
+                length = in.readInt();
+            } catch (EOFException e) {
+                return true;
+            }
+            if (length <= 0 || length > MAX_RECORD_BYTES) {
+                return false;
+            }
+
+            byte[] payload = new byte[length];
+            if (in.readNBytes(payload, 0, length) != length) {
+                return false;
+            }
+            int storedCrc;
+            try {
+                storedCrc = in.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            if ((int) crc.getValue() != storedCrc) {
+                return false;
+            }
+
+            Entry entry = parseRecord(payload);
+            entries.remove(entry.hiragana());
+            entries.put(entry.hiragana(), entry);
+        }
+    }
+
+    private static Entry parseRecord(byte[] payload) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        long expiresAt = in.readLong();
+        String hiragana = in.readUTF();
+        int count = in.readUnsignedShort();
+        List<String> candidates = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            candidates.add(in.readUTF());
+        }
+        return new Entry(hiragana, Collections.unmodifiableList(candidates), expiresAt);
+    }
+
+    /**
+     * Size of the file in bytes (0 if it does not exist)
+     */
+    public long size() {
+        try {
+            return Files.exists(file) ? Files.size(file) : 0;
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.github.waras.romajiswitcher;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Kana to romaji (Hepburn, as typed on a romaji keyboard) for building dictionary keys.
+ * - Hiragana and katakana are both accepted
+ * - Yoon (きゃ → kya) and extended katakana (ファ → fa, ティ → ti) are single syllables
+ * - Sokuon doubles the next consonant (がっこう → gakkou, まっちゃ → maccha)
+ * - ん is "nn" before a vowel or y (きんえん → kinnen, こんや → konnya), otherwise "n"
+ * - ー is kept as "-"
+ */
+public final class KanaRomanizer {
+    private static final Map<String, String> SYLLABLES = new HashMap<>();
+
+    static {
+        String[][] table = {
+            {"あ", "a"}, {"い", "i"}, {"う", "u"}, {"え", "e"}, {"お", "o"},
+            {"か", "ka"}, {"き", "ki"}, {"く", "ku"}, {"け", "ke"}, {"こ", "ko"},
+            {"が", "ga"}, {"ぎ", "gi"}, {"ぐ", "gu"}, {"げ", "ge"}, {"ご", "go"},
+            {"さ", "sa"}, {"し", "shi"}, {"す", "su"}, {"せ", "se"}, {"そ", "so"},
+            {"ざ", "za"}, {"じ", "ji"}, {"ず", "zu"}, {"ぜ", "ze"}, {"ぞ", "zo"},
+            {"た", "ta"}, {"ち", "chi"}, {"つ", "tsu"}, {"て", "te"}, {"と", "to"},
+            {"だ", "da"}, {"ぢ", "ji"}, {"づ", "zu"}, {"で", "de"}, {"ど", "do"},
+            {"な", "na"}, {"に", "ni"}, {"ぬ", "nu"}, {"ね", "ne"}, {"の", "no"},
+            {"は", "ha"}, {"ひ", "hi"}, {"ふ", "fu"}, {"へ", "he"}, {"ほ", "ho"},
+            {"ば", "ba"}, {"び", "bi"}, {"ぶ", "bu"}, {"べ", "be"}, {"ぼ", "bo"},
+            {"ぱ", "pa"}, {"ぴ", "pi"}, {"ぷ", "pu"}, {"ぺ", "pe"}, {"ぽ", "po"},
+            {"ま", "ma"}, {"み", "mi"}, {"む", "mu"}, {"め", "me"}, {"も", "mo"},
+            {"や", "ya"}, {"ゆ", "yu"}, {"よ", "yo"},
+            {"ら", "ra"}, {"り", "ri"}, {"る", "ru"}, {"れ", "re"}, {"ろ", "ro"},
+            {"わ", "wa"}, {"ゐ", "wi"}, {"ゑ", "we"}, {"を", "wo"}, {"ゔ", "vu"},
+            {"ぁ", "xa"}, {"ぃ", "xi"}, {"ぅ", "xu"}, {"ぇ", "xe"}, {"ぉ", "xo"},
+            {"ゃ", "xya"}, {"ゅ", "xyu"}, {"ょ", "xyo"}, {"ゎ", "xwa"}, {"っ", "xtu"},
+            {"ゕ", "xka"}, {"ゖ", "xke"},
+
+            {"きゃ", "kya"}, {"きゅ", "kyu"}, {"きょ", "kyo"},
+            {"ぎゃ", "gya"}, {"ぎゅ", "gyu"}, {"ぎょ", "gyo"},
+            {"しゃ", "sha"}, {"しゅ", "shu"}, {"しょ", "sho"}, {"しぇ", "she"},
+            {"じゃ", "ja"}, {"じゅ", "ju"}, {"じょ", "jo"}, {"じぇ", "je"},
+            {"ちゃ", "cha"}, {"ちゅ", "chu"}, {"ちょ", "cho"}, {"ちぇ", "che"},
+            {"ぢゃ", "ja"}, {"ぢゅ", "ju"}, {"ぢょ", "jo"},
+            {"にゃ", "nya"}, {"にゅ", "nyu"}, {"にょ", "nyo"},
+            {"ひゃ", "hya"}, {"ひゅ", "hyu"}, {"ひょ", "hyo"},
+            {"びゃ", "bya"}, {"びゅ", "byu"}, {"びょ", "byo"},
+            {"ぴゃ", "pya"}, {"ぴゅ", "pyu"}, {"ぴょ", "pyo"},
+            {"みゃ", "mya"}, {"みゅ", "myu"}, {"みょ", "myo"},
+            {"りゃ", "rya"}, {"りゅ", "ryu"}, {"りょ", "ryo"},
+
+            {"ふぁ", "fa"}, {"ふぃ", "fi"}, {"ふぇ", "fe"}, {"ふぉ", "fo"}, {"ふゅ", "fyu"},
+            {"てぃ", "ti"}, {"とぅ", "tu"}, {"でぃ", "di"}, {"どぅ", "du"}, {"でゅ", "dyu"},
+            {"うぃ", "wi"}, {"うぇ", "we"}, {"うぉ", "who"},
+            {"ゔぁ", "va"}, {"ゔぃ", "vi"}, {"ゔぇ", "ve"}, {"ゔぉ", "vo"},
+            {"つぁ", "tsa"}, {"つぃ", "tsi"}, {"つぇ", "tse"}, {"つぉ", "tso"},
+            {"いぇ", "ye"}, {"くぁ", "kwa"}, {"ぐぁ", "gwa"}
+        };
+        for (String[] row : table) {
+            SYLLABLES.put(row[0], row[1]);
+        }
+    }
+
+    private KanaRomanizer() {
+    }
+
+    /**
+     * Convert a kana reading to romaji
+     * @param kana Hiragana and/or katakana
+     * @return Lowercase romaji, or null if the reading contains anything that is not kana
+     */
+    public static String toRomaji(CharSequence kana) {
+        String hiragana = toHiragana(kana);
+        StringBuilder romaji = new StringBuilder(hiragana.length() * 2);
+        int sokuon = 0;
+
+        int i = 0;
+        while (i < hiragana.length()) {
+            char c = hiragana.charAt(i);
+
+            if (c == 'っ') {
+                sokuon++;
+                i++;
+                continue;
+            }
+            if (c == 'ー') {
+                flushSokuon(romaji, sokuon);
+                sokuon = 0;
+                romaji.append('-');
+                i++;
+                continue;
+            }
+            if (c == 'ん') {
+                flushSokuon(romaji, sokuon);
+                sokuon = 0;
+                romaji.append(needsDoubleN(hiragana, i + 1) ? "nn" : "n");
+                i++;
+                continue;
+            }
+
+            String syllable = null;
+            if (i + 1 < hiragana.length()) {
+                syllable = SYLLABLES.get(hiragana.substring(i, i + 2));
+            }
+            int length = 2;
+            if (syllable == null) {
+                syllable = SYLLABLES.get(String.valueOf(c));
+                length = 1;
+            }
+            if (syllable == null) {
+                return null;
+            }
+
+            if (sokuon > 0) {
+                char consonant = syllable.charAt(0);
+                if (isVowel(consonant)) {
+                    flushSokuon(romaji, sokuon);
+                } else {
+                    for (int k = 0; k < sokuon; k++) {
+                        romaji.append(consonant);
+                    }
+                }
+                sokuon = 0;
+            }
+            romaji.append(syllable);
+            i += length;
+        }
+        flushSokuon(romaji, sokuon);
+        return romaji.toString();
+    }
+
+    /**
+     * Convert katakana to hiragana; other characters are left as they are
+     */
+    public static String toHiragana(CharSequence kana) {
+        StringBuilder result = new StringBuilder(kana.length());
+        for (int i = 0; i < kana.length(); i++) {
+            char c = kana.charAt(i);
+            if (c >= 'ァ' && c <= 'ヶ') {
+                result.append((char) (c - 0x60));
+            } else {
+                result.append(c);
+            }
+        }
+        return result.toString();
+    }
+
+    /**
+     * ん followed by a vowel or y would otherwise merge with it when typed back
+     */
+    private static boolean needsDoubleN(String hiragana, int next) {
+        if (next >= hiragana.length()) {
+            return false;
+        }
+        String following = SYLLABLES.get(String.valueOf(hiragana.charAt(next)));
+        if (following == null) {
+            return false;
+        }
+        char first = following.charAt(0);
+        return isVowel(first) || first == 'y';
+    }
+
+    /**
+     * Sokuon that cannot double a consonant (word end, before a vowel) is written as xtu
+     */
+    private static void flushSokuon(StringBuilder romaji, int count) {
+        for (int k = 0; k < count; k++) {
+            romaji.append("xtu");
+        }
+    }
+
+    private static boolean isVowel(char c) {
+        return c == 'a' || c == 'i' || c == 'u' || c == 'e' || c == 'o';
+    }
+}
@@ -0,0 +1,214 @@
+package com.github.waras.romajiswitcher;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local tier of Google IME conversions that players use often, so they no longer need a request.
+ * Lookups are lock-free; when the tier is full, the least frequently used entry is demoted.
+ * Persisted to learned-dictionary.json.
+ */
+public class LearnedDictionary {
+    private static final String LEARNED_FILENAME = "learned-dictionary.json";
+
+    private final Path path;
+    private final Map<String, LearnedEntry> entries = new ConcurrentHashMap<>();
+    private final Object writeLock = new Object();
+    private volatile int maximumSize;
+    private long demotions;
+    private volatile boolean dirty;
+
+    /**
+     * One promoted conversion and how often it was used
+     */
+    public static final class LearnedEntry {
+        public final String romaji;
+        public final ConversionCandidate candidate;
+        private final AtomicLong hits;
+
+        LearnedEntry(String romaji, ConversionCandidate candidate, long hits) {
+            this.romaji = romaji;
+            this.candidate = candidate;
+            this.hits = new AtomicLong(hits);
+        }
+
+        public long getHits() {
+            return hits.get();
+        }
+    }
+
+    /**
+     * @param pluginDataFolder Folder of learned-dictionary.json (loaded if present)
+     * @param maximumSize Maximum number of learned conversions
+     */
+    public LearnedDictionary(Path pluginDataFolder, int maximumSize) {
+        this.path = pluginDataFolder.resolve(LEARNED_FILENAME);
+        this.maximumSize = Math.max(1, maximumSize);
+        load();
+    }
+
+    /**
+     * Learned candidate for a romaji key, if it was learned for the same reading
+     * @param hiragana Reading of the dictionary's best candidate
+     */
+    public ConversionCandidate get(String romaji, String hiragana) {
+        LearnedEntry entry = entries.get(romaji);
+        if (entry == null || !entry.candidate.hiragana.equals(hiragana)) {
+            return null;
+        }
+        entry.hits.incrementAndGet();
+        dirty = true;
+        return entry.candidate;
+    }
+
+    public boolean contains(String romaji) {
+        return entries.containsKey(romaji);
+    }
+
+    /**
+     * Add a conversion, demoting the least frequently used one if the tier is full
+     * @param hits Uses so far (the starting frequency)
+     */
+    public void promote(String romaji, ConversionCandidate candidate, long hits) {
+        synchronized (writeLock) {
+            entries.put(romaji, new LearnedEntry(romaji, candidate, hits));
+            trim();
+            dirty = true;
+        }
+    }
+
+    /**
+     * Change the capacity, demoting entries if needed
+     */
+    public void setMaximumSize(int maximumSize) {
+        synchronized (writeLock) {
+            this.maximumSize = Math.max(1, maximumSize);
+            trim();
+        }
+    }
+
+    private void trim() {
+        while (entries.size() > maximumSize) {
+            LearnedEntry leastUsed = null;
+            for (LearnedEntry entry : entries.values()) {
+                if (leastUsed == null || entry.getHits() < leastUsed.getHits()) {
+                    leastUsed = entry;
+                }
+            }
+            entries.remove(leastUsed.romaji);
+            demotions++;
+        }
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    public int getMaximumSize() {
+        return maximumSize;
+    }
+
+    /**
+     * Number of entries demoted to make room
+     */
+    public long getDemotionCount() {
+        synchronized (writeLock) {
+            return demotions;
+        }
+    }
+
+    public Collection<LearnedEntry> getEntries() {
+        return Collections.unmodifiableCollection(entries.values());
+    }
+
+    /**
+     * Load learned conversions from file (a damaged file is logged and ignored)
+     */
+    private void load() {
+        if (!Files.exists(path)) {
+            return;
+        }
+        try (JsonReader reader = new JsonReader(Files.newBufferedReader(path, StandardCharsets.UTF_8))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                if (!reader.nextName().equals("entries")) {
+                    reader.skipValue();
+                    continue;
+                }
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    readEntry(reader);
+                }
+                reader.endArray();
+            }
+            reader.endObject();
+            trim();
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Failed to load learned dictionary: " + e.getMessage());
+        }
+    }
+
+    private void readEntry(JsonReader reader) throws IOException {
+        String romaji = null;
+        String kanji = null;
+        String hiragana = null;
+        int baseScore = 100;
+        long hits = 0;
+        reader.beginObject();
+        while (reader.hasNext()) {
+            switch (reader.nextName()) {
+                case "romaji" -> romaji = reader.nextString();
+                case "kanji" -> kanji = reader.nextString();
+                case "hiragana" -> hiragana = reader.nextString();
+                case "baseScore" -> baseScore = reader.nextInt();
+                case "hits" -> hits = reader.nextLong();
+                default -> reader.skipValue();
+            }
+        }
+        reader.endObject();
+        if (romaji != null && kanji != null && hiragana != null) {
+            entries.put(romaji, new LearnedEntry(romaji, new ConversionCandidate(kanji, hiragana, baseScore), hits));
+        }
+    }
+
+    /**
+     * Save learned conversions if anything changed since the last save
+     */
+    public void save() {
+        if (!dirty) {
+            return;
+        }
+        synchronized (writeLock) {
+            dirty = false;
+            try {
+                Files.createDirectories(path.getParent());
+                Path temp = path.resolveSibling(LEARNED_FILENAME + ".tmp");
+                try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(temp, StandardCharsets.UTF_8))) {
+                    writer.setIndent("  ");
+                    writer.beginObject().name("version").value(1).name("entries").beginArray();
+                    for (LearnedEntry entry : entries.values()) {
+                        writer.beginObject()
+                            .name("romaji").value(entry.romaji)
+                            .name("kanji").value(entry.candidate.kanji)
+                            .name("hiragana").value(entry.candidate.hiragana)
+                            .name("baseScore").value(entry.candidate.baseScore)
+                            .name("hits").value(entry.getHits())
+                            .endObject();
+                    }
+                    writer.endArray().endObject();
+                }
+                Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                dirty = true;
+                System.err.println("Failed to save learned dictionary: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,303 @@
+package com.github.waras.romajiswitcher;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * System dictionary read in place from a memory-mapped binary file (no parsing at startup).
+ *
+ * File layout (version 1, big-endian):
+ * - Header (32 bytes): magic "RJDC", version, entry count, candidate count,
+ *   string pool offset, string pool length, key index offset, candidate table offset
+ * - String pool: UTF-8 bytes of keys, kanji and hiragana (deduplicated)
+ * - Key index: one 16-byte record per entry, sorted by key bytes:
+ *   key offset, key length, first candidate, candidate count
+ * - Candidate table: one 20-byte record per candidate:
+ *   kanji offset, kanji length, hiragana offset, hiragana length (-1 = null), base score
+ */
+public class MappedDictionary implements SystemDictionary {
+    public static final int MAGIC = 0x524A4443; // "RJDC"
+    public static final int VERSION = 1;
+
+    private static final int HEADER_SIZE = 32;
+    private static final int KEY_RECORD_SIZE = 16;
+    private static final int CANDIDATE_RECORD_SIZE = 20;
+
+    private final ByteBuffer buffer;
+    private final int entryCount;
+    private final int poolOffset;
+    private final int keyIndexOffset;
+    private final int candidateOffset;
+
+    private MappedDictionary(ByteBuffer buffer, int entryCount, int poolOffset, int keyIndexOffset,
+                             int candidateOffset) {
+        this.buffer = buffer;
+        this.entryCount = entryCount;
+        this.poolOffset = poolOffset;
+        this.keyIndexOffset = keyIndexOffset;
+        this.candidateOffset = candidateOffset;
+    }
+
+    /**
+     * Map a dictionary file read-only and validate its header
+     * @throws IOException if the file is not a supported dictionary
+     */
+    public static MappedDictionary open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE || size > Integer.MAX_VALUE) {
+                throw new IOException("Invalid dictionary size: " + size);
+            }
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            return fromBuffer(buffer);
+        }
+    }
+
+    /**
+     * Read a dictionary from a buffer holding a complete file image. The key index and candidate
+     * table are checked once here, so a truncated or corrupt file fails to open instead of failing
+     * lookups later.
+     */
+    public static MappedDictionary fromBuffer(ByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_SIZE) {
+            throw new IOException("Truncated dictionary header");
+        }
+        int magic = buffer.getInt(0);
+        int version = buffer.getInt(4);
+        if (magic != MAGIC) {
+            throw new IOException("Not a RomajiSwitcher dictionary (bad magic)");
+        }
+        if (version != VERSION) {
+            throw new IOException("Unsupported dictionary version " + version + " (expected " + VERSION + ")");
+        }
+
+        int entryCount = buffer.getInt(8);
+        int candidateCount = buffer.getInt(12);
+        int poolOffset = buffer.getInt(16);
+        int poolLength = buffer.getInt(20);
+        int keyIndexOffset = buffer.getInt(24);
+        int candidateOffset = buffer.getInt(28);
+
+        long limit = buffer.capacity();
+        if (entryCount < 0 || candidateCount < 0
+                || poolOffset < HEADER_SIZE || poolLength < 0 || (long) poolOffset + poolLength > limit
+                || keyIndexOffset < 0 || (long) keyIndexOffset + (long) entryCount * KEY_RECORD_SIZE > limit
+                || candidateOffset < 0
+                || (long) candidateOffset + (long) candidateCount * CANDIDATE_RECORD_SIZE > limit) {
+            throw new IOException("Corrupt dictionary header");
+        }
+
+        for (int entry = 0; entry < entryCount; entry++) {
+            int record = keyIndexOffset + entry * KEY_RECORD_SIZE;
+            int first = buffer.getInt(record + 8);
+            int count = buffer.getInt(record + 12);
+            if (!isString(buffer.getInt(record), buffer.getInt(record + 4), poolLength, false)
+                    || first < 0 || count < 0 || (long) first + count > candidateCount) {
+                throw new IOException("Corrupt dictionary key record " + entry);
+            }
+        }
+        for (int c = 0; c < candidateCount; c++) {
+            int record = candidateOffset + c * CANDIDATE_RECORD_SIZE;
+            if (!isString(buffer.getInt(record), buffer.getInt(record + 4), poolLength, false)
+                    || !isString(buffer.getInt(record + 8), buffer.getInt(record + 12), poolLength, true)) {
+                throw new IOException("Corrupt dictionary candidate record " + c);
+            }
+        }
+
+        return new MappedDictionary(buffer, entryCount, poolOffset, keyIndexOffset, candidateOffset);
+    }
+
+    /**
+     * Whether offset/length lie within the string pool (length -1 is null where allowed)
+     */
+    private static boolean isString(int offset, int length, int poolLength, boolean nullable) {
+        if (length == -1) {
+            return nullable;
+        }
+        return offset >= 0 && length >= 0 && (long) offset + length <= poolLength;
+    }
+
+    /**
+     * Format version in a file image's header, or -1 if it has no valid header
+     */
+    static int readVersion(ByteBuffer header) {
+        if (header.remaining() < 8 || header.getInt(header.position()) != MAGIC) {
+            return -1;
+        }
+        return header.getInt(header.position() + 4);
+    }
+
+    @Override
+    public boolean contains(CharSequence romaji) {
+        return find(romaji) >= 0;
+    }
+
+    @Override
+    public List<ConversionCandidate> getCandidates(CharSequence romaji) {
+        int entry = find(romaji);
+        if (entry < 0) {
+            return Collections.emptyList();
+        }
+        return materialize(entry);
+    }
+
+    @Override
+    public DictionaryEntry getEntry(String romaji) {
+        int entry = find(romaji);
+        if (entry < 0) {
+            return null;
+        }
+        return new DictionaryEntry(romaji, materialize(entry), 0);
+    }
+
+    @Override
+    public void forEach(Consumer<DictionaryEntry> consumer) {
+        for (int entry = 0; entry < entryCount; entry++) {
+            int record = keyIndexOffset + entry * KEY_RECORD_SIZE;
+            String romaji = string(buffer.getInt(record), buffer.getInt(record + 4));
+            consumer.accept(new DictionaryEntry(romaji, materialize(entry), 0));
+        }
+    }
+
+    @Override
+    public int size() {
+        return entryCount;
+    }
+
+    /**
+     * Binary search over the sorted key index, comparing UTF-8 bytes in place
+     * @return Entry number, or -1
+     */
+    private int find(CharSequence romaji) {
+        byte[] key = romaji.toString().getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = entryCount - 1;
+
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int record = keyIndexOffset + mid * KEY_RECORD_SIZE;
+            int cmp = compareKey(buffer.getInt(record), buffer.getInt(record + 4), key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int compareKey(int offset, int length, byte[] key) {
+        int base = poolOffset + offset;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Integer.compare(buffer.get(base + i) & 0xFF, key[i] & 0xFF);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return Integer.compare(length, key.length);
+    }
+
+    private List<ConversionCandidate> materialize(int entry) {
+        int record = keyIndexOffset + entry * KEY_RECORD_SIZE;
+        int first = buffer.getInt(record + 8);
+        int count = buffer.getInt(record + 12);
+
+        List<ConversionCandidate> candidates = new ArrayList<>(count);
+        for (int c = first; c < first + count; c++) {
+            int cand = candidateOffset + c * CANDIDATE_RECORD_SIZE;
+            String kanji = string(buffer.getInt(cand), buffer.getInt(cand + 4));
+            String hiragana = string(buffer.getInt(cand + 8), buffer.getInt(cand + 12));
+            candidates.add(new ConversionCandidate(kanji, hiragana, buffer.getInt(cand + 16)));
+        }
+        return candidates;
+    }
+
+    private String string(int offset, int length) {
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(poolOffset + offset, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Write entries in the binary format (keys are lowercased, later duplicates replace earlier ones)
+     */
+    public static void write(Path file, Map<String, List<ConversionCandidate>> entries) throws IOException {
+        TreeMap<byte[], List<ConversionCandidate>> sorted = new TreeMap<>(Arrays::compareUnsigned);
+        for (Map.Entry<String, List<ConversionCandidate>> e : entries.entrySet()) {
+            if (e.getKey() != null && e.getValue() != null && !e.getValue().isEmpty()) {
+                sorted.put(e.getKey().toLowerCase().getBytes(StandardCharsets.UTF_8), e.getValue());
+            }
+        }
+
+        ByteArrayOutputStream pool = new ByteArrayOutputStream();
+        Map<String, Integer> poolOffsets = new HashMap<>();
+        ByteBuffer keyIndex = ByteBuffer.allocate(sorted.size() * KEY_RECORD_SIZE);
+        int candidateCount = 0;
+        for (List<ConversionCandidate> candidates : sorted.values()) {
+            candidateCount += candidates.size();
+        }
+        ByteBuffer candidateTable = ByteBuffer.allocate(candidateCount * CANDIDATE_RECORD_SIZE);
+
+        int candidate = 0;
+        for (Map.Entry<byte[], List<ConversionCandidate>> e : sorted.entrySet()) {
+            byte[] key = e.getKey();
+            keyIndex.putInt(pool.size()).putInt(key.length);
+            pool.write(key);
+            keyIndex.putInt(candidate).putInt(e.getValue().size());
+
+            for (ConversionCandidate cand : e.getValue()) {
+                putString(candidateTable, cand.kanji, pool, poolOffsets);
+                putString(candidateTable, cand.hiragana, pool, poolOffsets);
+                candidateTable.putInt(cand.baseScore);
+                candidate++;
+            }
+        }
+
+        int poolOffset = HEADER_SIZE;
+        int keyIndexOffset = poolOffset + pool.size();
+        int candidateOffset = keyIndexOffset + keyIndex.capacity();
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION).putInt(sorted.size()).putInt(candidateCount)
+            .putInt(poolOffset).putInt(pool.size()).putInt(keyIndexOffset).putInt(candidateOffset);
+
+        // Write to a temporary file first so readers never map a half-written dictionary
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(temp))) {
+            out.write(header.array());
+            pool.writeTo(out);
+            out.write(keyIndex.array());
+            out.write(candidateTable.array());
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private static void putString(ByteBuffer table, String value, ByteArrayOutputStream pool,
+                                  Map<String, Integer> poolOffsets) throws IOException {
+        if (value == null) {
+            table.putInt(0).putInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        Integer offset = poolOffsets.get(value);
+        if (offset == null) {
+            offset = pool.size();
+            poolOffsets.put(value, offset);
+            pool.write(bytes);
+        }
+        table.putInt(offset).putInt(bytes.length);
+    }
+}
@@ -0,0 +1,70 @@
+package com.github.waras.romajiswitcher;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Converted chat messages by text and dictionary versions, so repeated messages (spam, macros,
+ * greetings) skip tokenizing, lookups and component building. Each {@link ConvertedMessage} keeps
+ * one finished component per rendering profile, so a cached message serves every viewer.
+ *
+ * Nothing needs to be cleared explicitly: a change of the dictionary or of the kanji map
+ * (/romaji dictionary add|del) bumps its version and misses the old entries, and a player who changes their settings gets a new profile and with it a new component.
+ * Old entries age out by size (TinyLFU, so one-off messages do not push out repeated ones) and by
+ * time-to-live, which also bounds how long a word converted before its Google IME result arrived
+ * stays in its fallback form.
+ */
+public class MessageCache {
+    /**
+     * Dictionary version used for messages converted without the dictionary (legacy converter)
+     */
+    private static final long NO_DICTIONARY = -1;
+
+    /**
+     * Message text with the dictionary and kanji map versions it is converted with
+     */
+    public record Key(String text, long dictionaryVersion, long kanjiMapVersion) {
+    }
+
+    private final BoundedCache<Key, ConvertedMessage> cache;
+    private final Duration timeToLive;
+
+    /**
+     * @param maximumSize Maximum number of cached messages
+     * @param timeToLive How long a converted message is reused
+     */
+    public MessageCache(int maximumSize, Duration timeToLive) {
+        this(maximumSize, timeToLive, System::nanoTime);
+    }
+
+    MessageCache(int maximumSize, Duration timeToLive, LongSupplier nanoClock) {
+        this.cache = new BoundedCache<>(maximumSize, BoundedCache.EvictionPolicy.TINY_LFU,
+            Long.MAX_VALUE, null, nanoClock);
+        this.timeToLive = timeToLive;
+    }
+
+    /**
+     * Key of the text for the current dictionary and kanji map versions. Taken before converting,
+     * so a conversion that overlaps a change is stored under the old versions.
+     * @param dictionary Dictionary the message is converted with, or null for the legacy converter
+     */
+    public static Key key(String text, RomajiDictionary dictionary) {
+        return new Key(text, dictionary != null ? dictionary.getVersion() : NO_DICTIONARY,
+            RomajiConverter.getKanjiMapVersion());
+    }
+
+    /**
+     * Cached conversion, or null
+     */
+    public ConvertedMessage get(Key key) {
+        return cache.get(key);
+    }
+
+    public void put(Key key, ConvertedMessage message) {
+        cache.put(key, message, timeToLive);
+    }
+
+    public BoundedCache<Key, ConvertedMessage> getCache() {
+        return cache;
+    }
+}
@@ -0,0 +1,170 @@
+package com.github.waras.romajiswitcher;
+
+/**
+ * Single-pass chat message lexer.
+ * Emits typed spans as offsets into the original text, so messages are never copied or split.
+ * Only ROMAJI_WORD spans are meant to be converted; everything else is passed through as typed.
+ */
+public class MessageLexer {
+
+    public enum SpanType {
+        ROMAJI_WORD,
+        WHITESPACE,
+        PUNCTUATION,
+        URL,
+        MENTION,
+        COMMAND,
+        NUMBER
+    }
+
+    /**
+     * Receives spans in message order; {@code end} is exclusive
+     */
+    @FunctionalInterface
+    public interface SpanConsumer {
+        void accept(SpanType type, int start, int end);
+    }
+
+    private MessageLexer() {
+    }
+
+    /**
+     * Tokenize text into spans
+     */
+    public static void tokenize(CharSequence text, SpanConsumer consumer) {
+        if (text == null) {
+            return;
+        }
+        tokenize(text, null, consumer);
+    }
+
+    /**
+     * Tokenize a pre-scanned message; runs of ASCII word characters and whitespace are skipped
+     * using the scan's bitmasks
+     */
+    public static void tokenize(MessageScan scan, SpanConsumer consumer) {
+        tokenize(scan.getText(), scan, consumer);
+    }
+
+    private static void tokenize(CharSequence text, MessageScan scan, SpanConsumer consumer) {
+
+        int length = text.length();
+        int i = 0;
+
+        while (i < length) {
+            char ch = text.charAt(i);
+            int start = i;
+            boolean tokenStart = i == 0 || Character.isWhitespace(text.charAt(i - 1));
+
+            if (Character.isWhitespace(ch)) {
+                i = skipWhitespace(text, scan, i + 1, length);
+                consumer.accept(SpanType.WHITESPACE, start, i);
+            } else if (tokenStart && isUrlStart(text, i, length)) {
+                i = skipToWhitespace(text, i, length);
+                consumer.accept(SpanType.URL, start, i);
+            } else if (tokenStart && ch == '@' && i + 1 < length && isNameChar(text.charAt(i + 1))) {
+                i = i + 1;
+                while (i < length && isNameChar(text.charAt(i))) {
+                    i++;
+                }
+                consumer.accept(SpanType.MENTION, start, i);
+            } else if (i == 0 && ch == '/' && length > 1 && Character.isLetter(text.charAt(1))) {
+                i = skipToWhitespace(text, i, length);
+                consumer.accept(SpanType.COMMAND, start, i);
+            } else if (isDigit(ch)) {
+                i = i + 1;
+                while (i < length) {
+                    char c = text.charAt(i);
+                    if (isDigit(c) || ((c == '.' || c == ',') && i + 1 < length && isDigit(text.charAt(i + 1)))) {
+                        i++;
+                    } else {
+                        break;
+                    }
+                }
+                consumer.accept(SpanType.NUMBER, start, i);
+            } else if (isWordChar(ch)) {
+                i = skipWord(text, scan, i + 1, length);
+                consumer.accept(SpanType.ROMAJI_WORD, start, i);
+            } else {
+                i = i + 1;
+                while (i < length && isPunctuation(text.charAt(i))) {
+                    i++;
+                }
+                consumer.accept(SpanType.PUNCTUATION, start, i);
+            }
+        }
+    }
+
+    /**
+     * Characters that belong to a convertible word (letters, hyphen, apostrophe)
+     */
+    public static boolean isWordChar(char ch) {
+        if (ch < 0x80) {
+            return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || ch == '-' || ch == '\'';
+        }
+        return Character.isLetter(ch);
+    }
+
+    private static boolean isPunctuation(char ch) {
+        return !Character.isWhitespace(ch) && !isWordChar(ch) && !isDigit(ch);
+    }
+
+    private static boolean isDigit(char ch) {
+        return ch >= '0' && ch <= '9';
+    }
+
+    private static boolean isNameChar(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || isDigit(ch) || ch == '_';
+    }
+
+    private static boolean isUrlStart(CharSequence text, int i, int length) {
+        return startsWithIgnoreCase(text, i, length, "http://")
+                || startsWithIgnoreCase(text, i, length, "https://")
+                || startsWithIgnoreCase(text, i, length, "www.");
+    }
+
+    private static boolean startsWithIgnoreCase(CharSequence text, int i, int length, String prefix) {
+        if (length - i < prefix.length()) {
+            return false;
+        }
+        for (int k = 0; k < prefix.length(); k++) {
+            if (RomajiTrie.lower(text.charAt(i + k)) != prefix.charAt(k)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int skipWord(CharSequence text, MessageScan scan, int i, int length) {
+        while (i < length) {
+            if (scan != null && (i = scan.skipAsciiWord(i)) == length) {
+                break;
+            }
+            if (!isWordChar(text.charAt(i))) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipWhitespace(CharSequence text, MessageScan scan, int i, int length) {
+        while (i < length) {
+            if (scan != null && (i = scan.skipAsciiWhitespace(i)) == length) {
+                break;
+            }
+            if (!Character.isWhitespace(text.charAt(i))) {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipToWhitespace(CharSequence text, int i, int length) {
+        while (i < length && !Character.isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+}
@@ -0,0 +1,120 @@
+package com.github.waras.romajiswitcher;
+
+/**
+ * Result of a {@link TextScanner} pass over a message: where the first Japanese character is, and
+ * bitmasks of the ASCII word characters (letters, '-', '\'') and ASCII whitespace. The lexer skips
+ * runs of either with one bit scan per 64 chars; non-ASCII chars are not in either mask and are
+ * classified by the lexer as before.
+ */
+public final class MessageScan {
+    private static final TextScanner SCANNER = loadScanner();
+
+    private final CharSequence text;
+    private final int firstJapanese;
+    private final long[] wordChars;
+    private final long[] whitespace;
+
+    MessageScan(CharSequence text, int firstJapanese, long[] wordChars, long[] whitespace) {
+        this.text = text;
+        this.firstJapanese = firstJapanese;
+        this.wordChars = wordChars;
+        this.whitespace = whitespace;
+    }
+
+    /**
+     * Scan with the best available scanner
+     */
+    public static MessageScan of(CharSequence text) {
+        return SCANNER.scan(text);
+    }
+
+    /**
+     * The Vector API scanner when jdk.incubator.vector is available (--add-modules), else the scalar one
+     */
+    public static TextScanner scanner() {
+        return SCANNER;
+    }
+
+    private static TextScanner loadScanner() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            try {
+                return (TextScanner) Class.forName("com.github.waras.romajiswitcher.VectorTextScanner")
+                    .getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException | LinkageError e) {
+                System.err.println("Vector API unavailable, using scalar message scan: " + e);
+            }
+        }
+        return new ScalarTextScanner();
+    }
+
+    public CharSequence getText() {
+        return text;
+    }
+
+    public boolean containsJapanese() {
+        return firstJapanese >= 0;
+    }
+
+    /**
+     * Index of the first kanji, hiragana or katakana character, or -1
+     */
+    public int getFirstJapanese() {
+        return firstJapanese;
+    }
+
+    public boolean isAsciiWordChar(int index) {
+        return (wordChars[index >>> 6] & (1L << index)) != 0;
+    }
+
+    public boolean isAsciiWhitespace(int index) {
+        return (whitespace[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * End of the run of ASCII word characters starting at index (index itself if there is none)
+     */
+    public int skipAsciiWord(int index) {
+        return skip(wordChars, index);
+    }
+
+    /**
+     * End of the run of ASCII whitespace starting at index (index itself if there is none)
+     */
+    public int skipAsciiWhitespace(int index) {
+        return skip(whitespace, index);
+    }
+
+    private int skip(long[] mask, int index) {
+        int length = text.length();
+        int word = index >>> 6;
+        if (word >= mask.length) {
+            return index;
+        }
+        // Find the first clear bit at or after index
+        long clear = ~mask[word] & (-1L << index);
+        while (clear == 0) {
+            if (++word == mask.length) {
+                return length;
+            }
+            clear = ~mask[word];
+        }
+        return Math.min(length, (word << 6) + Long.numberOfTrailingZeros(clear));
+    }
+
+    static int words(int length) {
+        return (length + 63) >>> 6;
+    }
+
+    static boolean isJapanese(char ch) {
+        // Hiragana U+3040-U+309F, katakana U+30A0-U+30FF, kanji U+4E00-U+9FFF
+        return (ch >= 0x3040 && ch <= 0x30FF) || (ch >= 0x4E00 && ch <= 0x9FFF);
+    }
+
+    static boolean isAsciiWordChar(char ch) {
+        return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || ch == '-' || ch == '\'';
+    }
+
+    static boolean isAsciiWhitespace(char ch) {
+        return ch == ' ' || (ch >= 0x09 && ch <= 0x0D) || (ch >= 0x1C && ch <= 0x1F);
+    }
+}
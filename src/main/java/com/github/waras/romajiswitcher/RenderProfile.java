@@ -0,0 +1,65 @@
+package com.github.waras.romajiswitcher;
+
+import net.kyori.adventure.text.format.Style;
+
+/**
+ * Immutable rendering settings of one player: whether their messages are converted, whether they
+ * see the romaji in parentheses, and the prebuilt styles for the Japanese text and the romaji.
+ * Built by {@link UserPreferences} when the settings change, so chat reads it without any lookup.
+ */
+public final class RenderProfile {
+    /**
+     * Profile of players who never changed their settings
+     */
+    public static final RenderProfile DEFAULT = of(new UserPreferences.UserSettings());
+
+    private final boolean enabled;
+    private final boolean showRomaji;
+    private final String japaneseColor;
+    private final String romajiColor;
+    private final Style japaneseStyle;
+    private final Style romajiStyle;
+
+    private RenderProfile(boolean enabled, boolean showRomaji, String japaneseColor, String romajiColor) {
+        this.enabled = enabled;
+        this.showRomaji = showRomaji;
+        this.japaneseColor = japaneseColor;
+        this.romajiColor = romajiColor;
+        this.japaneseStyle = ColorManager.getStyle(japaneseColor);
+        this.romajiStyle = ColorManager.getStyle(romajiColor);
+    }
+
+    /**
+     * Snapshot of a player's settings
+     */
+    static RenderProfile of(UserPreferences.UserSettings settings) {
+        return new RenderProfile(settings.enabled, settings.showRomaji, settings.japaneseColor, settings.romajiColor);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Whether this player sees the romaji in parentheses after converted words
+     */
+    public boolean isShowRomaji() {
+        return showRomaji;
+    }
+
+    public String getJapaneseColor() {
+        return japaneseColor;
+    }
+
+    public String getRomajiColor() {
+        return romajiColor;
+    }
+
+    public Style getJapaneseStyle() {
+        return japaneseStyle;
+    }
+
+    public Style getRomajiStyle() {
+        return romajiStyle;
+    }
+}
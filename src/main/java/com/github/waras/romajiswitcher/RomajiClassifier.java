@@ -0,0 +1,183 @@
+package com.github.waras.romajiswitcher;
+
+import java.util.*;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Decides whether chat words and messages are romaji, before any conversion work.
+ *
+ * Words are checked against a character-bigram model of romaji phonotactics built from the romaji
+ * table: which letters may start or end a word and which may follow each other (within a syllable,
+ * across syllables, and in doubled consonants). A word with any transition romaji never has
+ * ("gg", "lol", "minecraft") would only turn into garbled kana, so it is left as typed; so are
+ * common English words that happen to fit the model. A message is converted only if enough of its
+ * letters are in romaji words. The model check runs over the original text without allocating.
+ */
+public class RomajiClassifier {
+    private static final int BOUNDARY = 26;
+    /** Characters romaji never uses; no transition to or from them is legal */
+    private static final int UNKNOWN = 27;
+    private static final int SYMBOLS = 28;
+
+    /**
+     * English chat words that are also valid romaji spellings but rarely meant as Japanese
+     */
+    private static final Set<String> ENGLISH_WORDS = Set.of(
+        "hello", "here", "there", "where", "were", "one", "gone", "done", "none", "some", "more",
+        "time", "game", "home", "name", "same", "came", "nine", "mine", "fine", "line", "tree",
+        "see", "bye", "bro", "pro", "noob", "zoo", "too", "haha", "hahaha", "okay"
+    );
+
+    private final boolean[][] legal = new boolean[SYMBOLS][SYMBOLS];
+    private final double minimumRomajiShare;
+
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder skippedMessages = new LongAdder();
+    private final LongAdder romajiWords = new LongAdder();
+    private final LongAdder skippedWords = new LongAdder();
+
+    /**
+     * Classifier for the converter's romaji table
+     * @param minimumRomajiShare Share of a message's letters that must be in romaji words (0-1)
+     */
+    public RomajiClassifier(double minimumRomajiShare) {
+        this(RomajiConverter.getRomajiSyllables(), RomajiConverter.getSokuonOnsets(), minimumRomajiShare);
+    }
+
+    /**
+     * @param syllables Romaji spellings of kana (e.g. "ka", "shi", "n")
+     * @param sokuonOnsets Syllables whose first consonant may be doubled (っ)
+     */
+    RomajiClassifier(Collection<String> syllables, Collection<String> sokuonOnsets, double minimumRomajiShare) {
+        this.minimumRomajiShare = minimumRomajiShare;
+
+        boolean[] starts = new boolean[SYMBOLS];
+        boolean[] ends = new boolean[SYMBOLS];
+        for (String syllable : syllables) {
+            starts[index(syllable.charAt(0))] = true;
+            ends[index(syllable.charAt(syllable.length() - 1))] = true;
+            for (int i = 1; i < syllable.length(); i++) {
+                legal[index(syllable.charAt(i - 1))][index(syllable.charAt(i))] = true;
+            }
+        }
+        // Any syllable may follow any other; words start and end on syllable edges
+        for (int last = 0; last < BOUNDARY; last++) {
+            for (int first = 0; first < BOUNDARY; first++) {
+                legal[last][first] |= ends[last] && starts[first];
+            }
+            legal[BOUNDARY][last] = starts[last];
+            legal[last][BOUNDARY] = ends[last];
+        }
+        for (String onset : sokuonOnsets) {
+            int first = index(onset.charAt(0));
+            legal[first][first] = true;
+        }
+    }
+
+    /**
+     * Share of the word's letter transitions (including word start and end) that romaji allows.
+     * Apostrophes and hyphens split the word ("kon'nichiwa", "su-pa-").
+     */
+    public double score(CharSequence text, int start, int end) {
+        int total = 0;
+        int allowed = 0;
+        int previous = BOUNDARY;
+        for (int i = start; i <= end; i++) {
+            int current = i == end ? BOUNDARY : symbol(text.charAt(i));
+            if (previous == BOUNDARY && current == BOUNDARY) {
+                continue;
+            }
+            total++;
+            if (legal[previous][current]) {
+                allowed++;
+            }
+            previous = current;
+        }
+        return total == 0 ? 0 : (double) allowed / total;
+    }
+
+    /**
+     * Whether the word at [start, end) of text is romaji: every transition fits and it is not
+     * a common English word
+     */
+    public boolean isRomajiWord(CharSequence text, int start, int end) {
+        return score(text, start, end) == 1.0 && !isEnglishWord(text, start, end);
+    }
+
+    public boolean isRomajiWord(String word) {
+        return isRomajiWord(word, 0, word.length());
+    }
+
+    private static boolean isEnglishWord(CharSequence text, int start, int end) {
+        if (end - start > 6) {
+            return false;
+        }
+        char[] lower = new char[end - start];
+        for (int i = start; i < end; i++) {
+            lower[i - start] = RomajiTrie.lower(text.charAt(i));
+        }
+        return ENGLISH_WORDS.contains(new String(lower));
+    }
+
+    /**
+     * Whether a message should be converted, given the letters in romaji and non-romaji words
+     */
+    public boolean isRomajiMessage(int romajiLetters, int otherLetters) {
+        return romajiLetters > 0 && romajiLetters >= minimumRomajiShare * (romajiLetters + otherLetters);
+    }
+
+    /**
+     * Count the outcome of one message
+     * @param romaji Words passed on to conversion
+     * @param skipped Words left as typed
+     * @param converted Whether the message was converted at all
+     */
+    public void record(int romaji, int skipped, boolean converted) {
+        messages.increment();
+        if (!converted) {
+            skippedMessages.increment();
+        }
+        romajiWords.add(romaji);
+        skippedWords.add(skipped);
+    }
+
+    public long getMessageCount() {
+        return messages.sum();
+    }
+
+    /**
+     * Messages left unconverted because too little of them was romaji
+     */
+    public long getSkippedMessageCount() {
+        return skippedMessages.sum();
+    }
+
+    /**
+     * Words passed on to the dictionary and converter
+     */
+    public long getRomajiWordCount() {
+        return romajiWords.sum();
+    }
+
+    /**
+     * Words left as typed without any dictionary or network lookup
+     */
+    public long getSkippedWordCount() {
+        return skippedWords.sum();
+    }
+
+    /**
+     * Letter index, BOUNDARY for separators, UNKNOWN for anything else
+     */
+    private static int symbol(char ch) {
+        char lower = RomajiTrie.lower(ch);
+        if (lower >= 'a' && lower <= 'z') {
+            return lower - 'a';
+        }
+        return ch == '\'' || ch == '-' ? BOUNDARY : UNKNOWN;
+    }
+
+    private static int index(char ch) {
+        return ch - 'a';
+    }
+}
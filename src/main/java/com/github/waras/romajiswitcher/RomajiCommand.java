@@ -6,6 +6,9 @@ import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import org.jetbrains.annotations.NotNull;
 import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 /**
@@ -16,13 +19,27 @@ import java.util.stream.Collectors;
  *   /romaji dictionary add <romaji> <kanji> - Add dictionary entry
  *   /romaji dictionary del <romaji> - Delete dictionary entry
  *   /romaji dictionary list [page] - List dictionary entries
+ *   /romaji dictionary reload - Rebuild the dictionary from its files
  */
 public class RomajiCommand implements CommandExecutor {
     private final UserPreferences preferences;
+    private final Supplier<RomajiDictionary> dictionary;
+    private final Executor reloadExecutor;
     private static final int ENTRIES_PER_PAGE = 10;
 
     public RomajiCommand(UserPreferences preferences) {
+        this(preferences, () -> null, Runnable::run);
+    }
+
+    /**
+     * @param dictionary Current dictionary (null while loading)
+     * @param reloadExecutor Runs dictionary reloads off the main thread
+     */
+    public RomajiCommand(UserPreferences preferences, Supplier<RomajiDictionary> dictionary,
+                         Executor reloadExecutor) {
         this.preferences = preferences;
+        this.dictionary = dictionary;
+        this.reloadExecutor = reloadExecutor;
     }
 
     @Override
@@ -62,6 +79,10 @@ public class RomajiCommand implements CommandExecutor {
             return handleColorCommand(player, args);
         }
 
+        if (args.length >= 1 && args[0].equalsIgnoreCase("display")) {
+            return handleDisplayCommand(player, args);
+        }
+
         if (args.length >= 1 && args[0].equalsIgnoreCase("dictionary")) {
             return handleDictionaryCommand(player, args);
         }
@@ -72,9 +93,11 @@ public class RomajiCommand implements CommandExecutor {
         player.sendMessage("§e  /romaji - 変換ON/OFF トグル");
         player.sendMessage("§e  /romaji switch on|off - 変換を有効/無効に設定");
         player.sendMessage("§e  /romaji color <色1> <色2> - 色設定");
+        player.sendMessage("§e  /romaji display both|japanese - ローマ字の括弧表示を設定");
         player.sendMessage("§e  /romaji dictionary add <ローマ字> <漢字> - 辞書に追加");
         player.sendMessage("§e  /romaji dictionary del <ローマ字> - 辞書から削除");
         player.sendMessage("§e  /romaji dictionary list [ページ] - 辞書一覧");
+        player.sendMessage("§e  /romaji dictionary reload - 辞書ファイルを再読み込み");
         return true;
     }
 
@@ -103,6 +126,32 @@ public class RomajiCommand implements CommandExecutor {
         }
     }
 
+    /**
+     * How this player sees converted messages: with the romaji in parentheses, or Japanese only
+     */
+    private boolean handleDisplayCommand(Player player, String[] args) {
+        if (args.length < 2) {
+            player.sendMessage("§c使用方法: /romaji display both|japanese");
+            return true;
+        }
+
+        String mode = args[1].toLowerCase();
+
+        if (mode.equals("both")) {
+            preferences.setShowRomaji(player.getUniqueId(), true);
+            player.sendMessage("§a✔ 変換結果の後ろにローマ字を括弧で表示します");
+            return true;
+        } else if (mode.equals("japanese")) {
+            preferences.setShowRomaji(player.getUniqueId(), false);
+            player.sendMessage("§a✔ 変換結果を日本語のみで表示します");
+            return true;
+        } else {
+            player.sendMessage("§c不明なオプション: " + mode);
+            player.sendMessage("§7使用方法: /romaji display both|japanese");
+            return true;
+        }
+    }
+
     private boolean handleColorCommand(Player player, String[] args) {
         if (args.length < 3) {
             player.sendMessage("§c使用方法: /romaji color <日本語色> <ローマ字色>");
@@ -138,6 +187,7 @@ public class RomajiCommand implements CommandExecutor {
             player.sendMessage("§e  /romaji dictionary add <ローマ字> <漢字>");
             player.sendMessage("§e  /romaji dictionary del <ローマ字>");
             player.sendMessage("§e  /romaji dictionary list [ページ]");
+            player.sendMessage("§e  /romaji dictionary reload");
             return true;
         }
 
@@ -149,6 +199,8 @@ public class RomajiCommand implements CommandExecutor {
             return handleDictionaryDel(player, args);
         } else if (action.equals("list")) {
             return handleDictionaryList(player, args);
+        } else if (action.equals("reload")) {
+            return handleDictionaryReload(player);
         } else {
             player.sendMessage("§c不明なアクション: " + action);
             return true;
@@ -196,6 +248,33 @@ public class RomajiCommand implements CommandExecutor {
         return true;
     }
 
+    private boolean handleDictionaryReload(Player player) {
+        if (!player.hasPermission("romajiswitcher.admin")) {
+            player.sendMessage("§cこのコマンドを使用する権限がありません");
+            return true;
+        }
+
+        RomajiDictionary current = dictionary.get();
+        if (current == null) {
+            player.sendMessage("§c辞書はまだ読み込み中です");
+            return true;
+        }
+
+        player.sendMessage("§7辞書を再読み込みしています...");
+        current.reloadAsync(reloadExecutor).whenComplete((snapshot, error) -> {
+            if (error == null) {
+                player.sendMessage("§a✔ 辞書を再読み込みしました §7(v" + snapshot.getVersion() + ", "
+                    + snapshot.size() + " 件, " + snapshot.getLoadTimings().getTotalNanos() / 1_000_000 + " ms)");
+            } else {
+                Throwable cause = error instanceof CompletionException && error.getCause() != null
+                    ? error.getCause() : error;
+                System.err.println("Dictionary reload failed: " + cause.getMessage());
+                player.sendMessage("§c辞書の再読み込みに失敗しました（以前の辞書を使用します）: " + cause.getMessage());
+            }
+        });
+        return true;
+    }
+
     private boolean handleDictionaryList(Player player, String[] args) {
         Map<String, String> entries = RomajiConverter.getKanjiEntries();
         
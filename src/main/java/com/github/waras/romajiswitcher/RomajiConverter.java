@@ -18,9 +18,53 @@ public class RomajiConverter {
     private static final LinkedHashMap<String, String> ROMAJI_MAP = new LinkedHashMap<>();
 
     /**
-     * Kanji mapping for common words (loaded from file or hardcoded)
+     * Romaji sequences that may follow a doubled consonant (sokuon, っ)
      */
-    private static final Map<String, String> KANJI_MAP = new HashMap<>();
+    private static final String[] SOKUON_ONSETS = {
+        "ka", "ki", "ku", "ke", "ko",
+        "ga", "gi", "gu", "ge", "go",
+        "sa", "si", "su", "se", "so",
+        "ta", "ti", "tu", "te", "to",
+        "da", "di", "du", "de", "do",
+        "pa", "pi", "pu", "pe", "po",
+        "ba", "bi", "bu", "be", "bo",
+        "ma", "mi", "mu", "me", "mo",
+        "ha", "hi", "hu", "he", "ho",
+        "na", "ni", "nu", "ne", "no",
+        "ra", "ri", "ru", "re", "ro",
+        "ya", "yu", "yo",
+        "wa", "wo",
+        "tsu", "tsa", "tsi", "tse", "tso",
+        "cha", "chu", "cho",
+        "sha", "shu", "sho",
+        "kya", "kyu", "kyo",
+        "gya", "gyu", "gyo",
+        "nya", "nyu", "nyo",
+        "hya", "hyu", "hyo",
+        "mya", "myu", "myo",
+        "rya", "ryu", "ryo",
+        "pya", "pyu", "pyo",
+        "bya", "byu", "byo"
+    };
+
+    /**
+     * ROMAJI_MAP compiled into a trie at class init (see {@link RomajiTrie})
+     */
+    private static final RomajiTrie ROMAJI_TRIE;
+
+    /**
+     * Kanji mapping for common words (loaded from file or hardcoded).
+     * Copy-on-write: the map is never modified once published, edits swap in a new one.
+     */
+    private static volatile Map<String, String> kanjiMap = Collections.emptyMap();
+    private static final Object KANJI_WRITE_LOCK = new Object();
+    /** Incremented whenever a new kanji map is published */
+    private static volatile long kanjiMapVersion;
+
+    /**
+     * Optional cache of word results keyed by the lowercased word (null = disabled)
+     */
+    private static volatile BoundedCache<String, ConversionResult> wordCache;
 
     static {
         // Initialize basic hiragana mappings (3-char first for priority)
@@ -192,14 +236,39 @@ public class RomajiConverter {
         ROMAJI_MAP.put("e", "え");
         ROMAJI_MAP.put("o", "お");
 
+        ROMAJI_TRIE = RomajiTrie.compile(ROMAJI_MAP, SOKUON_ONSETS);
+
         // Load kanji dictionary
         loadKanjiDictionary();
     }
 
+    /**
+     * Romaji spellings the converter knows, including standalone n
+     */
+    static Set<String> getRomajiSyllables() {
+        Set<String> syllables = new HashSet<>(ROMAJI_MAP.keySet());
+        syllables.add("n");
+        return syllables;
+    }
+
+    /**
+     * Syllables whose first consonant may be doubled into っ (n and y never are)
+     */
+    static List<String> getSokuonOnsets() {
+        List<String> onsets = new ArrayList<>();
+        for (String onset : SOKUON_ONSETS) {
+            if (onset.charAt(0) != 'n' && onset.charAt(0) != 'y') {
+                onsets.add(onset);
+            }
+        }
+        return onsets;
+    }
+
     /**
      * Load kanji dictionary from resources
      */
     private static void loadKanjiDictionary() {
+        Map<String, String> entries = new HashMap<>();
         try {
             InputStream inputStream = RomajiConverter.class.getClassLoader()
                     .getResourceAsStream("kanji_dictionary.txt");
@@ -214,58 +283,62 @@ public class RomajiConverter {
                     }
                     String[] parts = line.split("=", 2);
                     if (parts.length == 2) {
-                        KANJI_MAP.put(parts[0].trim(), parts[1].trim());
+                        entries.put(parts[0].trim(), parts[1].trim());
                     }
                 }
                 reader.close();
             } else {
                 // Fallback: use hardcoded basic kanji
-                loadDefaultKanji();
+                loadDefaultKanji(entries);
             }
         } catch (Exception e) {
             System.err.println("Failed to load kanji dictionary: " + e.getMessage());
-            loadDefaultKanji();
+            loadDefaultKanji(entries);
+        }
+        synchronized (KANJI_WRITE_LOCK) {
+            kanjiMap = Collections.unmodifiableMap(entries);
+            kanjiMapVersion++;
         }
     }
 
     /**
      * Fallback default kanji mappings
      */
-    private static void loadDefaultKanji() {
-        KANJI_MAP.put("arigatou", "有難う");
-        KANJI_MAP.put("arigatai", "有難い");
-        KANJI_MAP.put("osusume", "お勧め");
-        KANJI_MAP.put("sugoi", "凄い");
-        KANJI_MAP.put("mazui", "不味い");
-        KANJI_MAP.put("oishii", "美味しい");
-        KANJI_MAP.put("kawaii", "可愛い");
-        KANJI_MAP.put("atarashii", "新しい");
-        KANJI_MAP.put("furui", "古い");
-        KANJI_MAP.put("okii", "大きい");
-        KANJI_MAP.put("tiisai", "小さい");
-        KANJI_MAP.put("chiisai", "小さい");
-        KANJI_MAP.put("hayai", "速い");
-        KANJI_MAP.put("osoi", "遅い");
-        KANJI_MAP.put("tsuyoi", "強い");
-        KANJI_MAP.put("yowai", "弱い");
-        KANJI_MAP.put("takai", "高い");
-        KANJI_MAP.put("hikui", "低い");
-        KANJI_MAP.put("tokyo", "東京");
-        KANJI_MAP.put("osaka", "大阪");
-        KANJI_MAP.put("kyoto", "京都");
-        KANJI_MAP.put("onegai", "お願い");
-        KANJI_MAP.put("oyasuminasai", "お休みなさい");
-        KANJI_MAP.put("oyasumi", "お休み");
-        KANJI_MAP.put("ohayougozaimasu", "おはようございます");
-        KANJI_MAP.put("ohayou", "おはよう");
-        KANJI_MAP.put("konnichiwa", "こんにちは");
-        KANJI_MAP.put("konbanwa", "こんばんは");
-        KANJI_MAP.put("domo", "どうも");
-        KANJI_MAP.put("arigatougozaimasu", "ありがとうございます");
-        KANJI_MAP.put("gakkou", "学校");
-        KANJI_MAP.put("sensei", "先生");
-        KANJI_MAP.put("gakusei", "学生");
-        KANJI_MAP.put("daigaku", "大学");
+    private static void loadDefaultKanji(Map<String, String> entries) {
+        entries.put("arigatou", "有難う");
+        entries.put("arigatai", "有難い");
+        entries.put("osusume", "お勧め");
+        entries.put("sugoi", "凄い");
+        entries.put("mazui", "不味い");
+        entries.put("oishii", "美味しい");
+        entries.put("kawaii", "可愛い");
+        entries.put("atarashii", "新しい");
+        entries.put("furui", "古い");
+        entries.put("okii", "大きい");
+        entries.put("tiisai", "小さい");
+        entries.put("chiisai", "小さい");
+        entries.put("hayai", "速い");
+        entries.put("osoi", "遅い");
+        entries.put("tsuyoi", "強い");
+        entries.put("yowai", "弱い");
+        entries.put("takai", "高い");
+        entries.put("hikui", "低い");
+        entries.put("tokyo", "東京");
+        entries.put("osaka", "大阪");
+        entries.put("kyoto", "京都");
+        entries.put("onegai", "お願い");
+        entries.put("oyasuminasai", "お休みなさい");
+        entries.put("oyasumi", "お休み");
+        entries.put("ohayougozaimasu", "おはようございます");
+        entries.put("ohayou", "おはよう");
+        entries.put("konnichiwa", "こんにちは");
+        entries.put("konbanwa", "こんばんは");
+        entries.put("domo", "どうも");
+        entries.put("arigatougozaimasu", "ありがとうございます");
+        entries.put("gakkou", "学校");
+        entries.put("sensei", "先生");
+        entries.put("gakusei", "学生");
+        entries.put("daigaku", "大学");
     }
 
     /**
@@ -293,29 +366,29 @@ public class RomajiConverter {
             return new ConversionResult("", "");
         }
 
-        StringBuilder japaneseText = new StringBuilder();
-        StringBuilder originalText = new StringBuilder();
-
-        String[] words = input.split("(?=\\s)|(?<=\\s)");
+        StringBuilder japaneseText = new StringBuilder(input.length());
+        StringBuilder originalText = new StringBuilder(input.length());
 
-        for (String word : words) {
-            if (word.isEmpty()) {
-                continue;
-            }
-
-            if (word.charAt(0) == ' ') {
-                japaneseText.append(' ');
-                originalText.append(' ');
-            } else {
-                ConversionResult wordResult = convertWord(word);
-                japaneseText.append(wordResult.japanese);
-                originalText.append(wordResult.originalRomaji);
-            }
+        try {
+            convert(input, japaneseText, originalText);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
 
         return new ConversionResult(japaneseText.toString(), originalText.toString());
     }
 
+    /**
+     * Convert text span by span into caller-supplied outputs.
+     * Only romaji words are converted; URLs, mentions, commands, numbers,
+     * punctuation and whitespace are copied through unchanged.
+     */
+    public static void convert(CharSequence input, Appendable japanese, Appendable romaji) throws IOException {
+        SpanWriter writer = new SpanWriter(input, japanese, romaji, null, null);
+        MessageLexer.tokenize(input, writer);
+        writer.rethrow();
+    }
+
     /**
      * Convert single word with kanji support
      */
@@ -323,193 +396,253 @@ public class RomajiConverter {
         if (word == null || word.isEmpty()) {
             return new ConversionResult("", "");
         }
+        return convertWord(word, 0, word.length());
+    }
 
-        String lowerWord = word.toLowerCase();
+    /**
+     * Convert the word at [start, end) of text with kanji support
+     */
+    public static ConversionResult convertWord(CharSequence text, int start, int end) {
+        if (start >= end) {
+            return new ConversionResult("", "");
+        }
 
+        String lowerWord = lowerKey(text, start, end);
+
+        // Only all-lowercase words are cached: their romaji echo is the key itself
+        BoundedCache<String, ConversionResult> cache = wordCache;
+        if (cache == null || !isLowerCase(text, start, end)) {
+            return convertUncached(text, start, end, lowerWord);
+        }
+
+        ConversionResult cached = cache.get(lowerWord);
+        if (cached != null) {
+            return cached;
+        }
+
+        long generation = cache.generation();
+        ConversionResult result = convertUncached(text, start, end, lowerWord);
+        cache.putIfGeneration(lowerWord, result, generation);
+        return result;
+    }
+
+    private static ConversionResult convertUncached(CharSequence text, int start, int end, String lowerWord) {
         // Check kanji dictionary first
-        if (KANJI_MAP.containsKey(lowerWord)) {
-            return new ConversionResult(KANJI_MAP.get(lowerWord), word);
+        String kanji = kanjiMap.get(lowerWord);
+        if (kanji != null) {
+            return new ConversionResult(kanji, text.subSequence(start, end).toString());
         }
 
         // Fall back to character-by-character conversion
-        return convertWordWithResult(lowerWord, word);
+        StringBuilder japanese = new StringBuilder(end - start);
+        StringBuilder romaji = new StringBuilder(end - start);
+        try {
+            appendKana(text, start, end, japanese, romaji);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return new ConversionResult(japanese.toString(), romaji.toString());
     }
 
     /**
-     * Convert word character-by-character while preserving original case
+     * Convert the word at [start, end) of text with kanji support, writing into the outputs
      */
-    private static ConversionResult convertWordWithResult(String lowerWord, String originalWord) {
-        StringBuilder japanese = new StringBuilder();
-        StringBuilder romaji = new StringBuilder();
-        int i = 0;
-
-        while (i < lowerWord.length()) {
-            char current = lowerWord.charAt(i);
+    public static void convertWord(CharSequence text, int start, int end,
+                                   Appendable japanese, Appendable romaji) throws IOException {
+        if (start >= end) {
+            return;
+        }
 
-            // Try 3-character match first
-            if (i + 3 <= lowerWord.length()) {
-                String threeChar = lowerWord.substring(i, i + 3);
-                if (ROMAJI_MAP.containsKey(threeChar)) {
-                    japanese.append(ROMAJI_MAP.get(threeChar));
-                    romaji.append(originalWord.substring(i, i + 3).toLowerCase());
-                    i += 3;
-                    continue;
-                }
-            }
+        if (wordCache != null) {
+            ConversionResult result = convertWord(text, start, end);
+            japanese.append(result.japanese);
+            romaji.append(result.originalRomaji);
+            return;
+        }
 
-            // Try 2-character match
-            if (i + 2 <= lowerWord.length()) {
-                String twoChar = lowerWord.substring(i, i + 2);
-                if (ROMAJI_MAP.containsKey(twoChar)) {
-                    // Special handling for 'n' + vowel/y: only match if NOT followed by another vowel/y
-                    // This distinguishes between "na" (な) and "n" + vowel (ん + vowel)
-                    if (twoChar.charAt(0) == 'n' && "aiueoy".indexOf(twoChar.charAt(1)) >= 0) {
-                        // This is n + vowel (na/ni/nu/ne/no)
-                        // Check if next char exists and is NOT a vowel/y (which would make it standalone n)
-                        if (i + 2 < lowerWord.length()) {
-                            char nextChar = lowerWord.charAt(i + 2);
-                            if ("aiueoy".indexOf(nextChar) >= 0) {
-                                // Next char is vowel/y, so this n is standalone (ん)
-                                // Fall through to handle single 'n'
-                            } else {
-                                // Next char is consonant or nothing, so na/ni/nu/ne/no is intended
-                                japanese.append(ROMAJI_MAP.get(twoChar));
-                                romaji.append(originalWord.substring(i, i + 2).toLowerCase());
-                                i += 2;
-                                continue;
-                            }
-                        } else {
-                            // End of word, so na/ni/nu/ne/no is intended
-                            japanese.append(ROMAJI_MAP.get(twoChar));
-                            romaji.append(originalWord.substring(i, i + 2).toLowerCase());
-                            i += 2;
-                            continue;
-                        }
-                    } else {
-                        // Not n + vowel, match normally
-                        japanese.append(ROMAJI_MAP.get(twoChar));
-                        romaji.append(originalWord.substring(i, i + 2).toLowerCase());
-                        i += 2;
-                        continue;
-                    }
-                }
-            }
+        String kanji = kanjiMap.get(lowerKey(text, start, end));
+        if (kanji != null) {
+            japanese.append(kanji);
+            romaji.append(text, start, end);
+            return;
+        }
 
-            // Try 1-character match
-            if (ROMAJI_MAP.containsKey(String.valueOf(current))) {
-                if (current != 'n') {
-                    // Regular single character (not 'n')
-                    japanese.append(ROMAJI_MAP.get(String.valueOf(current)));
-                    romaji.append(originalWord.charAt(i));
-                    i++;
-                } else {
-                    // For 'n' check - never gets here since 'n' is not in ROMAJI_MAP as single char
-                    i++;
-                }
-                continue;
-            }
+        appendKana(text, start, end, japanese, romaji);
+    }
 
-            // Handle 'n' specially (standalone ん or part of na/ni/nu/ne/no already handled above)
-            if (current == 'n') {
-                japanese.append("ん");
-                romaji.append(originalWord.charAt(i));
+    /**
+     * Convert word character-by-character while preserving original case.
+     * Single pass over the compiled trie straight into the outputs.
+     */
+    private static void appendKana(CharSequence text, int start, int end,
+                                   Appendable japanese, Appendable romaji) throws IOException {
+        int i = start;
+
+        while (i < end) {
+            int state = ROMAJI_TRIE.match(text, i, end);
+
+            if (state == RomajiTrie.NO_MATCH) {
+                // Unmatched character - keep as is
+                char current = text.charAt(i);
+                japanese.append(RomajiTrie.lower(current));
+                romaji.append(current);
                 i++;
                 continue;
             }
 
-            // Handle sokuon (促音) - doubled consonant
-            if (i + 1 < lowerWord.length() && current == lowerWord.charAt(i + 1) && current != 'n' && current != 'y') {
-                String remaining = lowerWord.substring(i + 1);
-                if (canStartWithConsonant(remaining)) {
-                    japanese.append("っ");
-                    romaji.append(originalWord.charAt(i));
-                    i++;
-                    continue;
+            int matched = ROMAJI_TRIE.length(state);
+            japanese.append(ROMAJI_TRIE.output(state));
+            if (matched == 1) {
+                // Vowels, standalone ん and っ keep the original case
+                romaji.append(text.charAt(i));
+            } else {
+                for (int k = i; k < i + matched; k++) {
+                    romaji.append(RomajiTrie.lower(text.charAt(k)));
                 }
             }
+            i += matched;
+        }
+    }
 
-            // Unmatched character - keep as is
-            japanese.append(current);
-            romaji.append(originalWord.charAt(i));
-            i++;
+    private static String lowerKey(CharSequence text, int start, int end) {
+        char[] key = new char[end - start];
+        for (int i = start; i < end; i++) {
+            key[i - start] = RomajiTrie.lower(text.charAt(i));
         }
+        return new String(key);
+    }
 
-        return new ConversionResult(japanese.toString(), romaji.toString());
+    private static boolean isLowerCase(CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (RomajiTrie.lower(c) != c) {
+                return false;
+            }
+        }
+        return true;
     }
 
-    private static boolean isVowelOrY(char c) {
-        return "aiueoy".indexOf(c) >= 0;
+    /**
+     * Enable the word cache, or disable it with a size of 0
+     * @param maximumSize Maximum number of cached words
+     * @param policy Eviction policy
+     */
+    public static void configureWordCache(int maximumSize, BoundedCache.EvictionPolicy policy) {
+        wordCache = maximumSize > 0 ? new BoundedCache<>(maximumSize, policy) : null;
     }
 
     /**
-     * Check if a romaji sequence can start with the next consonant
+     * Get the word cache (for statistics), or null if disabled
      */
-    private static boolean canStartWithConsonant(String remaining) {
-        if (remaining.isEmpty()) {
-            return false;
+    public static BoundedCache<String, ConversionResult> getWordCache() {
+        return wordCache;
+    }
+
+    private static void invalidateWordCache() {
+        BoundedCache<String, ConversionResult> cache = wordCache;
+        if (cache != null) {
+            cache.clear();
+        }
+    }
+
+    /**
+     * Writes lexer spans into the outputs, converting romaji words only
+     */
+    private static final class SpanWriter implements MessageLexer.SpanConsumer {
+        private final CharSequence text;
+        private final Appendable japanese;
+        private final Appendable romaji;
+        private final RomajiDictionary dictionary;
+        private final ConversionStats stats;
+        private IOException failure;
+
+        SpanWriter(CharSequence text, Appendable japanese, Appendable romaji,
+                   RomajiDictionary dictionary, ConversionStats stats) {
+            this.text = text;
+            this.japanese = japanese;
+            this.romaji = romaji;
+            this.dictionary = dictionary;
+            this.stats = stats;
         }
 
-        String[] patterns = {
-            "ka", "ki", "ku", "ke", "ko",
-            "ga", "gi", "gu", "ge", "go",
-            "sa", "si", "su", "se", "so",
-            "ta", "ti", "tu", "te", "to",
-            "da", "di", "du", "de", "do",
-            "pa", "pi", "pu", "pe", "po",
-            "ba", "bi", "bu", "be", "bo",
-            "ma", "mi", "mu", "me", "mo",
-            "ha", "hi", "hu", "he", "ho",
-            "na", "ni", "nu", "ne", "no",
-            "ra", "ri", "ru", "re", "ro",
-            "ya", "yu", "yo",
-            "wa", "wo",
-            "tsu", "tsa", "tsi", "tse", "tso",
-            "cha", "chu", "cho",
-            "sha", "shu", "sho",
-            "kya", "kyu", "kyo",
-            "gya", "gyu", "gyo",
-            "nya", "nyu", "nyo",
-            "hya", "hyu", "hyo",
-            "mya", "myu", "myo",
-            "rya", "ryu", "ryo",
-            "pya", "pyu", "pyo",
-            "bya", "byu", "byo"
-        };
-
-        for (String pattern : patterns) {
-            if (remaining.startsWith(pattern)) {
-                return true;
+        @Override
+        public void accept(MessageLexer.SpanType type, int start, int end) {
+            if (failure != null) {
+                return;
+            }
+            try {
+                if (type != MessageLexer.SpanType.ROMAJI_WORD) {
+                    japanese.append(text, start, end);
+                    romaji.append(text, start, end);
+                } else if (dictionary == null) {
+                    convertWord(text, start, end, japanese, romaji);
+                } else {
+                    ConversionResult wordResult = convertWordWithDictionary(
+                        text.subSequence(start, end).toString(), dictionary, stats);
+                    japanese.append(wordResult.japanese);
+                    romaji.append(wordResult.originalRomaji);
+                }
+            } catch (IOException e) {
+                failure = e;
+            }
+        }
+
+        void rethrow() throws IOException {
+            if (failure != null) {
+                throw failure;
             }
         }
-        return false;
     }
 
     /**
      * Add a custom kanji entry to the dictionary
      */
     public static void addKanjiEntry(String romaji, String kanji) {
-        KANJI_MAP.put(romaji.toLowerCase(), kanji);
+        synchronized (KANJI_WRITE_LOCK) {
+            Map<String, String> updated = new HashMap<>(kanjiMap);
+            updated.put(romaji.toLowerCase(), kanji);
+            kanjiMap = Collections.unmodifiableMap(updated);
+            kanjiMapVersion++;
+        }
+        invalidateWordCache();
     }
 
     /**
      * Remove a kanji entry from the dictionary
      */
     public static boolean removeKanjiEntry(String romaji) {
-        return KANJI_MAP.remove(romaji.toLowerCase()) != null;
+        boolean removed;
+        synchronized (KANJI_WRITE_LOCK) {
+            Map<String, String> updated = new HashMap<>(kanjiMap);
+            removed = updated.remove(romaji.toLowerCase()) != null;
+            if (removed) {
+                kanjiMap = Collections.unmodifiableMap(updated);
+                kanjiMapVersion++;
+            }
+        }
+        invalidateWordCache();
+        return removed;
+    }
+
+    /**
+     * Version of the kanji map; changes with every add or remove
+     */
+    public static long getKanjiMapVersion() {
+        return kanjiMapVersion;
     }
 
     /**
      * Get all kanji entries
      */
     public static Map<String, String> getKanjiEntries() {
-        return new HashMap<>(KANJI_MAP);
+        return new TreeMap<>(kanjiMap);
     }
 
     /**
      * Get a specific kanji entry
      */
     public static String getKanjiEntry(String romaji) {
-        return KANJI_MAP.get(romaji.toLowerCase());
+        return kanjiMap.get(romaji.toLowerCase());
     }
 
     /**
@@ -520,17 +653,8 @@ public class RomajiConverter {
             return false;
         }
         
-        for (char c : text.toCharArray()) {
-            // Kanji: U+4E00 ~ U+9FFF
-            // Hiragana: U+3040 ~ U+309F
-            // Katakana: U+30A0 ~ U+30FF
-            if ((c >= 0x4E00 && c <= 0x9FFF) ||
-                (c >= 0x3040 && c <= 0x309F) ||
-                (c >= 0x30A0 && c <= 0x30FF)) {
-                return true;
-            }
-        }
-        return false;
+        // Kanji: U+4E00 ~ U+9FFF, Hiragana: U+3040 ~ U+309F, Katakana: U+30A0 ~ U+30FF
+        return MessageScan.scanner().indexOfJapanese(text) >= 0;
     }
 
     /**
@@ -539,6 +663,15 @@ public class RomajiConverter {
      * Fallback: If dictionary is not available, uses the original convertWord method.
      */
     public static ConversionResult convertWordWithDictionary(String word, RomajiDictionary dictionary, ConversionStats stats) {
+        return convertWordWithDictionary(word, dictionary, stats, Deadline.NONE);
+    }
+
+    /**
+     * {@link #convertWordWithDictionary(String, RomajiDictionary, ConversionStats)} within a message deadline:
+     * past it, words without a local result fall back to the rule-based conversion
+     */
+    public static ConversionResult convertWordWithDictionary(String word, RomajiDictionary dictionary,
+                                                             ConversionStats stats, Deadline deadline) {
         if (word == null || word.isEmpty()) {
             return new ConversionResult("", "");
         }
@@ -548,19 +681,51 @@ public class RomajiConverter {
             return convertWord(word);
         }
 
-        String lowerWord = word.toLowerCase();
+        // Pass the word through the dictionary's tiers
+        ConversionPipeline.Outcome outcome = dictionary.convert(word, deadline);
 
-        // Get the best candidate from the dictionary
-        ConversionCandidate candidate = dictionary.getBestCandidate(lowerWord);
+        if (outcome == null) {
+            return convertWord(word);
+        }
+        if (outcome.candidate() instanceof KanaCandidate kana) {
+            // The kana tier already converted the word as typed, with its normalized romaji echo
+            return kana.result;
+        }
 
-        if (candidate != null) {
-            // Use the best representation from the candidate
-            String japaneseText = candidate.getBestRepresentation();
-            return new ConversionResult(japaneseText, word);
+        // Use the best representation from the candidate
+        String japaneseText = outcome.candidate().getBestRepresentation();
+        return new ConversionResult(japaneseText, word);
+    }
+
+    /**
+     * Rule-based kana tier: converts words the dictionary does not know with the legacy kanji map
+     * and the romaji table
+     */
+    static final class RuleBasedBackend implements ConversionBackend {
+        @Override
+        public String getName() {
+            return RomajiDictionary.TIER_KANA;
         }
 
-        // Fallback to original system if no dictionary entry found
-        return convertWord(word);
+        @Override
+        public Result lookup(Query query, long budgetNanos) {
+            if (query.reading() != null) {
+                return null;
+            }
+            return Result.confident(new KanaCandidate(convertWord(query.word())));
+        }
+    }
+
+    /**
+     * Kana tier candidate that keeps the full conversion result, so callers need not convert again
+     */
+    static final class KanaCandidate extends ConversionCandidate {
+        final ConversionResult result;
+
+        KanaCandidate(ConversionResult result) {
+            super(result.japanese, null, 0);
+            this.result = result;
+        }
     }
 
     /**
@@ -576,26 +741,45 @@ public class RomajiConverter {
             return convert(input);
         }
 
-        StringBuilder japaneseText = new StringBuilder();
-        StringBuilder originalText = new StringBuilder();
+        StringBuilder japaneseText = new StringBuilder(input.length());
+        StringBuilder originalText = new StringBuilder(input.length());
 
-        String[] words = input.split("(?=\\s)|(?<=\\s)");
+        try {
+            convertWithDictionary(input, dictionary, stats, japaneseText, originalText);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
 
-        for (String word : words) {
-            if (word.isEmpty()) {
-                continue;
-            }
+        return new ConversionResult(japaneseText.toString(), originalText.toString());
+    }
 
-            if (word.charAt(0) == ' ') {
-                japaneseText.append(' ');
-                originalText.append(' ');
-            } else {
-                ConversionResult wordResult = convertWordWithDictionary(word, dictionary, stats);
-                japaneseText.append(wordResult.japanese);
-                originalText.append(wordResult.originalRomaji);
+    /**
+     * Convert text span by span using the dictionary, writing into caller-supplied outputs
+     */
+    public static void convertWithDictionary(CharSequence input, RomajiDictionary dictionary, ConversionStats stats,
+                                             Appendable japanese, Appendable romaji) throws IOException {
+        prefetchGoogleIME(input, dictionary);
+        SpanWriter writer = new SpanWriter(input, japanese, romaji, dictionary, stats);
+        MessageLexer.tokenize(input, writer);
+        writer.rethrow();
+    }
+
+    /**
+     * Look up all romaji words of a message with Google IME in one batched request and wait for it,
+     * so converting the words one by one afterwards needs no further round-trips
+     */
+    public static void prefetchGoogleIME(CharSequence input, RomajiDictionary dictionary) {
+        if (dictionary == null) {
+            return;
+        }
+        List<String> words = new ArrayList<>();
+        MessageLexer.tokenize(input, (type, start, end) -> {
+            if (type == MessageLexer.SpanType.ROMAJI_WORD) {
+                words.add(input.subSequence(start, end).toString());
             }
+        });
+        if (!words.isEmpty()) {
+            dictionary.prefetchGoogleIME(words).join();
         }
-
-        return new ConversionResult(japaneseText.toString(), originalText.toString());
     }
 }
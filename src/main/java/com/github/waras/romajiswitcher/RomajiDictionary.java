@@ -1,199 +1,512 @@
 package com.github.waras.romajiswitcher;
 
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
 import java.io.*;
+import java.net.URL;
+import java.net.URLConnection;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
 
 /**
  * Manages the romanization dictionary with support for:
- * - IPADIC base dictionary (system entries)
- * - User-registered entries (higher priority)
+ * - IPADIC base dictionary (system entries, memory-mapped from ipadic.rjd when available,
+ *   otherwise parsed from JSON into a read-only {@link CompactDictionary})
+ * - User-registered entries (higher priority, kept in an overlay map)
  * - Multiple conversion candidates per romaji
  * - Dynamic scoring based on usage statistics
+ * - Conversion through a {@link ConversionPipeline}: cache, dictionary, learned, remote (Google IME), kana
+ *
+ * Lookups read an immutable {@link DictionarySnapshot} without locking. Edits and reloads build a
+ * new snapshot and swap it in; a reload that fails leaves the previous snapshot serving.
  */
 public class RomajiDictionary {
-    private final Map<String, DictionaryEntry> dictionary;
+    private final AtomicReference<DictionarySnapshot> snapshot = new AtomicReference<>();
+    /**
+     * Serializes writers (edits and the publish step of reloads); readers never take it
+     */
+    private final Object writeLock = new Object();
+    /**
+     * Only one rebuild runs at a time
+     */
+    private final Object reloadLock = new Object();
     private final ConversionStats stats;
+    private final Path dataFolder;
     private final Path dictionaryPath;
     private final GoogleIMEClient googleIME;
+    /** Google IME result per romaji key, computed once for the key's best candidate (least recently used dropped) */
+    private final BoundedCache<String, Enrichment> enrichments =
+        new BoundedCache<>(MAX_ENRICHMENTS, BoundedCache.EvictionPolicy.LRU);
+    private static final int MAX_ENRICHMENTS = 50_000;
+    private static final int REFRESH_BATCH = 32;
+    /** Well below the request burst, so a refresh never starves chat lookups of rate-limit tokens */
+    private static final int REFRESH_MAX_BATCHES = 8;
+    /** Google IME conversions promoted after frequent use; consulted before any request */
+    private final LearnedDictionary learned;
+    private volatile int promoteAfter = DEFAULT_PROMOTE_AFTER;
+    private static final int DEFAULT_PROMOTE_AFTER = 20;
+    private static final int DEFAULT_LEARNED_ENTRIES = 2000;
+    private volatile ConversionPipeline pipeline;
+    private final LongAdder prefetchDeadlineMisses = new LongAdder();
+
+    /** Pipeline tier names, in lookup order */
+    public static final String TIER_CACHE = "cache";
+    public static final String TIER_DICTIONARY = "dictionary";
+    public static final String TIER_LEARNED = "learned";
+    public static final String TIER_REMOTE = "remote";
+    public static final String TIER_KANA = "kana";
+    /**
+     * Modification times of the source files when the current snapshot was built (or last saved)
+     */
+    private volatile Map<Path, FileTime> sourceStamps = Collections.emptyMap();
     private static final String USER_DICT_FILENAME = "user-dictionary.json";
     private static final String IPADIC_RESOURCE = "ipadic-subset.json";
+    private static final String IPADIC_BINARY = "ipadic.rjd";
+    private static final int USER_BASE_SCORE = 1000;
+
+    /**
+     * Files in the data folder that a reload picks up
+     */
+    public static final Set<String> SOURCE_FILES = Set.of(IPADIC_BINARY, IPADIC_RESOURCE, USER_DICT_FILENAME);
     
     /**
      * @param pluginDataFolder Path to the plugin data folder
      * @param stats ConversionStats instance for learning
      */
     public RomajiDictionary(Path pluginDataFolder, ConversionStats stats) {
-        this.dictionary = new ConcurrentHashMap<>();
-        this.stats = stats;
-        this.dictionaryPath = pluginDataFolder.resolve(USER_DICT_FILENAME);
-        this.googleIME = new GoogleIMEClient();
-        
-        // Load dictionaries
-        loadIPADICDictionary();
-        loadUserDictionary();
+        this(pluginDataFolder, stats, new GoogleIMEClient());
     }
 
     /**
-     * Load IPADIC base dictionary from resources
+     * @param googleIME Client of the remote tier (e.g. one pointed at a local stand-in server)
      */
-    private void loadIPADICDictionary() {
+    public RomajiDictionary(Path pluginDataFolder, ConversionStats stats, GoogleIMEClient googleIME) {
+        this.stats = stats;
+        this.dataFolder = pluginDataFolder;
+        this.dictionaryPath = pluginDataFolder.resolve(USER_DICT_FILENAME);
+        this.googleIME = googleIME;
+        this.learned = new LearnedDictionary(pluginDataFolder, DEFAULT_LEARNED_ENTRIES);
+        this.pipeline = buildPipeline();
+        
+        // Load dictionaries
+        Map<Path, FileTime> stamps = readSourceStamps();
+        LoadTimings timings = new LoadTimings();
+        SystemDictionary system;
         try {
-            // Load IPADIC resource - this is required
-            InputStream inputStream = RomajiDictionary.class.getClassLoader()
-                    .getResourceAsStream(IPADIC_RESOURCE);
-            
-            if (inputStream != null) {
-                parseIPADICJSON(inputStream);
-                System.out.println("IPADIC dictionary loaded: " + dictionary.size() + " entries");
-            } else {
-                throw new IOException("IPADIC resource not found: " + IPADIC_RESOURCE);
-            }
+            system = loadIPADICDictionary(timings);
         } catch (Exception e) {
             System.err.println("FATAL: Failed to load IPADIC dictionary: " + e.getMessage());
             e.printStackTrace();
             throw new RuntimeException("Failed to initialize IPADIC dictionary", e);
         }
+
+        Map<String, DictionaryEntry> overlay;
+        try {
+            overlay = loadUserDictionary(system, timings);
+        } catch (Exception e) {
+            // A broken user dictionary should not keep the plugin from starting
+            System.err.println("Failed to load user dictionary: " + e.getMessage());
+            e.printStackTrace();
+            overlay = new HashMap<>();
+        }
+
+        snapshot.set(new DictionarySnapshot(1, system, overlay, timings));
+        sourceStamps = stamps;
     }
 
     /**
-     * Load user-registered dictionary from file
+     * The snapshot currently serving lookups
      */
-    private void loadUserDictionary() {
-        if (!Files.exists(dictionaryPath)) {
-            return;
+    public DictionarySnapshot getSnapshot() {
+        return snapshot.get();
+    }
+
+    /**
+     * Version of the current snapshot; changes on every edit or reload
+     */
+    public long getVersion() {
+        return snapshot.get().getVersion();
+    }
+
+    /**
+     * Google IME client used to refine conversions
+     */
+    public GoogleIMEClient getGoogleIME() {
+        return googleIME;
+    }
+
+    /**
+     * Learned tier of frequently used Google IME conversions
+     */
+    public LearnedDictionary getLearnedDictionary() {
+        return learned;
+    }
+
+    /**
+     * @param promoteAfter Uses of a Google IME conversion after which it is learned
+     * @param maxEntries Maximum number of learned conversions (least frequently used are demoted)
+     */
+    public void configureLearning(int promoteAfter, int maxEntries) {
+        this.promoteAfter = Math.max(1, promoteAfter);
+        learned.setMaximumSize(maxEntries);
+    }
+
+    /**
+     * Time spent in each phase of building the current system dictionary
+     */
+    public LoadTimings getLoadTimings() {
+        return snapshot.get().getLoadTimings();
+    }
+
+    /**
+     * Rebuild the dictionary from the source files and publish it.
+     * Entries added with {@link #addEntry} but never saved are dropped; the files are the source of truth.
+     * @throws IOException if the rebuild fails; the current snapshot keeps serving
+     */
+    public DictionarySnapshot reload() throws IOException {
+        synchronized (reloadLock) {
+            // Stamps are taken first, so a change made during the rebuild triggers another one
+            Map<Path, FileTime> stamps = readSourceStamps();
+            LoadTimings timings = new LoadTimings();
+            SystemDictionary system = loadIPADICDictionary(timings);
+
+            synchronized (writeLock) {
+                // Read under the write lock so edits saved during the rebuild are not lost
+                Map<String, DictionaryEntry> overlay = loadUserDictionary(system, timings);
+                DictionarySnapshot next = new DictionarySnapshot(snapshot.get().getVersion() + 1, system, overlay,
+                    timings);
+                snapshot.set(next);
+                sourceStamps = stamps;
+                return next;
+            }
         }
+    }
 
-        try {
-            String content = new String(Files.readAllBytes(dictionaryPath), "UTF-8");
-            parseUserDictionaryJSON(content);
-            System.out.println("User dictionary loaded");
-        } catch (Exception e) {
-            System.err.println("Failed to load user dictionary: " + e.getMessage());
-            e.printStackTrace();
+    /**
+     * Run {@link #reload()} on the given executor
+     */
+    public CompletableFuture<DictionarySnapshot> reloadAsync(Executor executor) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return reload();
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        }, executor);
+    }
+
+    /**
+     * Check whether any source file was created, changed or deleted since the current snapshot was built
+     */
+    public boolean hasSourceChanges() {
+        return !readSourceStamps().equals(sourceStamps);
+    }
+
+    private Map<Path, FileTime> readSourceStamps() {
+        Map<Path, FileTime> stamps = new HashMap<>();
+        for (String name : SOURCE_FILES) {
+            Path file = dataFolder.resolve(name);
+            try {
+                stamps.put(file, Files.getLastModifiedTime(file));
+            } catch (IOException e) {
+                // Missing file
+            }
+        }
+        return stamps;
+    }
+
+    /**
+     * Load IPADIC base dictionary, in order of preference:
+     * ipadic.rjd in the data folder, ipadic-subset.json in the data folder,
+     * the bundled ipadic.rjd (extracted to the data folder), the bundled JSON resource
+     */
+    private SystemDictionary loadIPADICDictionary(LoadTimings timings) throws IOException {
+        long mapStart = System.nanoTime();
+        MappedDictionary mapped = loadBinaryDictionary(false);
+        Path jsonOverride = dataFolder.resolve(IPADIC_RESOURCE);
+        if (mapped == null && !Files.exists(jsonOverride)) {
+            mapped = loadBinaryDictionary(true);
+        }
+        if (mapped != null) {
+            // Mapping needs no parse or index build; pages are read lazily on lookup
+            timings.source = IPADIC_BINARY;
+            timings.resourceReadNanos = System.nanoTime() - mapStart;
+            System.out.println("IPADIC dictionary mapped: " + mapped.size() + " entries");
+            return mapped;
+        }
+
+        // Load IPADIC resource - this is required
+        InputStream inputStream = Files.exists(jsonOverride)
+            ? Files.newInputStream(jsonOverride)
+            : RomajiDictionary.class.getClassLoader().getResourceAsStream(IPADIC_RESOURCE);
+        if (inputStream == null) {
+            throw new IOException("IPADIC resource not found: " + IPADIC_RESOURCE);
+        }
+
+        CompactDictionary.Builder builder = CompactDictionary.builder();
+        TimedInputStream timed = new TimedInputStream(inputStream);
+        long parseStart = System.nanoTime();
+        try (Reader reader = new BufferedReader(new InputStreamReader(timed, StandardCharsets.UTF_8))) {
+            parseIPADICJSON(reader, builder);
+        } catch (RuntimeException e) {
+            // Gson reports malformed documents with unchecked exceptions
+            throw new IOException("Malformed " + IPADIC_RESOURCE + ": " + e.getMessage(), e);
         }
+        long buildStart = System.nanoTime();
+        CompactDictionary system = builder.build();
+
+        timings.source = Files.exists(jsonOverride) ? jsonOverride.toString() : IPADIC_RESOURCE;
+        timings.resourceReadNanos = timed.nanos;
+        timings.parseNanos = buildStart - parseStart - timed.nanos;
+        timings.indexBuildNanos = System.nanoTime() - buildStart;
+        System.out.println("IPADIC dictionary loaded: " + system.size() + " entries");
+        return system;
     }
 
     /**
-     * Parse IPADIC JSON format
+     * Map ipadic.rjd from the data folder. A copy that differs from the bundled one in size or format
+     * version (e.g. extracted by an older plugin version) is replaced by the bundled one first.
+     * @param extractBundled Extract the bundled copy first if the data folder has none
+     * @return The mapped dictionary, or null to fall back to JSON
      */
-    private void parseIPADICJSON(InputStream input) {
+    private MappedDictionary loadBinaryDictionary(boolean extractBundled) {
+        Path binaryPath = dataFolder.resolve(IPADIC_BINARY);
         try {
-            BufferedReader reader = new BufferedReader(new InputStreamReader(input, "UTF-8"));
-            StringBuilder jsonContent = new StringBuilder();
-            String line;
-            while ((line = reader.readLine()) != null) {
-                jsonContent.append(line);
-            }
-            reader.close();
-            
-            String json = jsonContent.toString();
-            parseIPADICJsonContent(json);
+            boolean exists = Files.exists(binaryPath);
+            if (exists || extractBundled) {
+                extractBundledBinary(binaryPath, exists);
+            }
+            if (!Files.exists(binaryPath)) {
+                return null;
+            }
+            return MappedDictionary.open(binaryPath);
         } catch (IOException e) {
-            System.err.println("Error reading IPADIC JSON: " + e.getMessage());
+            System.err.println("Failed to map " + binaryPath + ", falling back to JSON: " + e.getMessage());
+            return null;
         }
     }
 
     /**
-     * Parse IPADIC JSON content (simple JSON parsing)
+     * Copy the bundled ipadic.rjd (if the jar has one) over a missing or different data folder copy
      */
-    private void parseIPADICJsonContent(String json) {
-        try {
-            int loadedCount = 0;
-            
-            // Simple JSON parsing - look for entry objects
-            String[] entries = json.split("\\{");
-            for (String entry : entries) {
-                if (!entry.contains("\"kanji\"")) continue;
-                
-                String kanji = extractJsonValue(entry, "kanji");
-                String hiragana = extractJsonValue(entry, "hiragana");
-                String baseScoreStr = extractJsonValue(entry, "baseScore");
-                
-                if (!kanji.isEmpty() && !hiragana.isEmpty()) {
-                    int baseScore = 100;
-                    try {
-                        baseScore = Integer.parseInt(baseScoreStr);
-                    } catch (NumberFormatException e) {
-                        // Use default
-                    }
-                    
-                    // Create romaji from hiragana (for matching with user input)
-                    String romaji = hiraganaToRomaji(hiragana).toLowerCase();
-                    
-                    List<ConversionCandidate> candidates = Arrays.asList(
-                        new ConversionCandidate(kanji, hiragana, baseScore)
-                    );
-                    addEntry(romaji, candidates, 0);
-                    loadedCount++;
+    private void extractBundledBinary(Path binaryPath, boolean exists) throws IOException {
+        URL resource = RomajiDictionary.class.getClassLoader().getResource(IPADIC_BINARY);
+        if (resource == null) {
+            return;
+        }
+        URLConnection connection = resource.openConnection();
+        long bundledSize = connection.getContentLengthLong();
+        try (InputStream bundled = connection.getInputStream()) {
+            byte[] header = bundled.readNBytes(8);
+            if (exists && Files.size(binaryPath) == bundledSize
+                    && binaryVersion(binaryPath) == MappedDictionary.readVersion(ByteBuffer.wrap(header))) {
+                return;
+            }
+            Files.createDirectories(dataFolder);
+            // Replace atomically, so a concurrent reload never maps a half-written file
+            Path temp = binaryPath.resolveSibling(IPADIC_BINARY + ".tmp");
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                out.write(header);
+                bundled.transferTo(out);
+            }
+            Files.move(temp, binaryPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            if (exists) {
+                System.out.println("Replaced " + binaryPath + " with the bundled dictionary");
+            }
+        }
+    }
+
+    private static int binaryVersion(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            return MappedDictionary.readVersion(ByteBuffer.wrap(in.readNBytes(8)));
+        }
+    }
+
+    /**
+     * Load user-registered dictionary from file into a new overlay map
+     */
+    private Map<String, DictionaryEntry> loadUserDictionary(SystemDictionary system, LoadTimings timings)
+            throws IOException {
+        long start = System.nanoTime();
+        Map<String, DictionaryEntry> overlay = new HashMap<>();
+        if (!Files.exists(dictionaryPath)) {
+            timings.userOverlayNanos = System.nanoTime() - start;
+            return overlay;
+        }
+
+        try (Reader reader = Files.newBufferedReader(dictionaryPath, StandardCharsets.UTF_8)) {
+            int count = parseUserDictionaryJSON(reader, (romaji, candidates) -> {
+                String key = romaji.toLowerCase();
+                // Edited system entries keep system priority so candidates still rank by baseScore
+                boolean systemKey = system != null && system.contains(key);
+                overlay.put(key, new DictionaryEntry(key, candidates, systemKey ? 0 : 1, true));
+            });
+            System.out.println("User dictionary loaded: " + count + " entries");
+        } catch (RuntimeException e) {
+            throw new IOException("Malformed " + USER_DICT_FILENAME + ": " + e.getMessage(), e);
+        }
+        timings.userOverlayNanos = System.nanoTime() - start;
+        return overlay;
+    }
+
+    /**
+     * Parse IPADIC JSON, streaming one entry at a time:
+     * {"entries": [{"kanji": "...", "hiragana": "...", "baseScore": 100}, ...]}
+     * An entry may carry its own "romaji" key; otherwise it is generated from the hiragana.
+     * @return Number of entries added
+     */
+    static int parseIPADICJSON(Reader input, CompactDictionary.Builder builder) throws IOException {
+        JsonReader reader = new JsonReader(input);
+        int loadedCount = 0;
+
+        for (boolean more = beginEntries(reader); more && reader.hasNext(); ) {
+            String romaji = null;
+            String kanji = null;
+            String hiragana = null;
+            int baseScore = 100;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "romaji" -> romaji = nextString(reader);
+                    case "kanji" -> kanji = nextString(reader);
+                    case "hiragana" -> hiragana = nextString(reader);
+                    case "baseScore" -> baseScore = nextInt(reader, baseScore);
+                    default -> reader.skipValue();
                 }
             }
-            
-            System.out.println("IPADIC dictionary: " + loadedCount + " entries loaded");
-        } catch (Exception e) {
-            System.err.println("Error parsing IPADIC JSON: " + e.getMessage());
-            e.printStackTrace();
+            reader.endObject();
+
+            if (kanji == null || kanji.isEmpty() || hiragana == null || hiragana.isEmpty()) {
+                continue;
+            }
+            // Create romaji from hiragana (for matching with user input)
+            if (romaji == null) {
+                romaji = KanaRomanizer.toRomaji(hiragana);
+            }
+            if (romaji == null || romaji.isEmpty()) {
+                continue;
+            }
+
+            builder.add(romaji, List.of(new ConversionCandidate(kanji, hiragana, baseScore)));
+            loadedCount++;
         }
+        return loadedCount;
     }
 
     /**
-     * Extract JSON value (simple implementation)
+     * Parse user dictionary JSON, streaming one entry at a time. Both entry forms are accepted:
+     * {"romaji": "...", "kanji": "...", "hiragana": "..."} and
+     * {"romaji": "...", "candidates": [{"kanji": "...", "hiragana": "...", "baseScore": 1000}, ...]}
+     * @return Number of entries passed to the sink
      */
-    private String extractJsonValue(String json, String key) {
-        String pattern = "\"" + key + "\"\\s*:\\s*\"([^\"]*)\"";
-        try {
-            java.util.regex.Pattern p = java.util.regex.Pattern.compile(pattern);
-            java.util.regex.Matcher m = p.matcher(json);
-            if (m.find()) {
-                return m.group(1);
+    static int parseUserDictionaryJSON(Reader input,
+                                       java.util.function.BiConsumer<String, List<ConversionCandidate>> sink)
+            throws IOException {
+        JsonReader reader = new JsonReader(input);
+        int loadedCount = 0;
+
+        for (boolean more = beginEntries(reader); more && reader.hasNext(); ) {
+            String romaji = null;
+            List<ConversionCandidate> candidates = new ArrayList<>(1);
+            String kanji = null;
+            String hiragana = null;
+            int baseScore = USER_BASE_SCORE;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "romaji" -> romaji = nextString(reader);
+                    case "kanji" -> kanji = nextString(reader);
+                    case "hiragana" -> hiragana = nextString(reader);
+                    case "baseScore" -> baseScore = nextInt(reader, baseScore);
+                    case "candidates" -> readCandidates(reader, candidates);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (kanji != null && !kanji.isEmpty()) {
+                candidates.add(0, new ConversionCandidate(kanji, hiragana, baseScore));
+            }
+            if (romaji == null || romaji.isEmpty() || candidates.isEmpty()) {
+                continue;
+            }
+            sink.accept(romaji, candidates);
+            loadedCount++;
+        }
+        return loadedCount;
+    }
+
+    private static void readCandidates(JsonReader reader, List<ConversionCandidate> candidates) throws IOException {
+        reader.beginArray();
+        while (reader.hasNext()) {
+            String kanji = null;
+            String hiragana = null;
+            int baseScore = USER_BASE_SCORE;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                switch (reader.nextName()) {
+                    case "kanji" -> kanji = nextString(reader);
+                    case "hiragana" -> hiragana = nextString(reader);
+                    case "baseScore" -> baseScore = nextInt(reader, baseScore);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (kanji != null && !kanji.isEmpty()) {
+                candidates.add(new ConversionCandidate(kanji, hiragana, baseScore));
             }
-        } catch (Exception e) {
-            // Fall through
-        }
-        return "";
-    }
-
-    /**
-     * Simple hiragana to romaji converter (basic implementation)
-     */
-    private String hiraganaToRomaji(String hiragana) {
-        // This is a simplified version - for production, use proper kana-to-romaji library
-        // For now, we'll use a basic mapping
-        java.util.Map<String, String> map = new java.util.HashMap<>();
-        map.put("あ", "a"); map.put("い", "i"); map.put("う", "u"); map.put("え", "e"); map.put("お", "o");
-        map.put("か", "ka"); map.put("き", "ki"); map.put("く", "ku"); map.put("け", "ke"); map.put("こ", "ko");
-        map.put("が", "ga"); map.put("ぎ", "gi"); map.put("ぐ", "gu"); map.put("げ", "ge"); map.put("ご", "go");
-        map.put("さ", "sa"); map.put("し", "shi"); map.put("す", "su"); map.put("せ", "se"); map.put("そ", "so");
-        map.put("ざ", "za"); map.put("じ", "ji"); map.put("ず", "zu"); map.put("ぜ", "ze"); map.put("ぞ", "zo");
-        map.put("た", "ta"); map.put("ち", "chi"); map.put("つ", "tsu"); map.put("て", "te"); map.put("と", "to");
-        map.put("だ", "da"); map.put("ぢ", "di"); map.put("づ", "du"); map.put("で", "de"); map.put("ど", "do");
-        map.put("な", "na"); map.put("に", "ni"); map.put("ぬ", "nu"); map.put("ね", "ne"); map.put("の", "no");
-        map.put("は", "ha"); map.put("ひ", "hi"); map.put("ふ", "fu"); map.put("へ", "he"); map.put("ほ", "ho");
-        map.put("ば", "ba"); map.put("び", "bi"); map.put("ぶ", "bu"); map.put("べ", "be"); map.put("ぼ", "bo");
-        map.put("ぱ", "pa"); map.put("ぴ", "pi"); map.put("ぷ", "pu"); map.put("ぺ", "pe"); map.put("ぽ", "po");
-        map.put("ま", "ma"); map.put("み", "mi"); map.put("む", "mu"); map.put("め", "me"); map.put("も", "mo");
-        map.put("や", "ya"); map.put("ゆ", "yu"); map.put("よ", "yo");
-        map.put("ら", "ra"); map.put("り", "ri"); map.put("る", "ru"); map.put("れ", "re"); map.put("ろ", "ro");
-        map.put("わ", "wa"); map.put("ゐ", "wi"); map.put("ゑ", "we"); map.put("を", "wo"); map.put("ん", "n");
-        
-        StringBuilder romaji = new StringBuilder();
-        for (char c : hiragana.toCharArray()) {
-            String ch = String.valueOf(c);
-            romaji.append(map.getOrDefault(ch, ch));
         }
-        return romaji.toString();
+        reader.endArray();
     }
 
     /**
-     * Parse user dictionary JSON format
+     * Position the reader inside the entry array: either the top-level array or the "entries" array
+     * @return false if the document has no entry array
      */
-    private void parseUserDictionaryJSON(String json) {
-        // TODO: Implement proper JSON parsing using Gson/Jackson
-        // Format: {"entries": [{"romaji": "...", "kanji": "...", "hiragana": "..."}]}
+    private static boolean beginEntries(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.BEGIN_ARRAY) {
+            reader.beginArray();
+            return true;
+        }
+        reader.beginObject();
+        while (reader.hasNext()) {
+            if (reader.nextName().equals("entries") && reader.peek() == JsonToken.BEGIN_ARRAY) {
+                reader.beginArray();
+                return true;
+            }
+            reader.skipValue();
+        }
+        return false;
     }
 
+    private static String nextString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        return reader.nextString();
+    }
 
+    private static int nextInt(JsonReader reader, int defaultValue) throws IOException {
+        try {
+            return Integer.parseInt(nextString(reader));
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
 
     /**
      * Add an entry to the dictionary
@@ -204,8 +517,12 @@ public class RomajiDictionary {
         }
 
         String key = romaji.toLowerCase();
-        DictionaryEntry entry = new DictionaryEntry(key, candidates, userPriority);
-        dictionary.put(key, entry);
+        synchronized (writeLock) {
+            DictionarySnapshot current = snapshot.get();
+            Map<String, DictionaryEntry> overlay = new HashMap<>(current.overlay());
+            overlay.put(key, new DictionaryEntry(key, candidates, userPriority));
+            snapshot.set(current.withOverlay(overlay));
+        }
     }
 
     /**
@@ -217,55 +534,404 @@ public class RomajiDictionary {
         }
 
         String key = romaji.toLowerCase();
-        DictionaryEntry existing = dictionary.get(key);
+        ConversionCandidate newCandidate = new ConversionCandidate(kanji, hiragana, USER_BASE_SCORE);
+        synchronized (writeLock) {
+            DictionarySnapshot current = snapshot.get();
+            // Overlay entry, or the system entry it will shadow
+            DictionaryEntry existing = current.find(key);
 
-        if (existing != null) {
-            // Update existing entry
-            ConversionCandidate newCandidate = new ConversionCandidate(kanji, hiragana, 1000);
-            existing.addCandidate(newCandidate);
-        } else {
-            // Create new user entry
-            ConversionCandidate candidate = new ConversionCandidate(kanji, hiragana, 1000);
-            addEntry(romaji, Arrays.asList(candidate), 1);
-        }
+            DictionaryEntry updated;
+            if (existing != null) {
+                // Update a copy: entries in a published snapshot are never mutated
+                updated = new DictionaryEntry(key, existing.candidates, existing.userPriority, true);
+                updated.addCandidate(newCandidate);
+            } else {
+                // Create new user entry
+                updated = new DictionaryEntry(key, List.of(newCandidate), 1, true);
+            }
 
-        // Save to file
-        saveUserDictionary();
+            Map<String, DictionaryEntry> overlay = new HashMap<>(current.overlay());
+            overlay.put(key, updated);
+            snapshot.set(current.withOverlay(overlay));
+
+            // Save to file
+            saveUserDictionary();
+        }
     }
 
     /**
      * Get the best conversion candidate for a romaji input
-     * Uses IPADIC first, then tries Google IME API for better kanji conversion
+     * Uses IPADIC first, then the learned or Google IME enrichment of that candidate once it is known
+     * @return The candidate, or null if the word is not in the dictionary
      */
     public ConversionCandidate getBestCandidate(String romaji) {
         if (romaji == null || romaji.isEmpty()) {
             return null;
         }
+        ConversionPipeline.Outcome outcome = convert(romaji);
+        return outcome != null && !TIER_KANA.equals(outcome.tier()) ? outcome.candidate() : null;
+    }
+
+    /**
+     * Convert a word through the pipeline tiers (cache, dictionary, learned, remote, kana)
+     * and record usage of dictionary-based results
+     * @return The result and the tier that produced it, or null
+     */
+    public ConversionPipeline.Outcome convert(String romaji) {
+        return convert(romaji, Deadline.NONE);
+    }
+
+    /**
+     * Convert a word, waiting for no tier beyond the deadline
+     */
+    public ConversionPipeline.Outcome convert(String romaji, Deadline deadline) {
+        if (romaji == null || romaji.isEmpty()) {
+            return null;
+        }
 
         String key = romaji.toLowerCase();
-        DictionaryEntry entry = dictionary.get(key);
-        
-        if (entry == null) {
+        ConversionPipeline.Outcome outcome = pipeline.convert(
+            new ConversionBackend.Query(key, romaji, this::dictionaryReading), deadline);
+        if (outcome == null || TIER_KANA.equals(outcome.tier())) {
+            return outcome;
+        }
+
+        // Record usage
+        ConversionCandidate served = outcome.candidate();
+        stats.recordUsage(key, served.kanji);
+        if (TIER_CACHE.equals(outcome.tier()) || TIER_REMOTE.equals(outcome.tier())) {
+            promoteIfFrequent(key, served);
+        }
+        return outcome;
+    }
+
+    /**
+     * Best candidate of the current snapshot, ranked with usage statistics
+     */
+    private ConversionCandidate dictionaryReading(String key) {
+        DictionaryEntry entry = snapshot.get().find(key);
+        return entry != null ? entry.getBestCandidate(stats) : null;
+    }
+
+    /**
+     * Tiers a word passes through
+     */
+    public ConversionPipeline getPipeline() {
+        return pipeline;
+    }
+
+    /**
+     * Replace the tier with the same name, e.g. the remote tier with a stand-in
+     */
+    public void replaceBackend(ConversionBackend backend) {
+        synchronized (writeLock) {
+            pipeline = pipeline.withBackend(backend);
+        }
+    }
+
+    private ConversionPipeline buildPipeline() {
+        return ConversionPipeline.builder()
+            .add(new CacheBackend(), Duration.ofNanos(50_000))
+            .add(new DictionaryBackend(), Duration.ofNanos(500_000))
+            .add(new LearnedBackend(), Duration.ofNanos(50_000))
+            .add(new RemoteBackend(), Duration.ofMillis(1))
+            .add(new RomajiConverter.RuleBasedBackend(), Duration.ofNanos(500_000))
+            .build();
+    }
+
+    /**
+     * Move a served Google IME conversion into the learned tier once it was used more than
+     * promoteAfter times; the learned tier answers it from then on
+     */
+    private void promoteIfFrequent(String key, ConversionCandidate served) {
+        if (learned.contains(key)) {
+            return;
+        }
+        long count = stats.getCount(key, served.kanji);
+        if (count > promoteAfter) {
+            learned.promote(key, served, count);
+            enrichments.remove(key);
+        }
+    }
+
+    /**
+     * Remember the Google IME result for a key's best candidate (nothing is stored for failures,
+     * so they are retried on a later hit)
+     */
+    private Enrichment storeEnrichment(String key, ConversionCandidate best, List<String> candidates) {
+        if (candidates.isEmpty()) {
             return null;
         }
 
-        ConversionCandidate best = entry.getBestCandidate(stats);
-        
-        // Try to enhance with Google IME API if available
-        if (best != null && best.hiragana != null) {
-            String enhancedKanji = googleIME.convert(best.hiragana);
-            // If Google IME provided a different result, use it
-            if (enhancedKanji != null && !enhancedKanji.equals(best.hiragana)) {
-                best = new ConversionCandidate(enhancedKanji, best.hiragana, best.baseScore);
+        String enhancedKanji = candidates.get(0);
+        // If Google IME provided a different result, use it
+        ConversionCandidate enriched = !enhancedKanji.equals(best.hiragana) && !enhancedKanji.equals(best.kanji)
+            ? new ConversionCandidate(enhancedKanji, best.hiragana, best.baseScore)
+            : best;
+        Enrichment enrichment = new Enrichment(best, enriched, System.nanoTime());
+        enrichments.put(key, enrichment);
+        return enrichment;
+    }
+
+    /**
+     * Look up enrichments older than {@code maxAge} again, oldest first, one batch after another.
+     * A run sends at most a few batches; the rest are refreshed by later runs.
+     * @return Future of the number of refreshed enrichments (never completes exceptionally)
+     */
+    public CompletableFuture<Integer> refreshEnrichments(Duration maxAge) {
+        return refreshEnrichments(maxAge, REFRESH_BATCH, REFRESH_MAX_BATCHES);
+    }
+
+    CompletableFuture<Integer> refreshEnrichments(Duration maxAge, int batchSize, int maxBatches) {
+        long cutoff = System.nanoTime() - maxAge.toNanos();
+        List<Map.Entry<String, Enrichment>> stale = new ArrayList<>();
+        for (Map.Entry<String, Enrichment> entry : enrichments.snapshot().entrySet()) {
+            if (entry.getValue().computedAt - cutoff <= 0) {
+                stale.add(entry);
             }
         }
-        
-        // Record usage
-        if (best != null) {
-            stats.recordUsage(romaji, best.kanji);
+        stale.sort(Comparator.comparingLong(entry -> entry.getValue().computedAt - cutoff));
+        if (stale.size() > batchSize * maxBatches) {
+            stale = stale.subList(0, batchSize * maxBatches);
+        }
+        return refreshBatch(stale, 0, batchSize, 0);
+    }
+
+    /**
+     * Refresh the batch starting at {@code from}, then the next one. Stops early when a batch gets no
+     * result at all (e.g. rate-limited or circuit open), leaving the rest for the next run.
+     */
+    private CompletableFuture<Integer> refreshBatch(List<Map.Entry<String, Enrichment>> stale, int from,
+                                                    int batchSize, int refreshedSoFar) {
+        if (from >= stale.size()) {
+            return CompletableFuture.completedFuture(refreshedSoFar);
+        }
+        List<Map.Entry<String, Enrichment>> batch = stale.subList(from, Math.min(stale.size(), from + batchSize));
+        List<String> hiragana = new ArrayList<>(batch.size());
+        for (Map.Entry<String, Enrichment> entry : batch) {
+            hiragana.add(entry.getValue().source.hiragana);
+        }
+        return googleIME.getCandidatesBatchAsync(hiragana).thenCompose(results -> {
+            int refreshed = 0;
+            boolean answered = false;
+            for (Map.Entry<String, Enrichment> entry : batch) {
+                ConversionCandidate source = entry.getValue().source;
+                List<String> candidates = results.getOrDefault(source.hiragana, Collections.emptyList());
+                answered |= !candidates.isEmpty();
+                // Skip keys that were re-enriched meanwhile
+                if (enrichments.get(entry.getKey()) == entry.getValue()
+                        && storeEnrichment(entry.getKey(), source, candidates) != null) {
+                    refreshed++;
+                }
+            }
+            if (!answered) {
+                return CompletableFuture.completedFuture(refreshedSoFar + refreshed);
+            }
+            return refreshBatch(stale, from + batchSize, batchSize, refreshedSoFar + refreshed);
+        });
+    }
+
+    /**
+     * Number of dictionary keys with a stored Google IME enrichment
+     */
+    public int getEnrichmentCount() {
+        return enrichments.size();
+    }
+
+    /**
+     * Google IME results already computed for a word's dictionary reading
+     */
+    private final class CacheBackend implements ConversionBackend {
+        @Override
+        public String getName() {
+            return TIER_CACHE;
+        }
+
+        @Override
+        public Result lookup(Query query, long budgetNanos) {
+            Enrichment enrichment = enrichments.get(query.key());
+            if (enrichment == null) {
+                return null;
+            }
+            ConversionCandidate reading = query.reading();
+            return reading != null && enrichment.isFor(reading) ? Result.confident(enrichment.enriched) : null;
+        }
+    }
+
+    /**
+     * IPADIC and user entries. A reading that Google IME may refine is only tentative.
+     */
+    private final class DictionaryBackend implements ConversionBackend {
+        @Override
+        public String getName() {
+            return TIER_DICTIONARY;
+        }
+
+        @Override
+        public Result lookup(Query query, long budgetNanos) {
+            ConversionCandidate reading = query.reading();
+            if (reading == null) {
+                return null;
+            }
+            return reading.hiragana != null ? Result.tentative(reading) : Result.confident(reading);
+        }
+    }
+
+    /**
+     * Frequently used Google IME conversions kept locally
+     */
+    private final class LearnedBackend implements ConversionBackend {
+        @Override
+        public String getName() {
+            return TIER_LEARNED;
+        }
+
+        @Override
+        public Result lookup(Query query, long budgetNanos) {
+            ConversionCandidate reading = query.reading();
+            if (reading == null || reading.hiragana == null) {
+                return null;
+            }
+            ConversionCandidate candidate = learned.get(query.key(), reading.hiragana);
+            return candidate != null ? Result.confident(candidate) : null;
+        }
+    }
+
+    /**
+     * Google IME. A result already in its cache (e.g. prefetched for this message) or arriving within
+     * the budget is used; otherwise the word is enriched in the background for later lookups.
+     */
+    private final class RemoteBackend implements ConversionBackend {
+        @Override
+        public String getName() {
+            return TIER_REMOTE;
+        }
+
+        @Override
+        public Result lookup(Query query, long budgetNanos) {
+            ConversionCandidate reading = query.reading();
+            if (reading == null || reading.hiragana == null) {
+                return null;
+            }
+
+            String key = query.key();
+            CompletableFuture<List<String>> lookup = googleIME.getCandidatesAsync(reading.hiragana);
+            List<String> candidates;
+            try {
+                candidates = await(lookup, budgetNanos);
+            } catch (TimeoutException e) {
+                lookup.thenAccept(late -> storeEnrichment(key, reading, late));
+                return Result.gaveUp();
+            }
+            if (candidates == null) {
+                return null;
+            }
+            Enrichment stored = storeEnrichment(key, reading, candidates);
+            return stored != null ? Result.confident(stored.enriched) : null;
+        }
+
+        /**
+         * @return The candidates, or null if the lookup failed
+         * @throws TimeoutException If the lookup is still running when the budget is spent
+         */
+        private List<String> await(CompletableFuture<List<String>> lookup, long budgetNanos) throws TimeoutException {
+            try {
+                if (lookup.isDone()) {
+                    return lookup.get();
+                }
+                if (budgetNanos <= 0) {
+                    throw new TimeoutException();
+                }
+                return lookup.get(budgetNanos, TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | CancellationException e) {
+                return null;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
         }
-        
-        return best;
+    }
+
+    /**
+     * Google IME result for the best candidate of one key
+     */
+    private static final class Enrichment {
+        final ConversionCandidate source;
+        final ConversionCandidate enriched;
+        final long computedAt;
+
+        Enrichment(ConversionCandidate source, ConversionCandidate enriched, long computedAt) {
+            this.source = source;
+            this.enriched = enriched;
+            this.computedAt = computedAt;
+        }
+
+        /**
+         * Whether this enrichment belongs to the given best candidate (a reload or new usage
+         * statistics can change the best candidate of a key)
+         */
+        boolean isFor(ConversionCandidate best) {
+            return source == best || (source.baseScore == best.baseScore && Objects.equals(source.kanji, best.kanji)
+                && Objects.equals(source.hiragana, best.hiragana));
+        }
+    }
+
+    /**
+     * Ask Google IME for all dictionary words of a message in one request, so the following
+     * {@link #getBestCandidate} calls are answered from its cache
+     * @param romajiWords Words of the message
+     * @return Future that completes when the results are cached (never completes exceptionally)
+     */
+    public CompletableFuture<Void> prefetchGoogleIME(Collection<String> romajiWords) {
+        DictionarySnapshot current = snapshot.get();
+        List<String> hiragana = new ArrayList<>(romajiWords.size());
+        for (String romaji : romajiWords) {
+            String key = romaji != null ? romaji.toLowerCase() : null;
+            DictionaryEntry entry = key != null ? current.find(key) : null;
+            ConversionCandidate best = entry != null ? entry.getBestCandidate(stats) : null;
+            Enrichment enrichment = best != null ? enrichments.get(key) : null;
+            // Already enriched or learned words need no request
+            if (best != null && best.hiragana != null && (enrichment == null || !enrichment.isFor(best))
+                    && !learned.contains(key)) {
+                hiragana.add(best.hiragana);
+            }
+        }
+        if (hiragana.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return googleIME.getCandidatesBatchAsync(hiragana).thenApply(candidates -> null);
+    }
+
+    /**
+     * {@link #prefetchGoogleIME(Collection)} and wait for it until the deadline. A prefetch that is
+     * still running is left to finish in the background and warms the cache for later messages.
+     * @return true if the results arrived in time
+     */
+    public boolean prefetchGoogleIME(Collection<String> romajiWords, Deadline deadline) {
+        CompletableFuture<Void> prefetch = prefetchGoogleIME(romajiWords);
+        if (prefetch.isDone()) {
+            return true;
+        }
+        long remaining = deadline.remainingNanos();
+        try {
+            if (remaining > 0) {
+                prefetch.get(remaining, TimeUnit.NANOSECONDS);
+                return true;
+            }
+        } catch (TimeoutException | ExecutionException e) {
+            // Counted below
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        prefetchDeadlineMisses.increment();
+        return false;
+    }
+
+    /**
+     * Messages whose Google IME prefetch had not finished by their deadline
+     */
+    public long getPrefetchDeadlineMissCount() {
+        return prefetchDeadlineMisses.sum();
     }
 
     /**
@@ -275,69 +941,64 @@ public class RomajiDictionary {
         if (romaji == null || romaji.isEmpty()) {
             return Collections.emptyList();
         }
-
-        String key = romaji.toLowerCase();
-        DictionaryEntry entry = dictionary.get(key);
-        
-        if (entry == null) {
-            return Collections.emptyList();
-        }
-
-        return Collections.unmodifiableList(entry.candidates);
+        return snapshot.get().getCandidates(romaji.toLowerCase());
     }
 
     /**
      * Check if a romaji entry exists
      */
     public boolean contains(String romaji) {
-        return romaji != null && dictionary.containsKey(romaji.toLowerCase());
+        if (romaji == null) {
+            return false;
+        }
+        return snapshot.get().contains(romaji.toLowerCase());
     }
 
     /**
      * Get dictionary size
      */
     public int size() {
-        return dictionary.size();
+        return snapshot.get().size();
     }
 
     /**
      * Save user dictionary to file
      */
     public void saveUserDictionary() {
-        try {
-            Files.createDirectories(dictionaryPath.getParent());
-            
-            // Filter user entries only
-            StringBuilder json = new StringBuilder();
-            json.append("{\"entries\": [");
-            
-            boolean first = true;
-            for (DictionaryEntry entry : dictionary.values()) {
-                if (entry.userPriority > 0) {
-                    if (!first) json.append(",");
-                    first = false;
-                    
-                    json.append("{\"romaji\": \"").append(entry.romaji).append("\", ")
-                        .append("\"candidates\": [");
-                    
-                    boolean firstCand = true;
-                    for (ConversionCandidate cand : entry.candidates) {
-                        if (!firstCand) json.append(",");
-                        firstCand = false;
-                        
-                        json.append("{\"kanji\": \"").append(cand.kanji).append("\", ")
-                            .append("\"hiragana\": \"").append(cand.hiragana).append("\"}");
+        synchronized (writeLock) {
+            try {
+                Files.createDirectories(dictionaryPath.getParent());
+
+                try (JsonWriter writer = new JsonWriter(
+                        Files.newBufferedWriter(dictionaryPath, StandardCharsets.UTF_8))) {
+                    writer.setIndent("  ");
+                    writer.beginObject().name("entries").beginArray();
+                    // User entries and system entries that received user candidates
+                    for (DictionaryEntry entry : snapshot.get().overlay().values()) {
+                        if (!entry.user) {
+                            continue;
+                        }
+                        writer.beginObject().name("romaji").value(entry.romaji).name("candidates").beginArray();
+                        for (ConversionCandidate cand : entry.candidates) {
+                            writer.beginObject()
+                                .name("kanji").value(cand.kanji)
+                                .name("hiragana").value(cand.hiragana)
+                                .name("baseScore").value(cand.baseScore)
+                                .endObject();
+                        }
+                        writer.endArray().endObject();
                     }
-                    
-                    json.append("]}");
+                    writer.endArray().endObject();
                 }
+
+                // Our own write is not a source change
+                Map<Path, FileTime> stamps = new HashMap<>(sourceStamps);
+                stamps.put(dictionaryPath, Files.getLastModifiedTime(dictionaryPath));
+                sourceStamps = stamps;
+            } catch (Exception e) {
+                System.err.println("Failed to save user dictionary: " + e.getMessage());
+                e.printStackTrace();
             }
-            
-            json.append("]}");
-            Files.write(dictionaryPath, json.toString().getBytes("UTF-8"));
-        } catch (Exception e) {
-            System.err.println("Failed to save user dictionary: " + e.getMessage());
-            e.printStackTrace();
         }
     }
 
@@ -345,14 +1006,94 @@ public class RomajiDictionary {
      * Get all dictionary entries (for debugging)
      */
     public Collection<DictionaryEntry> getAllEntries() {
-        return Collections.unmodifiableCollection(dictionary.values());
+        return snapshot.get().entries();
     }
 
     /**
      * Clear all user-registered entries
      */
     public void clearUserEntries() {
-        dictionary.entrySet().removeIf(entry -> entry.getValue().userPriority > 0);
-        saveUserDictionary();
+        synchronized (writeLock) {
+            DictionarySnapshot current = snapshot.get();
+            Map<String, DictionaryEntry> overlay = new HashMap<>(current.overlay());
+            overlay.values().removeIf(entry -> entry.user);
+            snapshot.set(current.withOverlay(overlay));
+            saveUserDictionary();
+        }
+    }
+
+    /**
+     * Per-phase load timings (resource read, parse, index build, user overlay)
+     */
+    public static final class LoadTimings {
+        private String source = "none";
+        private long resourceReadNanos;
+        private long parseNanos;
+        private long indexBuildNanos;
+        private long userOverlayNanos;
+
+        /**
+         * Where the system entries came from (ipadic.rjd or the JSON resource)
+         */
+        public String getSource() {
+            return source;
+        }
+
+        public long getResourceReadNanos() {
+            return resourceReadNanos;
+        }
+
+        public long getParseNanos() {
+            return parseNanos;
+        }
+
+        public long getIndexBuildNanos() {
+            return indexBuildNanos;
+        }
+
+        public long getUserOverlayNanos() {
+            return userOverlayNanos;
+        }
+
+        public long getTotalNanos() {
+            return resourceReadNanos + parseNanos + indexBuildNanos + userOverlayNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: read %.1f ms, parse %.1f ms, index build %.1f ms, user overlay %.1f ms",
+                source, resourceReadNanos / 1e6, parseNanos / 1e6, indexBuildNanos / 1e6, userOverlayNanos / 1e6);
+        }
+    }
+
+    /**
+     * Counts time spent reading from the underlying stream, so reading and parsing can be told apart
+     */
+    private static final class TimedInputStream extends FilterInputStream {
+        long nanos;
+
+        TimedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public int read() throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read();
+            } finally {
+                nanos += System.nanoTime() - start;
+            }
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            try {
+                return super.read(b, off, len);
+            } finally {
+                nanos += System.nanoTime() - start;
+            }
+        }
     }
 }
@@ -2,14 +2,37 @@ package com.github.waras.romajiswitcher;
 
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
 /**
  * RomajiSwitcher - A Paper plugin that converts romaji to Japanese in chat
  */
 public class RomajiSwitcher extends JavaPlugin {
 
     private UserPreferences preferences;
-    private RomajiDictionary dictionary;
-    private ConversionStats stats;
+    /**
+     * Published by the background loader; null until loading finishes (or if it failed)
+     */
+    private final AtomicReference<RomajiDictionary> dictionary = new AtomicReference<>();
+    private volatile ConversionStats stats;
+    private DictionaryWatcher dictionaryWatcher;
+    private IMECacheFile imeCacheFile;
+    /**
+     * Set by onDisable; the background loader creates no watcher, flusher or timer once it is set.
+     * Guarded by this, like the resources above.
+     */
+    private boolean disabled;
+    /**
+     * Null when classifier.enabled is false
+     */
+    private RomajiClassifier classifier;
+    /**
+     * Null when message-cache.size is 0
+     */
+    private MessageCache messageCache;
 
     @Override
     public void onEnable() {
@@ -18,43 +41,262 @@ public class RomajiSwitcher extends JavaPlugin {
             getDataFolder().mkdirs();
         }
 
+        saveDefaultConfig();
+        configureWordCache();
+
         this.preferences = new UserPreferences(getDataFolder());
-        
-        // Initialize new dictionary-based system
-        try {
-            this.stats = new ConversionStats(getDataFolder().toPath());
-            this.dictionary = new RomajiDictionary(getDataFolder().toPath(), stats);
-            
-            getLogger().info("§aNew dictionary system initialized (" + dictionary.size() + " entries)");
-        } catch (Exception e) {
-            getLogger().warning("§cFailed to initialize dictionary system, using legacy mode");
-            e.printStackTrace();
-            this.dictionary = null;
-            this.stats = null;
+        if (getConfig().getBoolean("classifier.enabled", true)) {
+            this.classifier = new RomajiClassifier(getConfig().getDouble("classifier.min-romaji-share", 0.5));
         }
 
-        // Register listeners with new system if available
-        if (dictionary != null && stats != null) {
-            getServer().getPluginManager().registerEvents(new ChatListener(preferences, dictionary, stats), this);
-        } else {
-            getServer().getPluginManager().registerEvents(new ChatListener(preferences), this);
+        int messageCacheSize = getConfig().getInt("message-cache.size", 512);
+        if (messageCacheSize > 0) {
+            this.messageCache = new MessageCache(messageCacheSize,
+                Duration.ofSeconds(getConfig().getLong("message-cache.ttl-seconds", 60)));
         }
 
+        long deadlineMs = getConfig().getLong("conversion.deadline-ms", 50);
+        Duration deadline = deadlineMs > 0 ? Duration.ofMillis(deadlineMs) : null;
+
+        // Chat uses the legacy converter until the dictionary has been published
+        getServer().getPluginManager().registerEvents(
+            new ChatListener(preferences, dictionary::get, () -> stats, classifier, messageCache, deadline), this);
+
+        // Load the dictionary-based system off the main thread
+        getServer().getScheduler().runTaskAsynchronously(this, this::loadDictionary);
+
         // Register commands
-        RomajiCommand romajiCommand = new RomajiCommand(preferences);
+        RomajiCommand romajiCommand = new RomajiCommand(preferences, dictionary::get,
+            task -> getServer().getScheduler().runTaskAsynchronously(this, task));
         getCommand("romaji").setExecutor(romajiCommand);
         getCommand("romaji").setTabCompleter(new RomajiTabCompleter());
 
         getLogger().info("§aRomajiSwitcher enabled!");
+        getLogger().info("§7Message pre-scan: " + MessageScan.scanner().getName());
         getLogger().info("§eUse /romaji to toggle romaji conversion");
     }
 
+    /**
+     * Build stats and dictionary in the background, then publish them (stats first, so readers
+     * that see the dictionary also see its stats)
+     */
+    private void loadDictionary() {
+        long start = System.nanoTime();
+        try {
+            ConversionStats loadedStats = new ConversionStats(getDataFolder().toPath());
+            RomajiDictionary loaded = new RomajiDictionary(getDataFolder().toPath(), loadedStats);
+            configureGoogleIME(loaded.getGoogleIME());
+            configureConversionBudgets(loaded.getPipeline());
+            loaded.configureLearning(getConfig().getInt("google-ime.learning.promote-after", 20),
+                getConfig().getInt("google-ime.learning.max-entries", 2000));
+
+            this.stats = loadedStats;
+            this.dictionary.set(loaded);
+
+            getLogger().info("§aNew dictionary system initialized (" + loaded.size() + " entries) in "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+            getLogger().info("§7Dictionary load phases - " + loaded.getLoadTimings());
+
+            long refreshMinutes = getConfig().getLong("google-ime.enrichment.refresh-minutes", 360);
+            if (refreshMinutes > 0) {
+                long periodTicks = refreshMinutes * 60 * 20;
+                scheduleTimer(() ->
+                    loaded.refreshEnrichments(Duration.ofMinutes(refreshMinutes)).thenAccept(refreshed -> {
+                        if (refreshed > 0) {
+                            getLogger().info("§7Refreshed " + refreshed + " Google IME enrichments");
+                        }
+                    }), periodTicks);
+            }
+
+            // Learned conversions are saved like the statistics, every few minutes and on disable
+            scheduleTimer(() -> loaded.getLearnedDictionary().save(), 5 * 60 * 20);
+
+            if (getConfig().getBoolean("dictionary.watch", true)) {
+                watchDictionaryFiles(loaded);
+            }
+        } catch (Exception e) {
+            getLogger().warning("§cFailed to initialize dictionary system, using legacy mode");
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Run a task asynchronously every periodTicks, unless the plugin was disabled meanwhile
+     * (Bukkit refuses tasks from a disabled plugin and cancels ours after onDisable)
+     */
+    private synchronized void scheduleTimer(Runnable task, long periodTicks) {
+        if (!disabled) {
+            getServer().getScheduler().runTaskTimerAsynchronously(this, task, periodTicks, periodTicks);
+        }
+    }
+
+    /**
+     * Reload the dictionary when its files in the data folder change
+     */
+    private void watchDictionaryFiles(RomajiDictionary loaded) {
+        long debounce = getConfig().getLong("dictionary.watch-debounce-ms", 1000);
+        try {
+            DictionaryWatcher watcher = new DictionaryWatcher(getDataFolder().toPath(),
+                RomajiDictionary.SOURCE_FILES, debounce, () -> {
+                    // Skip events caused by our own saves
+                    if (!loaded.hasSourceChanges()) {
+                        return;
+                    }
+                    try {
+                        DictionarySnapshot snapshot = loaded.reload();
+                        getLogger().info("§aDictionary reloaded after file change (v" + snapshot.getVersion()
+                            + ", " + snapshot.size() + " entries) - " + snapshot.getLoadTimings());
+                    } catch (Exception e) {
+                        getLogger().warning("§cDictionary reload failed, keeping the previous version: "
+                            + e.getMessage());
+                    }
+                });
+            synchronized (this) {
+                if (disabled) {
+                    // onDisable already ran and will not close it
+                    watcher.close();
+                    return;
+                }
+                dictionaryWatcher = watcher;
+                watcher.start();
+            }
+        } catch (IOException e) {
+            getLogger().warning("§cCould not watch dictionary files: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Apply conversion.budget-us from config.yml to the pipeline tiers (unset tiers keep their default)
+     */
+    private void configureConversionBudgets(ConversionPipeline pipeline) {
+        for (ConversionPipeline.Tier tier : pipeline.getTiers()) {
+            String path = "conversion.budget-us." + tier.getName();
+            if (getConfig().contains(path)) {
+                tier.setBudget(Duration.ofNanos(getConfig().getLong(path) * 1000));
+            }
+        }
+    }
+
+    /**
+     * Apply the word-cache section of config.yml
+     */
+    private void configureWordCache() {
+        int size = getConfig().getInt("word-cache.size", 4096);
+        String policyName = getConfig().getString("word-cache.policy", "LRU");
+
+        BoundedCache.EvictionPolicy policy;
+        try {
+            policy = BoundedCache.EvictionPolicy.valueOf(policyName.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            getLogger().warning("§cUnknown word-cache.policy '" + policyName + "', using LRU");
+            policy = BoundedCache.EvictionPolicy.LRU;
+        }
+
+        RomajiConverter.configureWordCache(size, policy);
+    }
+
+    /**
+     * Apply the google-ime section of config.yml
+     */
+    private void configureGoogleIME(GoogleIMEClient googleIME) {
+        googleIME.configureCache(
+            Math.max(1, getConfig().getInt("google-ime.cache.size", 10000)),
+            Math.max(1, getConfig().getLong("google-ime.cache.max-memory-kb", 4096)) * 1024,
+            Duration.ofMinutes(getConfig().getLong("google-ime.cache.ttl-minutes", 360)),
+            Duration.ofSeconds(getConfig().getLong("google-ime.cache.negative-ttl-seconds", 60)));
+
+        long maxTimeout = Math.max(1, getConfig().getLong("google-ime.timeout.max-ms", 3000));
+        long minTimeout = Math.min(maxTimeout, Math.max(1, getConfig().getLong("google-ime.timeout.min-ms", 250)));
+        googleIME.configureTimeout(Duration.ofMillis(minTimeout), Duration.ofMillis(maxTimeout),
+            getConfig().getDouble("google-ime.timeout.p99-multiplier", 3.0));
+        googleIME.configureCircuitBreaker(
+            Math.max(1, getConfig().getInt("google-ime.circuit-breaker.failure-threshold", 5)),
+            Duration.ofSeconds(getConfig().getLong("google-ime.circuit-breaker.open-seconds", 30)));
+        googleIME.configureRateLimit(
+            Math.max(0.1, getConfig().getDouble("google-ime.rate-limit.requests-per-second", 20)),
+            Math.max(1, getConfig().getInt("google-ime.rate-limit.burst", 40)));
+
+        if (getConfig().getBoolean("google-ime.persistent-cache.enabled", true)) {
+            IMECacheFile file = new IMECacheFile(getDataFolder().toPath().resolve("ime-cache.bin"),
+                Math.max(64, getConfig().getLong("google-ime.persistent-cache.compact-kb", 8192)) * 1024,
+                Math.max(1, getConfig().getInt("google-ime.cache.size", 10000)));
+            int loaded = googleIME.attachPersistentCache(file);
+            synchronized (this) {
+                if (disabled) {
+                    // Never started, so there is no flusher to stop
+                    return;
+                }
+                file.start(Duration.ofSeconds(Math.max(1, getConfig().getLong("google-ime.persistent-cache.flush-seconds", 5))));
+                imeCacheFile = file;
+            }
+            getLogger().info("§7Google IME cache: " + loaded + " results restored from ime-cache.bin");
+        }
+    }
+
     @Override
     public void onDisable() {
+        synchronized (this) {
+            disabled = true;
+            if (dictionaryWatcher != null) {
+                try {
+                    dictionaryWatcher.close();
+                } catch (IOException e) {
+                    // Shutting down anyway
+                }
+                dictionaryWatcher = null;
+            }
+            if (imeCacheFile != null) {
+                try {
+                    imeCacheFile.close();
+                } catch (IOException e) {
+                    getLogger().warning("§cFailed to write ime-cache.bin: " + e.getMessage());
+                }
+                imeCacheFile = null;
+            }
+        }
+
         // Save statistics before shutdown
         if (stats != null) {
             stats.save();
         }
+
+        if (messageCache != null) {
+            BoundedCache<?, ConvertedMessage> cache = messageCache.getCache();
+            getLogger().info(String.format("§7Message cache: %d entries, hit rate %.1f%%, %d evicted, %d expired",
+                cache.size(), cache.getHitRate() * 100, cache.getEvictionCount(), cache.getExpiredCount()));
+        }
+        if (classifier != null) {
+            getLogger().info("§7Romaji classifier: " + classifier.getSkippedMessageCount() + "/"
+                + classifier.getMessageCount() + " messages skipped, " + classifier.getRomajiWordCount()
+                + " words converted, " + classifier.getSkippedWordCount() + " words skipped");
+        }
+
+        RomajiDictionary loaded = dictionary.get();
+        if (loaded != null) {
+            LearnedDictionary learned = loaded.getLearnedDictionary();
+            learned.save();
+            getLogger().info("§7Learned conversions: " + learned.size() + "/" + learned.getMaximumSize()
+                + " (" + learned.getDemotionCount() + " demoted)");
+            getLogger().info("§7Google IME prefetch deadline misses: " + loaded.getPrefetchDeadlineMissCount());
+            for (ConversionPipeline.Tier tier : loaded.getPipeline().getTiers()) {
+                getLogger().info("§7Conversion tier " + tier);
+            }
+            GoogleIMEClient googleIME = loaded.getGoogleIME();
+            BoundedCache<String, List<String>> imeCache = googleIME.getCache();
+            getLogger().info(String.format("§7Google IME cache: %d entries (%d KB), hit rate %.1f%%, %d evicted, %d expired",
+                imeCache.size(), imeCache.getWeight() / 1024, imeCache.getHitRate() * 100,
+                imeCache.getEvictionCount(), imeCache.getExpiredCount()));
+            getLogger().info("§7Google IME requests: " + googleIME.getRequestCount() + " sent, "
+                + googleIME.getCoalescedCount() + " coalesced, "
+                + googleIME.getRateLimiter().getRejectedCount() + " rate-limited, "
+                + loaded.getEnrichmentCount() + " dictionary words enriched");
+            CircuitBreaker breaker = googleIME.getCircuitBreaker();
+            getLogger().info("§7Google IME circuit: " + breaker.getState() + " (opened " + breaker.getOpenedCount()
+                + ", half-opened " + breaker.getHalfOpenedCount() + ", closed " + breaker.getClosedCount()
+                + ", rejected " + breaker.getRejectedCount() + "), timeout "
+                + googleIME.getRequestTimeout().current().toMillis() + " ms (p99 "
+                + googleIME.getRequestTimeout().getP99().toMillis() + " ms)");
+        }
         
         getLogger().info("§cRomajiSwitcher disabled!");
     }
@@ -63,8 +305,11 @@ public class RomajiSwitcher extends JavaPlugin {
         return preferences;
     }
 
+    /**
+     * @return The dictionary, or null while it is still loading (or if loading failed)
+     */
     public RomajiDictionary getDictionary() {
-        return dictionary;
+        return dictionary.get();
     }
 
     public ConversionStats getStats() {
@@ -43,6 +43,10 @@ public class RomajiTabCompleter implements TabCompleter {
                 } else if (args.length == 3) {
                     return getColorOptions(args[2]);
                 }
+            } else if (subCommand.equals("display")) {
+                if (args.length == 2) {
+                    return filterMatches(Arrays.asList("both", "japanese"), args[1]);
+                }
             } else if (subCommand.equals("dictionary")) {
                 if (args.length == 2) {
                     return getDictionaryActions(args[1]);
@@ -57,6 +61,7 @@ public class RomajiTabCompleter implements TabCompleter {
         List<String> commands = Arrays.asList(
                 "switch",
                 "color",
+                "display",
                 "dictionary"
         );
         return filterMatches(commands, prefix);
@@ -73,7 +78,7 @@ public class RomajiTabCompleter implements TabCompleter {
     }
 
     private List<String> getDictionaryActions(String prefix) {
-        List<String> actions = Arrays.asList("add", "del", "list");
+        List<String> actions = Arrays.asList("add", "del", "list", "reload");
         return filterMatches(actions, prefix);
     }
 
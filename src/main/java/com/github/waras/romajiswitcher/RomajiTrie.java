@@ -0,0 +1,193 @@
+package com.github.waras.romajiswitcher;
+
+import java.util.*;
+
+/**
+ * Char-indexed trie compiled once from the romaji table.
+ * Walks the input in place (no substrings) and resolves the special rules as states:
+ * - N_LOOKAHEAD: "na/ni/nu/ne/no" is rejected when another vowel/y follows, so "n" (ん) wins
+ * - GEMINATE: a doubled consonant followed by a valid onset becomes the sokuon state (っ)
+ */
+public class RomajiTrie {
+    /** Returned by {@link #match} when nothing matches at the position */
+    public static final int NO_MATCH = 0;
+
+    private static final int ROOT = 0;
+    private static final int ALPHABET = 26;
+
+    private static final byte SOKUON_ONSET = 1;
+    private static final byte N_LOOKAHEAD = 2;
+    private static final byte GEMINATE = 4;
+
+    private final int[] transitions;
+    private final String[] outputs;
+    private final byte[] depths;
+    private final byte[] flags;
+    private final int sokuonState;
+
+    private RomajiTrie(int[] transitions, String[] outputs, byte[] depths, byte[] flags, int sokuonState) {
+        this.transitions = transitions;
+        this.outputs = outputs;
+        this.depths = depths;
+        this.flags = flags;
+        this.sokuonState = sokuonState;
+    }
+
+    /**
+     * Compile the romaji table into a trie
+     * @param table Romaji → kana mappings (lowercase a-z keys)
+     * @param sokuonOnsets Romaji sequences that may follow a doubled consonant (っ)
+     */
+    public static RomajiTrie compile(Map<String, String> table, String[] sokuonOnsets) {
+        int capacity = 3;
+        for (String key : table.keySet()) {
+            capacity += key.length();
+        }
+        for (String onset : sokuonOnsets) {
+            capacity += onset.length();
+        }
+
+        int[] transitions = new int[capacity * ALPHABET];
+        String[] outputs = new String[capacity];
+        byte[] depths = new byte[capacity];
+        byte[] flags = new byte[capacity];
+        int[] nodeCount = {1};
+
+        for (Map.Entry<String, String> entry : table.entrySet()) {
+            int node = insert(entry.getKey(), transitions, depths, nodeCount);
+            outputs[node] = entry.getValue();
+            String key = entry.getKey();
+            if (key.length() == 2 && key.charAt(0) == 'n' && isVowelOrY(key.charAt(1))) {
+                flags[node] |= N_LOOKAHEAD;
+            }
+        }
+
+        // Standalone n is always ん once longer matches have been ruled out
+        int n = insert("n", transitions, depths, nodeCount);
+        if (outputs[n] == null) {
+            outputs[n] = "ん";
+        }
+
+        // n and y never double into っ ("nn" is ん, "yy" stays as typed)
+        for (String onset : sokuonOnsets) {
+            char first = onset.charAt(0);
+            if (first == 'n' || first == 'y') {
+                continue;
+            }
+            flags[insert(onset, transitions, depths, nodeCount)] |= SOKUON_ONSET;
+            flags[transitions[ROOT * ALPHABET + (first - 'a')]] |= GEMINATE;
+        }
+
+        int sokuonState = nodeCount[0]++;
+        outputs[sokuonState] = "っ";
+        depths[sokuonState] = 1;
+
+        int size = nodeCount[0];
+        return new RomajiTrie(Arrays.copyOf(transitions, size * ALPHABET), Arrays.copyOf(outputs, size),
+                Arrays.copyOf(depths, size), Arrays.copyOf(flags, size), sokuonState);
+    }
+
+    private static int insert(String key, int[] transitions, byte[] depths, int[] nodeCount) {
+        int node = ROOT;
+        for (int i = 0; i < key.length(); i++) {
+            int c = index(key.charAt(i));
+            if (c < 0) {
+                throw new IllegalArgumentException("Romaji keys must be a-z: " + key);
+            }
+            int next = transitions[node * ALPHABET + c];
+            if (next == ROOT) {
+                next = nodeCount[0]++;
+                transitions[node * ALPHABET + c] = next;
+                depths[next] = (byte) (i + 1);
+            }
+            node = next;
+        }
+        return node;
+    }
+
+    /**
+     * Find the state matched at {@code start}: the longest accepted key, or the sokuon state.
+     * Input characters are lowercased on the fly.
+     * @return State id, or {@link #NO_MATCH}
+     */
+    public int match(CharSequence text, int start, int end) {
+        int node = ROOT;
+        int best = NO_MATCH;
+
+        for (int i = start; i < end; i++) {
+            int c = index(lower(text.charAt(i)));
+            if (c < 0) {
+                break;
+            }
+            node = transitions[node * ALPHABET + c];
+            if (node == ROOT) {
+                break;
+            }
+            if (outputs[node] != null) {
+                boolean rejected = (flags[node] & N_LOOKAHEAD) != 0
+                        && i + 1 < end && isVowelOrY(lower(text.charAt(i + 1)));
+                if (!rejected) {
+                    best = node;
+                }
+            }
+        }
+
+        if (best == NO_MATCH && start + 1 < end) {
+            char current = lower(text.charAt(start));
+            int c = index(current);
+            if (c >= 0 && (flags[transitions[c]] & GEMINATE) != 0
+                    && lower(text.charAt(start + 1)) == current && startsWithOnset(text, start + 1, end)) {
+                return sokuonState;
+            }
+        }
+
+        return best;
+    }
+
+    private boolean startsWithOnset(CharSequence text, int start, int end) {
+        int node = ROOT;
+        for (int i = start; i < end; i++) {
+            int c = index(lower(text.charAt(i)));
+            if (c < 0) {
+                return false;
+            }
+            node = transitions[node * ALPHABET + c];
+            if (node == ROOT) {
+                return false;
+            }
+            if ((flags[node] & SOKUON_ONSET) != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Kana emitted by a matched state
+     */
+    public String output(int state) {
+        return outputs[state];
+    }
+
+    /**
+     * Number of input characters consumed by a matched state
+     */
+    public int length(int state) {
+        return depths[state];
+    }
+
+    static char lower(char c) {
+        if (c >= 'A' && c <= 'Z') {
+            return (char) (c + ('a' - 'A'));
+        }
+        return c < 0x80 ? c : Character.toLowerCase(c);
+    }
+
+    private static int index(char c) {
+        return c >= 'a' && c <= 'z' ? c - 'a' : -1;
+    }
+
+    private static boolean isVowelOrY(char c) {
+        return c == 'a' || c == 'i' || c == 'u' || c == 'e' || c == 'o' || c == 'y';
+    }
+}
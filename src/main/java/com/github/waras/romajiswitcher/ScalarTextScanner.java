@@ -0,0 +1,42 @@
+package com.github.waras.romajiswitcher;
+
+/**
+ * Character-by-character {@link TextScanner}, used when the Vector API is not available
+ */
+final class ScalarTextScanner implements TextScanner {
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+
+    @Override
+    public MessageScan scan(CharSequence text) {
+        int length = text.length();
+        long[] word = new long[MessageScan.words(length)];
+        long[] whitespace = new long[word.length];
+        int japanese = -1;
+        for (int i = 0; i < length; i++) {
+            char ch = text.charAt(i);
+            if (japanese < 0 && MessageScan.isJapanese(ch)) {
+                japanese = i;
+            }
+            if (MessageScan.isAsciiWordChar(ch)) {
+                word[i >>> 6] |= 1L << i;
+            } else if (MessageScan.isAsciiWhitespace(ch)) {
+                whitespace[i >>> 6] |= 1L << i;
+            }
+        }
+        return new MessageScan(text, japanese, word, whitespace);
+    }
+
+    @Override
+    public int indexOfJapanese(CharSequence text) {
+        for (int i = 0, length = text.length(); i < length; i++) {
+            if (MessageScan.isJapanese(text.charAt(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
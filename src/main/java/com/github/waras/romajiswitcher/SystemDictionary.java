@@ -0,0 +1,33 @@
+package com.github.waras.romajiswitcher;
+
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Read-only store of system (IPADIC) entries used by RomajiDictionary.
+ * Keys passed in must already be lowercase.
+ */
+public interface SystemDictionary {
+
+    /**
+     * Check if a romaji key exists
+     */
+    boolean contains(CharSequence romaji);
+
+    /**
+     * Get the candidates for a romaji key, or an empty list
+     */
+    List<ConversionCandidate> getCandidates(CharSequence romaji);
+
+    /**
+     * Get the entry for a romaji key as a system-priority DictionaryEntry, or null
+     */
+    DictionaryEntry getEntry(String romaji);
+
+    /**
+     * Visit every entry in key order
+     */
+    void forEach(Consumer<DictionaryEntry> consumer);
+
+    int size();
+}
@@ -0,0 +1,21 @@
+package com.github.waras.romajiswitcher;
+
+/**
+ * Single pass over a chat message before it is tokenized: finds Japanese characters and marks the
+ * ASCII word and whitespace characters the {@link MessageLexer} would otherwise test one by one.
+ * {@link MessageScan#scanner()} picks the Vector API implementation when the JVM provides it.
+ */
+public interface TextScanner {
+
+    /**
+     * Short name for logs (e.g. "vector (16 lanes)")
+     */
+    String getName();
+
+    MessageScan scan(CharSequence text);
+
+    /**
+     * Index of the first kanji, hiragana or katakana character, or -1
+     */
+    int indexOfJapanese(CharSequence text);
+}
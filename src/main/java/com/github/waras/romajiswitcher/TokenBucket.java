@@ -0,0 +1,71 @@
+package com.github.waras.romajiswitcher;
+
+import java.util.function.LongSupplier;
+
+/**
+ * Thread-safe, non-blocking token bucket rate limiter.
+ * Tokens refill continuously at {@code permitsPerSecond} up to {@code burst}; a call that finds
+ * no token is rejected instead of waiting.
+ */
+public class TokenBucket {
+    private final double permitsPerSecond;
+    private final double burst;
+    private final LongSupplier nanoClock;
+
+    private double tokens;
+    private long lastRefill;
+    private long grantedCount;
+    private long rejectedCount;
+
+    /**
+     * @param permitsPerSecond Sustained rate (greater than 0)
+     * @param burst Maximum number of calls allowed at once (at least 1); the bucket starts full
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        this(permitsPerSecond, burst, System::nanoTime);
+    }
+
+    TokenBucket(double permitsPerSecond, int burst, LongSupplier nanoClock) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        }
+        if (burst < 1) {
+            throw new IllegalArgumentException("burst must be at least 1: " + burst);
+        }
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = burst;
+        this.nanoClock = nanoClock;
+        this.tokens = burst;
+        this.lastRefill = nanoClock.getAsLong();
+    }
+
+    /**
+     * Take one token if available
+     * @return false if the rate limit is exceeded
+     */
+    public synchronized boolean tryAcquire() {
+        long now = nanoClock.getAsLong();
+        tokens = Math.min(burst, tokens + (now - lastRefill) * permitsPerSecond / 1_000_000_000.0);
+        lastRefill = now;
+
+        if (tokens >= 1) {
+            tokens -= 1;
+            grantedCount++;
+            return true;
+        }
+        rejectedCount++;
+        return false;
+    }
+
+    public double getPermitsPerSecond() {
+        return permitsPerSecond;
+    }
+
+    public synchronized long getGrantedCount() {
+        return grantedCount;
+    }
+
+    public synchronized long getRejectedCount() {
+        return rejectedCount;
+    }
+}
@@ -6,18 +6,24 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonElement;
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Manages user preferences for romaji conversion with persistent storage
  * Stores: enabled status and color preferences
+ *
+ * Settings are changed under this object's lock; every change rebuilds the player's immutable
+ * {@link RenderProfile}, which readers get with a single concurrent map read.
  */
 public class UserPreferences {
-    private final Map<UUID, UserSettings> userSettings = new HashMap<>();
+    private final Map<UUID, UserSettings> userSettings = new ConcurrentHashMap<>();
+    private final Map<UUID, RenderProfile> profiles = new ConcurrentHashMap<>();
     private final File configFile;
     private final Gson gson;
 
     public static class UserSettings {
         public boolean enabled = true;
+        public boolean showRomaji = true;           // Show romaji in parentheses in received messages
         public String japaneseColor = "white";      // Default color for Japanese text
         public String romajiColor = "gray";         // Default color for Romaji text (parentheses)
 
@@ -53,6 +59,7 @@ public class UserPreferences {
                         JsonElement element = data.get(uuidStr);
                         UserSettings settings = gson.fromJson(element, UserSettings.class);
                         userSettings.put(uuid, settings);
+                        profiles.put(uuid, RenderProfile.of(settings));
                     } catch (IllegalArgumentException e) {
                         // Invalid UUID, skip
                     }
@@ -87,27 +94,57 @@ public class UserPreferences {
         return userSettings.computeIfAbsent(playerId, k -> new UserSettings());
     }
 
-    public void setEnabled(UUID playerId, boolean enabled) {
-        getOrCreateSettings(playerId).enabled = enabled;
+    /**
+     * Current rendering profile of a player (the default profile if they never changed a setting)
+     */
+    public RenderProfile getProfile(UUID playerId) {
+        RenderProfile profile = profiles.get(playerId);
+        return profile != null ? profile : RenderProfile.DEFAULT;
+    }
+
+    /**
+     * Publish the changed settings of a player and save them
+     */
+    private void publish(UUID playerId, UserSettings settings) {
+        profiles.put(playerId, RenderProfile.of(settings));
         saveSettings();
     }
 
+    public synchronized void setEnabled(UUID playerId, boolean enabled) {
+        UserSettings settings = getOrCreateSettings(playerId);
+        settings.enabled = enabled;
+        publish(playerId, settings);
+    }
+
     public boolean isEnabled(UUID playerId) {
-        return getOrCreateSettings(playerId).enabled;
+        return getProfile(playerId).isEnabled();
     }
 
-    public void toggleEnabled(UUID playerId) {
+    public synchronized void toggleEnabled(UUID playerId) {
         boolean current = isEnabled(playerId);
         setEnabled(playerId, !current);
     }
 
+    /**
+     * Set whether a player sees the romaji in parentheses after converted words
+     */
+    public synchronized void setShowRomaji(UUID playerId, boolean showRomaji) {
+        UserSettings settings = getOrCreateSettings(playerId);
+        settings.showRomaji = showRomaji;
+        publish(playerId, settings);
+    }
+
+    public boolean isShowRomaji(UUID playerId) {
+        return getProfile(playerId).isShowRomaji();
+    }
+
     /**
      * Set color preferences for a player
      * @param playerId Player UUID
      * @param japaneseColor Color for Japanese text
      * @param romajiColor Color for Romaji text (in parentheses)
      */
-    public void setColors(UUID playerId, String japaneseColor, String romajiColor) {
+    public synchronized void setColors(UUID playerId, String japaneseColor, String romajiColor) {
         UserSettings settings = getOrCreateSettings(playerId);
         
         // Validate colors
@@ -118,7 +155,7 @@ public class UserPreferences {
             settings.romajiColor = romajiColor;
         }
         
-        saveSettings();
+        publish(playerId, settings);
     }
 
     /**
@@ -126,18 +163,18 @@ public class UserPreferences {
      * @return Array: [japaneseColor, romajiColor]
      */
     public String[] getColors(UUID playerId) {
-        UserSettings settings = getOrCreateSettings(playerId);
-        return new String[] { settings.japaneseColor, settings.romajiColor };
+        RenderProfile profile = getProfile(playerId);
+        return new String[] { profile.getJapaneseColor(), profile.getRomajiColor() };
     }
 
     /**
      * Get color preference (single)
      */
     public String getJapaneseColor(UUID playerId) {
-        return getOrCreateSettings(playerId).japaneseColor;
+        return getProfile(playerId).getJapaneseColor();
     }
 
     public String getRomajiColor(UUID playerId) {
-        return getOrCreateSettings(playerId).romajiColor;
+        return getProfile(playerId).getRomajiColor();
     }
 }
@@ -0,0 +1,164 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for BoundedCache eviction policies and counters
+ */
+public class BoundedCacheTest {
+
+    @Test
+    void testLruEvictsLeastRecentlyUsed() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2, BoundedCache.EvictionPolicy.LRU);
+        cache.put("a", "1");
+        cache.put("b", "2");
+        cache.get("a");
+        cache.put("c", "3");
+
+        assertEquals("1", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals("3", cache.get("c"));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.getEvictionCount());
+    }
+
+    @Test
+    void testHitAndMissCounters() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, BoundedCache.EvictionPolicy.LRU);
+        cache.put("ohayou", "おはよう");
+        cache.get("ohayou");
+        cache.get("ohayou");
+        cache.get("otsu");
+
+        assertEquals(2, cache.getHitCount());
+        assertEquals(1, cache.getMissCount());
+        assertEquals(2.0 / 3, cache.getHitRate(), 1e-9);
+    }
+
+    @Test
+    void testTinyLfuKeepsFrequentEntries() {
+        BoundedCache<String, Integer> cache = new BoundedCache<>(100, BoundedCache.EvictionPolicy.TINY_LFU);
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 50; i++) {
+                String key = "hot" + i;
+                if (cache.get(key) == null) {
+                    cache.put(key, i);
+                }
+            }
+        }
+
+        // A scan of one-off keys must not flush the frequently used ones
+        for (int i = 0; i < 1000; i++) {
+            String key = "scan" + i;
+            if (cache.get(key) == null) {
+                cache.put(key, i);
+            }
+        }
+
+        int retained = 0;
+        for (int i = 0; i < 50; i++) {
+            if (cache.get("hot" + i) != null) {
+                retained++;
+            }
+        }
+        assertTrue(retained >= 45, "retained " + retained);
+        assertTrue(cache.size() <= 100);
+    }
+
+    @Test
+    void testClearStartsNewGeneration() {
+        BoundedCache<String, String> cache = new BoundedCache<>(10, BoundedCache.EvictionPolicy.LRU);
+        long generation = cache.generation();
+        cache.clear();
+
+        assertFalse(cache.putIfGeneration("a", "1", generation));
+        assertNull(cache.get("a"));
+        assertTrue(cache.putIfGeneration("a", "1", cache.generation()));
+    }
+
+    @Test
+    void testWordCacheInvalidatedByKanjiEdits() {
+        RomajiConverter.configureWordCache(100, BoundedCache.EvictionPolicy.TINY_LFU);
+        try {
+            assertEquals("ねこ", RomajiConverter.convertWord("neko").japanese);
+            assertEquals("ねこ", RomajiConverter.convertWord("neko").japanese);
+            assertEquals(1, RomajiConverter.getWordCache().getHitCount());
+
+            RomajiConverter.addKanjiEntry("neko", "猫");
+            assertEquals("猫", RomajiConverter.convertWord("neko").japanese);
+
+            RomajiConverter.removeKanjiEntry("neko");
+            assertEquals("ねこ", RomajiConverter.convertWord("neko").japanese);
+        } finally {
+            RomajiConverter.removeKanjiEntry("neko");
+            RomajiConverter.configureWordCache(0, BoundedCache.EvictionPolicy.LRU);
+        }
+    }
+
+    @Test
+    void testEntriesExpireAfterTimeToLive() {
+        AtomicLong now = new AtomicLong();
+        BoundedCache<String, String> cache = new BoundedCache<>(10, BoundedCache.EvictionPolicy.LRU,
+            Long.MAX_VALUE, null, now::get);
+        cache.put("short", "1", Duration.ofSeconds(1));
+        cache.put("long", "2", Duration.ofMinutes(1));
+        cache.put("forever", "3");
+
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+
+        assertNull(cache.get("short"));
+        assertEquals("2", cache.get("long"));
+        assertEquals("3", cache.get("forever"));
+        assertEquals(1, cache.getExpiredCount());
+        assertEquals(2, cache.size());
+    }
+
+    @Test
+    void testWeightBudgetEvictsEldest() {
+        BoundedCache<String, String> cache = new BoundedCache<>(100, BoundedCache.EvictionPolicy.LRU,
+            10, (key, value) -> value.length());
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        cache.get("a");
+        cache.put("c", "cccc");
+
+        assertEquals("aaaa", cache.get("a"));
+        assertNull(cache.get("b"));
+        assertEquals(8, cache.getWeight());
+        assertEquals(1, cache.getEvictionCount());
+
+        cache.put("a", "a");
+        assertEquals(5, cache.getWeight());
+        cache.remove("c");
+        assertEquals(1, cache.getWeight());
+    }
+
+    @Test
+    void testWeightBudgetWithTinyLfu() {
+        BoundedCache<Integer, String> cache = new BoundedCache<>(1000, BoundedCache.EvictionPolicy.TINY_LFU,
+            50, (key, value) -> value.length());
+        for (int i = 0; i < 200; i++) {
+            cache.put(i, "xxxxx");
+            assertTrue(cache.getWeight() <= 50);
+        }
+        assertEquals(cache.size() * 5L, cache.getWeight());
+    }
+
+    @Test
+    void testSnapshotLeavesOrderAndCountersAlone() {
+        BoundedCache<String, String> cache = new BoundedCache<>(2, BoundedCache.EvictionPolicy.LRU);
+        cache.put("a", "1");
+        cache.put("b", "2");
+
+        assertEquals(java.util.Map.of("a", "1", "b", "2"), cache.snapshot());
+        cache.put("c", "3");
+
+        // "a" was not touched by the snapshot, so it is still the eldest
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.getHitCount());
+    }
+}
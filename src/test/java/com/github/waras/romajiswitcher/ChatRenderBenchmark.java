@@ -0,0 +1,112 @@
+package com.github.waras.romajiswitcher;
+
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import net.kyori.adventure.text.format.Style;
+import org.openjdk.jmh.annotations.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Chat message rendering: the builder-based, run-merging ConvertedMessage renderer against the previous
+ * renderer that appended one component per span to an immutable component.
+ * Render time via JMH; bytes allocated and number of children per message printed once per trial
+ * as "[allocation]".
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=ChatRenderBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Benchmark)
+@Fork(1)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class ChatRenderBenchmark {
+
+    private static final String[] WORDS = {
+        "konnichiwa", "arigatou", "sugoi", "kawaii", "ok", "lol", "https://example.com", "@steve",
+        "watashi", "nihongo", "gg", "123", "tanoshii", "desu", "ne", "!", "minecraft", "ikou"
+    };
+    private static final int MESSAGE_LENGTH = 256;
+
+    private final Style japaneseStyle = ColorManager.getStyle("yellow");
+    private final Style romajiStyle = ColorManager.getStyle("gray");
+    private String message;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(1);
+        StringBuilder text = new StringBuilder(MESSAGE_LENGTH);
+        while (text.length() < MESSAGE_LENGTH) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        message = text.substring(0, MESSAGE_LENGTH);
+
+        System.out.printf("[allocation] chars=%d appendPerSpan=%.1f KB (%d children) builder=%.1f KB (%d children)%n",
+            message.length(),
+            allocatedBy(this::appendPerSpan) / 1024.0, appendPerSpan().children().size(),
+            allocatedBy(this::builder) / 1024.0, builder().children().size());
+    }
+
+    @Benchmark
+    public Component appendPerSpan() {
+        LegacyWriter writer = new LegacyWriter(message, NamedTextColor.YELLOW, NamedTextColor.GRAY);
+        MessageLexer.tokenize(message, writer);
+        return writer.result;
+    }
+
+    @Benchmark
+    public Component builder() {
+        return render(message, japaneseStyle, romajiStyle);
+    }
+
+    /**
+     * Convert with the legacy converter and render once, romaji shown in parentheses
+     */
+    private static Component render(String text, Style japaneseStyle, Style romajiStyle) {
+        return ConvertedMessage.convert(text, null, null).render(japaneseStyle, romajiStyle, true);
+    }
+
+    private static long allocatedBy(Supplier<?> task) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        // Warm up so class loading is not counted
+        task.get();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        task.get();
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    /**
+     * The previous ChatListener renderer: every span appended to the immutable result
+     */
+    private static final class LegacyWriter implements MessageLexer.SpanConsumer {
+        private final String text;
+        private final NamedTextColor japaneseColor;
+        private final NamedTextColor romajiColor;
+        private Component result = Component.empty();
+
+        LegacyWriter(String text, NamedTextColor japaneseColor, NamedTextColor romajiColor) {
+            this.text = text;
+            this.japaneseColor = japaneseColor;
+            this.romajiColor = romajiColor;
+        }
+
+        @Override
+        public void accept(MessageLexer.SpanType type, int start, int end) {
+            if (type != MessageLexer.SpanType.ROMAJI_WORD) {
+                result = result.append(Component.text(text.substring(start, end)));
+                return;
+            }
+
+            RomajiConverter.ConversionResult convResult = RomajiConverter.convertWord(text, start, end);
+            if (!convResult.japanese.equals(text.substring(start, end))) {
+                result = result.append(Component.text(convResult.japanese).color(japaneseColor))
+                    .append(Component.text("(" + convResult.originalRomaji + ")").color(romajiColor));
+            } else {
+                result = result.append(Component.text(convResult.japanese));
+            }
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for CircuitBreaker state transitions
+ */
+public class CircuitBreakerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofSeconds(10), now::get);
+
+    @Test
+    void testOpensAfterConsecutiveFailures() {
+        fail(2);
+        breaker.tryAcquire().onSuccess();
+        fail(2);
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+
+        fail(1);
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+        assertEquals(1, breaker.getOpenedCount());
+        assertEquals(1, breaker.getRejectedCount());
+    }
+
+    @Test
+    void testHalfOpenAllowsOneProbe() {
+        fail(3);
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+        assertNotNull(probe);
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+
+        probe.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        assertNotNull(breaker.tryAcquire());
+        assertEquals(1, breaker.getHalfOpenedCount());
+        assertEquals(1, breaker.getClosedCount());
+    }
+
+    @Test
+    void testFailedProbeReopens() {
+        fail(3);
+        now.addAndGet(Duration.ofSeconds(11).toNanos());
+
+        breaker.tryAcquire().onFailure();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+        assertEquals(2, breaker.getOpenedCount());
+    }
+
+    @Test
+    void testLateSuccessDoesNotCloseOpenBreaker() {
+        CircuitBreaker.Permit late = breaker.tryAcquire();
+        fail(3);
+        late.onSuccess();
+
+        assertEquals(CircuitBreaker.State.OPEN, breaker.getState());
+    }
+
+    @Test
+    void testOnlyTheProbeDecidesWhileHalfOpen() {
+        CircuitBreaker.Permit lateSuccess = breaker.tryAcquire();
+        CircuitBreaker.Permit lateFailure = breaker.tryAcquire();
+        fail(3);
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+        CircuitBreaker.Permit probe = breaker.tryAcquire();
+
+        lateSuccess.onSuccess();
+        lateFailure.onFailure();
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertNull(breaker.tryAcquire());
+
+        probe.onSuccess();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+        // A permit reports once
+        probe.onFailure();
+        assertEquals(CircuitBreaker.State.CLOSED, breaker.getState());
+    }
+
+    @Test
+    void testCancelledProbeFreesTheSlot() {
+        fail(3);
+        now.addAndGet(Duration.ofSeconds(10).toNanos());
+
+        breaker.tryAcquire().cancel();
+
+        assertEquals(CircuitBreaker.State.HALF_OPEN, breaker.getState());
+        assertNotNull(breaker.tryAcquire());
+    }
+
+    private void fail(int times) {
+        for (int i = 0; i < times; i++) {
+            CircuitBreaker.Permit permit = breaker.tryAcquire();
+            assertNotNull(permit);
+            permit.onFailure();
+        }
+    }
+}
@@ -0,0 +1,90 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the double-array trie and the packed system dictionary
+ */
+public class CompactDictionaryTest {
+
+    @Test
+    void testTrieMatchesHashMap() {
+        Random random = new Random(7);
+        Map<String, Integer> expected = new HashMap<>();
+        String letters = "aiueoknstmhrgzdbpyw";
+        while (expected.size() < 5000) {
+            StringBuilder key = new StringBuilder();
+            int length = 1 + random.nextInt(10);
+            for (int i = 0; i < length; i++) {
+                key.append(letters.charAt(random.nextInt(letters.length())));
+            }
+            expected.putIfAbsent(key.toString(), expected.size());
+        }
+
+        String[] keys = expected.keySet().toArray(new String[0]);
+        int[] values = new int[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            values[i] = expected.get(keys[i]);
+        }
+        DoubleArrayTrie trie = DoubleArrayTrie.build(keys, values);
+
+        assertEquals(expected.size(), trie.size());
+        for (Map.Entry<String, Integer> e : expected.entrySet()) {
+            assertEquals(e.getValue().intValue(), trie.get(e.getKey()));
+        }
+        for (int i = 0; i < 5000; i++) {
+            String probe = keys[random.nextInt(keys.length)] + "x";
+            assertEquals(expected.getOrDefault(probe, -1).intValue(), trie.get(probe));
+        }
+
+        List<String> visited = new ArrayList<>();
+        trie.forEach((key, value) -> visited.add(key));
+        List<String> sorted = new ArrayList<>(expected.keySet());
+        Collections.sort(sorted);
+        assertEquals(sorted, visited);
+    }
+
+    @Test
+    void testTriePrefixAndNonAsciiKeys() {
+        DoubleArrayTrie trie = DoubleArrayTrie.build(
+            new String[] {"a", "ab", "abc", "kiゃ", ""}, new int[] {1, 2, 3, 4, 5});
+
+        assertEquals(1, trie.get("a"));
+        assertEquals(2, trie.get("ab"));
+        assertEquals(3, trie.get("abc"));
+        assertEquals(4, trie.get("kiゃ"));
+        assertEquals(5, trie.get(""));
+        assertEquals(-1, trie.get("abcd"));
+        assertEquals(-1, trie.get("ki"));
+        assertEquals(-1, trie.get("日本"));
+    }
+
+    @Test
+    void testCandidatesRoundTrip() {
+        CompactDictionary dictionary = CompactDictionary.builder()
+            .add("kami", Arrays.asList(
+                new ConversionCandidate("神", "かみ", 120),
+                new ConversionCandidate("紙", "かみ", 110),
+                new ConversionCandidate("髪", "かみ", 100)))
+            .add("sugoi", List.of(new ConversionCandidate("凄い", "すごい", 100)))
+            .add("sugoi", List.of(new ConversionCandidate("すごい", "すごい", 90)))
+            .build();
+
+        assertEquals(2, dictionary.size());
+        assertTrue(dictionary.contains("kami"));
+        assertFalse(dictionary.contains("kam"));
+
+        List<ConversionCandidate> candidates = dictionary.getCandidates("kami");
+        assertEquals(3, candidates.size());
+        assertEquals("紙", candidates.get(1).kanji);
+        assertEquals("かみ", candidates.get(1).hiragana);
+        assertEquals(110, candidates.get(1).baseScore);
+
+        // Later additions replace earlier ones, like Map.put
+        assertEquals("すごい", dictionary.getEntry("sugoi").getBestCandidate(null).kanji);
+        assertNull(dictionary.getEntry("nai"));
+    }
+}
@@ -0,0 +1,183 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for ConversionPipeline
+ */
+public class ConversionPipelineTest {
+
+    private final List<String> asked = new ArrayList<>();
+
+    /**
+     * Tier that answers every word with a fixed result (or nothing) and logs that it was asked
+     */
+    private ConversionBackend tier(String name, String kanji, boolean confident) {
+        return new ConversionBackend() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Result lookup(Query query, long budgetNanos) {
+                asked.add(name);
+                if (kanji == null) {
+                    return null;
+                }
+                ConversionCandidate candidate = new ConversionCandidate(kanji, query.key(), 100);
+                return confident ? Result.confident(candidate) : Result.tentative(candidate);
+            }
+        };
+    }
+
+    @Test
+    void testFirstConfidentTierWins() {
+        ConversionPipeline pipeline = ConversionPipeline.builder()
+            .add(tier("cache", null, true), Duration.ofMillis(1))
+            .add(tier("dictionary", "辞書", true), Duration.ofMillis(1))
+            .add(tier("remote", "遠隔", true), Duration.ofMillis(1))
+            .build();
+
+        ConversionPipeline.Outcome outcome = pipeline.convert("jisho", key -> null);
+
+        assertEquals("辞書", outcome.candidate().kanji);
+        assertEquals("dictionary", outcome.tier());
+        assertEquals(List.of("cache", "dictionary"), asked);
+        assertEquals(1, pipeline.getTier("cache").getStats().getMissCount());
+        assertEquals(1, pipeline.getTier("dictionary").getStats().getHitCount());
+        assertEquals(0, pipeline.getTier("remote").getStats().getLookupCount());
+    }
+
+    @Test
+    void testEarliestTentativeResultIsTheFallback() {
+        ConversionPipeline pipeline = ConversionPipeline.builder()
+            .add(tier("dictionary", "辞書", false), Duration.ofMillis(1))
+            .add(tier("remote", null, true), Duration.ofMillis(1))
+            .add(tier("kana", "じしょ", false), Duration.ofMillis(1))
+            .build();
+
+        ConversionPipeline.Outcome outcome = pipeline.convert("jisho", key -> null);
+
+        assertEquals("辞書", outcome.candidate().kanji);
+        assertEquals("dictionary", outcome.tier());
+        assertEquals(1, pipeline.getTier("dictionary").getStats().getTentativeCount());
+        assertEquals(3, asked.size());
+    }
+
+    @Test
+    void testReadingIsLookedUpOnce() {
+        int[] lookups = new int[1];
+        ConversionBackend reader = new ConversionBackend() {
+            @Override
+            public String getName() {
+                return "reader";
+            }
+
+            @Override
+            public Result lookup(Query query, long budgetNanos) {
+                query.reading();
+                return null;
+            }
+        };
+        ConversionPipeline pipeline = ConversionPipeline.builder()
+            .add(reader, Duration.ofMillis(1))
+            .add(tier("kana", "かな", true), Duration.ofMillis(1))
+            .build();
+
+        pipeline.convert("kana", key -> {
+            lookups[0]++;
+            return null;
+        });
+        pipeline.convert("kana", key -> null);
+
+        assertEquals(1, lookups[0]);
+        assertNull(ConversionPipeline.builder().build().convert("kana", key -> null));
+    }
+
+    @Test
+    void testWithBackendReplacesSameNamedTier() {
+        ConversionPipeline pipeline = ConversionPipeline.builder()
+            .add(tier("remote", "遠隔", true), Duration.ofMillis(5))
+            .build();
+
+        ConversionPipeline replaced = pipeline.withBackend(tier("remote", "代役", true));
+
+        assertEquals("代役", replaced.convert("x", key -> null).candidate().kanji);
+        assertEquals(Duration.ofMillis(5), replaced.getTier("remote").getBudget());
+        assertThrows(IllegalArgumentException.class, () -> pipeline.withBackend(tier("other", null, true)));
+        assertThrows(IllegalArgumentException.class, () -> ConversionPipeline.builder()
+            .add(tier("a", null, true), Duration.ZERO).add(tier("a", null, true), Duration.ZERO));
+    }
+
+    @Test
+    void testLatencyHistogramAndBudget() {
+        ConversionBackend slow = new ConversionBackend() {
+            @Override
+            public String getName() {
+                return "slow";
+            }
+
+            @Override
+            public Result lookup(Query query, long budgetNanos) {
+                try {
+                    Thread.sleep(5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return null;
+            }
+        };
+        ConversionPipeline pipeline = ConversionPipeline.builder().add(slow, Duration.ofMillis(1)).build();
+        ConversionPipeline.TierStats stats = pipeline.getTier("slow").getStats();
+        assertEquals(Duration.ZERO, stats.getLatency(0.99));
+
+        pipeline.convert("a", key -> null);
+        pipeline.convert("b", key -> null);
+
+        assertEquals(2, stats.getOverBudgetCount());
+        Duration p50 = stats.getLatency(0.5);
+        assertTrue(p50.compareTo(Duration.ofMillis(5)) >= 0, "p50 " + p50);
+        assertTrue(p50.compareTo(Duration.ofMillis(1000)) < 0, "p50 " + p50);
+    }
+
+    @Test
+    void testDeadlineCutsBudgets() {
+        List<Long> budgets = new ArrayList<>();
+        ConversionBackend waiting = new ConversionBackend() {
+            @Override
+            public String getName() {
+                return "remote";
+            }
+
+            @Override
+            public Result lookup(Query query, long budgetNanos) {
+                budgets.add(budgetNanos);
+                return Result.gaveUp();
+            }
+        };
+        ConversionPipeline pipeline = ConversionPipeline.builder()
+            .add(tier("dictionary", "辞書", false), Duration.ofMillis(1))
+            .add(waiting, Duration.ofSeconds(1))
+            .add(tier("kana", "かな", true), Duration.ofMillis(1))
+            .build();
+
+        pipeline.convert("a", key -> null);
+        ConversionPipeline.Outcome late = pipeline.convert("b", key -> null, Deadline.after(Duration.ZERO));
+
+        assertEquals(List.of(Duration.ofSeconds(1).toNanos(), 0L), budgets);
+        assertEquals("kana", late.tier());
+        // Only the tier that gave up waiting missed the deadline; the first lookup had its full budget
+        assertEquals(0, pipeline.getTier("dictionary").getStats().getDeadlineMissCount());
+        assertEquals(1, pipeline.getTier("remote").getStats().getDeadlineMissCount());
+        assertEquals(2, pipeline.getTier("remote").getStats().getMissCount());
+        // A confident answer is not a miss, even past the deadline
+        assertEquals(0, pipeline.getTier("kana").getStats().getDeadlineMissCount());
+    }
+}
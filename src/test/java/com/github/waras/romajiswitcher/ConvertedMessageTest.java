@@ -0,0 +1,98 @@
+package com.github.waras.romajiswitcher;
+
+import io.papermc.paper.chat.ChatRenderer;
+import net.kyori.adventure.audience.Audience;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for the span model of ConvertedMessage
+ */
+public class ConvertedMessageTest {
+
+    @Test
+    void testPlainTextIsMergedBetweenConvertedWords() {
+        ConvertedMessage message = ConvertedMessage.convert("kono https://example.com @steve 123 kono", null, null);
+
+        List<ConvertedMessage.Span> spans = message.getSpans();
+        assertEquals(3, spans.size());
+        assertEquals(new ConvertedMessage.Span("この", "kono"), spans.get(0));
+        assertEquals(new ConvertedMessage.Span(" https://example.com @steve 123 ", null), spans.get(1));
+        assertEquals(new ConvertedMessage.Span("この", "kono"), spans.get(2));
+        assertTrue(message.isConverted());
+    }
+
+    @Test
+    void testMessageWithoutConversions() {
+        ConvertedMessage message = ConvertedMessage.convert("123 !!", null, null);
+
+        assertFalse(message.isConverted());
+        assertEquals(List.of(new ConvertedMessage.Span("123 !!", null)), message.getSpans());
+        assertTrue(ConvertedMessage.convert("", null, null).getSpans().isEmpty());
+    }
+
+    @Test
+    void testRenderWithoutRomaji() {
+        ConvertedMessage message = ConvertedMessage.convert("kono 123", null, null);
+        UserPreferences.UserSettings settings = new UserPreferences.UserSettings();
+        settings.showRomaji = false;
+
+        assertEquals("この 123", plain(message.render(RenderProfile.of(settings))));
+        assertEquals("この(kono) 123", plain(message.render(RenderProfile.DEFAULT)));
+    }
+
+    @Test
+    void testViewersWithTheSameProfileShareOneRendering() {
+        ConvertedMessage message = ConvertedMessage.convert("kono", null, null);
+        RenderProfile first = RenderProfile.of(new UserPreferences.UserSettings(true, "yellow", "gray"));
+        RenderProfile second = RenderProfile.of(new UserPreferences.UserSettings(true, "yellow", "gray"));
+        RenderProfile other = RenderProfile.of(new UserPreferences.UserSettings(true, "aqua", "gray"));
+
+        assertSame(message.render(first), message.render(second));
+        assertNotSame(message.render(first), message.render(other));
+    }
+
+    @Test
+    void testRendererPassesOnMessagesReplacedByOtherPlugins(@TempDir Path tempDir) {
+        ConvertedMessage message = ConvertedMessage.convert("kono", null, null);
+        Component senderView = message.render(RenderProfile.DEFAULT);
+        List<Component> passedOn = new ArrayList<>();
+        ChatRenderer next = (source, displayName, rendered, viewer) -> {
+            passedOn.add(rendered);
+            return rendered;
+        };
+        ChatRenderer renderer = ChatListener.viewerRenderer(next, message, senderView,
+            new UserPreferences(tempDir.toFile()));
+        Audience console = new Audience() {
+        };
+
+        Component replaced = Component.text("[filtered]");
+        renderer.render(null, Component.text("steve"), replaced, console);
+        renderer.render(null, Component.text("steve"), senderView, console);
+
+        assertSame(replaced, passedOn.get(0));
+        assertSame(senderView, passedOn.get(1));
+    }
+
+    /**
+     * Text content of a component and its children
+     */
+    private static String plain(Component component) {
+        StringBuilder text = new StringBuilder();
+        if (component instanceof TextComponent textComponent) {
+            text.append(textComponent.content());
+        }
+        for (Component child : component.children()) {
+            text.append(plain(child));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,127 @@
+package com.github.waras.romajiswitcher;
+
+import com.google.gson.stream.JsonWriter;
+import org.openjdk.jmh.annotations.*;
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Startup cost of the streaming JSON loaders for IPADIC and user dictionary files:
+ * load time via JMH, bytes allocated by one load printed once per trial as "[allocation]".
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=DictionaryLoadBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class DictionaryLoadBenchmark {
+
+    @Param({"1000", "100000"})
+    public int entries;
+
+    private Path ipadicFile;
+    private Path userFile;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        Path directory = Files.createTempDirectory("romaji-load");
+        ipadicFile = directory.resolve("ipadic.json");
+        userFile = directory.resolve("user-dictionary.json");
+        writeIPADIC(ipadicFile, entries);
+        writeUserDictionary(userFile, entries);
+
+        System.out.printf("[allocation] entries=%d ipadic=%.1f MB (file %.1f MB) user=%.1f MB (file %.1f MB)%n",
+            entries, allocatedBy(this::loadIPADIC) / 1048576.0, Files.size(ipadicFile) / 1048576.0,
+            allocatedBy(this::loadUserDictionary) / 1048576.0, Files.size(userFile) / 1048576.0);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(ipadicFile);
+        Files.deleteIfExists(userFile);
+        Files.deleteIfExists(ipadicFile.getParent());
+    }
+
+    @Benchmark
+    public Object loadIPADIC() {
+        CompactDictionary.Builder builder = CompactDictionary.builder();
+        try (Reader reader = Files.newBufferedReader(ipadicFile, StandardCharsets.UTF_8)) {
+            RomajiDictionary.parseIPADICJSON(reader, builder);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return builder;
+    }
+
+    @Benchmark
+    public Object loadUserDictionary() {
+        Map<String, List<ConversionCandidate>> loaded = new HashMap<>();
+        try (Reader reader = Files.newBufferedReader(userFile, StandardCharsets.UTF_8)) {
+            RomajiDictionary.parseUserDictionaryJSON(reader, loaded::put);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return loaded;
+    }
+
+    /**
+     * Bytes allocated by the current thread while running the task once
+     */
+    static long allocatedBy(Runnable task) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        long before = threads.getThreadAllocatedBytes(threadId);
+        task.run();
+        return threads.getThreadAllocatedBytes(threadId) - before;
+    }
+
+    static void writeIPADIC(Path file, int count) throws IOException {
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.setIndent("  ");
+            writer.beginObject().name("entries").beginArray();
+            DictionaryStoreBenchmark.generate(count, (romaji, candidates) -> {
+                try {
+                    ConversionCandidate candidate = candidates.get(0);
+                    writer.beginObject()
+                        .name("kanji").value(candidate.kanji)
+                        .name("hiragana").value(candidate.hiragana)
+                        .name("romaji").value(romaji)
+                        .name("baseScore").value(candidate.baseScore)
+                        .endObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.endArray().endObject();
+        }
+    }
+
+    static void writeUserDictionary(Path file, int count) throws IOException {
+        try (JsonWriter writer = new JsonWriter(Files.newBufferedWriter(file, StandardCharsets.UTF_8))) {
+            writer.setIndent("  ");
+            writer.beginObject().name("entries").beginArray();
+            DictionaryStoreBenchmark.generate(count, (romaji, candidates) -> {
+                try {
+                    writer.beginObject().name("romaji").value(romaji).name("candidates").beginArray();
+                    for (ConversionCandidate candidate : candidates) {
+                        writer.beginObject()
+                            .name("kanji").value(candidate.kanji)
+                            .name("hiragana").value(candidate.hiragana)
+                            .name("baseScore").value(candidate.baseScore)
+                            .endObject();
+                    }
+                    writer.endArray().endObject();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            writer.endArray().endObject();
+        }
+    }
+}
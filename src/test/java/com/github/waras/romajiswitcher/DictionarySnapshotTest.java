@@ -0,0 +1,107 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for dictionary snapshots, hot reload and the file watcher
+ */
+public class DictionarySnapshotTest {
+
+    private Path tempDir;
+    private RomajiDictionary dictionary;
+
+    @BeforeEach
+    void setUp(@TempDir Path tmpDir) {
+        tempDir = tmpDir;
+        dictionary = new RomajiDictionary(tempDir, new ConversionStats(tempDir));
+    }
+
+    @Test
+    void testSnapshotIsImmutable() {
+        DictionarySnapshot before = dictionary.getSnapshot();
+
+        dictionary.registerUserEntry("yuusha", "勇者", "ゆうしゃ");
+
+        assertFalse(before.contains("yuusha"));
+        assertTrue(dictionary.getSnapshot().contains("yuusha"));
+        assertEquals(before.getVersion() + 1, dictionary.getVersion());
+    }
+
+    @Test
+    void testReloadPicksUpEditedUserDictionary() throws Exception {
+        long version = dictionary.getVersion();
+        writeUserDictionary("{\"entries\": [{\"romaji\": \"maou\", \"kanji\": \"魔王\", \"hiragana\": \"まおう\"}]}");
+
+        DictionarySnapshot reloaded = dictionary.reload();
+
+        assertEquals(version + 1, reloaded.getVersion());
+        assertSame(reloaded, dictionary.getSnapshot());
+        assertEquals("魔王", dictionary.getBestCandidate("maou").kanji);
+        assertTrue(dictionary.contains("sugoi"));
+    }
+
+    @Test
+    void testFailedReloadKeepsPreviousSnapshot() throws Exception {
+        dictionary.registerUserEntry("yuusha", "勇者", "ゆうしゃ");
+        DictionarySnapshot before = dictionary.getSnapshot();
+        writeUserDictionary("{\"entries\": [{\"romaji\": ");
+
+        assertThrows(IOException.class, dictionary::reload);
+
+        assertSame(before, dictionary.getSnapshot());
+        assertEquals("勇者", dictionary.getBestCandidate("yuusha").kanji);
+    }
+
+    @Test
+    void testOwnSavesAreNotSourceChanges() throws Exception {
+        assertFalse(dictionary.hasSourceChanges());
+
+        dictionary.registerUserEntry("yuusha", "勇者", "ゆうしゃ");
+        assertFalse(dictionary.hasSourceChanges());
+
+        Path userFile = tempDir.resolve("user-dictionary.json");
+        Files.setLastModifiedTime(userFile, FileTime.fromMillis(Files.getLastModifiedTime(userFile).toMillis() + 5000));
+        assertTrue(dictionary.hasSourceChanges());
+    }
+
+    @Test
+    void testWatcherRunsCallbackOnceChangesSettle() throws Exception {
+        CountDownLatch changed = new CountDownLatch(1);
+        try (DictionaryWatcher watcher = new DictionaryWatcher(tempDir, RomajiDictionary.SOURCE_FILES, 50,
+                changed::countDown)) {
+            watcher.start();
+            Files.writeString(tempDir.resolve("unrelated.txt"), "x");
+            writeUserDictionary("{\"entries\": []}");
+
+            assertTrue(changed.await(30, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    void testWatcherIgnoresOtherFiles() throws Exception {
+        CountDownLatch changed = new CountDownLatch(1);
+        try (DictionaryWatcher watcher = new DictionaryWatcher(tempDir, Set.of("user-dictionary.json"), 50,
+                changed::countDown)) {
+            watcher.start();
+            Files.writeString(tempDir.resolve("notes.txt"), "x");
+
+            assertFalse(changed.await(500, TimeUnit.MILLISECONDS));
+        }
+    }
+
+    private void writeUserDictionary(String json) throws IOException {
+        Files.write(tempDir.resolve("user-dictionary.json"), json.getBytes(StandardCharsets.UTF_8));
+    }
+}
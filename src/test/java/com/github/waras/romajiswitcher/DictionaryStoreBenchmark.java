@@ -0,0 +1,142 @@
+package com.github.waras.romajiswitcher;
+
+import org.openjdk.jmh.annotations.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the old HashMap dictionary layout with CompactDictionary:
+ * lookup latency via JMH, retained heap printed once per trial as "[footprint]".
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=DictionaryStoreBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class DictionaryStoreBenchmark {
+
+    private static final String[] SYLLABLES = {
+        "a", "i", "u", "e", "o", "ka", "ki", "ku", "ke", "ko", "sa", "shi", "su", "se", "so",
+        "ta", "chi", "tsu", "te", "to", "na", "ni", "nu", "ne", "no", "ha", "hi", "fu", "he", "ho",
+        "ma", "mi", "mu", "me", "mo", "ya", "yu", "yo", "ra", "ri", "ru", "re", "ro", "wa", "n",
+        "ga", "gi", "gu", "ge", "go", "za", "ji", "zu", "ze", "zo", "da", "de", "do",
+        "ba", "bi", "bu", "be", "bo", "pa", "pi", "pu", "pe", "po", "kyo", "sho", "ryu", "chu"
+    };
+    private static final int PROBES = 4096;
+
+    @Param({"10000", "100000", "400000"})
+    public int entries;
+
+    private Map<String, DictionaryEntry> hashMap;
+    private CompactDictionary compact;
+    private String[] probes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        long before = usedHeap();
+        hashMap = buildHashMap(entries);
+        long hashMapBytes = usedHeap() - before;
+
+        before = usedHeap();
+        compact = buildCompact(entries);
+        long compactBytes = usedHeap() - before;
+
+        System.out.printf("[footprint] entries=%d hashMap=%.1f MB compact=%.1f MB (%.1f%%)%n",
+            entries, hashMapBytes / 1048576.0, compactBytes / 1048576.0, 100.0 * compactBytes / hashMapBytes);
+
+        // Half hits, half misses
+        Random random = new Random(1);
+        List<String> keys = new ArrayList<>(hashMap.keySet());
+        probes = new String[PROBES];
+        for (int i = 0; i < PROBES; i++) {
+            String key = keys.get(random.nextInt(keys.size()));
+            probes[i] = i % 2 == 0 ? key : key + "x";
+        }
+    }
+
+    @Benchmark
+    public List<ConversionCandidate> hashMapLookup() {
+        DictionaryEntry entry = hashMap.get(nextProbe());
+        return entry != null ? entry.candidates : null;
+    }
+
+    @Benchmark
+    public List<ConversionCandidate> compactLookup() {
+        return compact.getCandidates(nextProbe());
+    }
+
+    @Benchmark
+    public boolean hashMapContains() {
+        return hashMap.containsKey(nextProbe());
+    }
+
+    @Benchmark
+    public boolean compactContains() {
+        return compact.contains(nextProbe());
+    }
+
+    private String nextProbe() {
+        next = (next + 1) & (PROBES - 1);
+        return probes[next];
+    }
+
+    /**
+     * The layout RomajiDictionary used before: one DictionaryEntry per key in a ConcurrentHashMap
+     */
+    static Map<String, DictionaryEntry> buildHashMap(int count) {
+        Map<String, DictionaryEntry> map = new ConcurrentHashMap<>();
+        generate(count, (romaji, candidates) -> map.put(romaji, new DictionaryEntry(romaji, candidates, 0)));
+        return map;
+    }
+
+    static CompactDictionary buildCompact(int count) {
+        CompactDictionary.Builder builder = CompactDictionary.builder();
+        generate(count, builder::add);
+        return builder.build();
+    }
+
+    /**
+     * Deterministic IPADIC-like entries: 2-5 syllable keys with 1-3 candidates each.
+     * Strings are created fresh on every call so the two layouts never share them.
+     */
+    static void generate(int count, java.util.function.BiConsumer<String, List<ConversionCandidate>> sink) {
+        Random random = new Random(42);
+        Set<String> seen = new HashSet<>();
+        while (seen.size() < count) {
+            StringBuilder romaji = new StringBuilder();
+            StringBuilder hiragana = new StringBuilder();
+            int syllables = 2 + random.nextInt(4);
+            for (int s = 0; s < syllables; s++) {
+                romaji.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+                hiragana.append((char) ('ぁ' + random.nextInt(83)));
+            }
+            String key = romaji.toString();
+            if (!seen.add(key)) {
+                continue;
+            }
+
+            int candidateCount = 1 + random.nextInt(3);
+            List<ConversionCandidate> candidates = new ArrayList<>(candidateCount);
+            for (int c = 0; c < candidateCount; c++) {
+                StringBuilder kanji = new StringBuilder();
+                for (int k = 0; k < 1 + random.nextInt(3); k++) {
+                    kanji.append((char) (0x4E00 + random.nextInt(0x5000)));
+                }
+                candidates.add(new ConversionCandidate(kanji.toString(), hiragana.toString(), random.nextInt(200)));
+            }
+            sink.accept(new String(key.toCharArray()), candidates);
+        }
+    }
+
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
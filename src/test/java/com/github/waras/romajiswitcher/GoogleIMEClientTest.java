@@ -1,8 +1,23 @@
 package com.github.waras.romajiswitcher;
 
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.file.Path;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -12,12 +27,109 @@ import static org.junit.jupiter.api.Assertions.*;
 public class GoogleIMEClientTest {
     
     private GoogleIMEClient client;
-    
+    private HttpServer stub;
+    private final AtomicInteger requests = new AtomicInteger();
+    private volatile long latencyMillis;
+    private volatile int status = 200;
+
     @BeforeEach
     void setUp() {
         client = new GoogleIMEClient();
     }
+
+    @AfterEach
+    void tearDown() {
+        if (stub != null) {
+            stub.stop(0);
+        }
+    }
+
+    /**
+     * Local transliterate endpoint that answers after latencyMillis with two candidates per comma-separated segment
+     */
+    private GoogleIMEClient stubClient(Duration timeout) throws IOException {
+        stub = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        stub.setExecutor(Executors.newCachedThreadPool());
+        stub.createContext("/transliterate", exchange -> {
+            requests.incrementAndGet();
+            String query = exchange.getRequestURI().getQuery();
+            String text = query.substring(query.indexOf("text=") + 5);
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            StringBuilder json = new StringBuilder("[");
+            for (String segment : text.split(",")) {
+                if (json.length() > 1) {
+                    json.append(',');
+                }
+                json.append("[\"").append(segment).append("\",[\"").append(segment).append("漢字\",\"")
+                    .append(segment).append("\"]]");
+            }
+            byte[] body = json.append(']').toString().getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(status, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        stub.start();
+        URI endpoint = URI.create("http://127.0.0.1:" + stub.getAddress().getPort() + "/transliterate");
+        return new GoogleIMEClient(endpoint, timeout);
+    }
     
+    @Test
+    void testDictionaryRemoteTierUsesStandInServer(@TempDir Path tempDir) throws IOException {
+        RomajiDictionary dictionary = new RomajiDictionary(tempDir, new ConversionStats(tempDir),
+            stubClient(Duration.ofSeconds(2)));
+        dictionary.getPipeline().getTier(RomajiDictionary.TIER_REMOTE).setBudget(Duration.ofSeconds(2));
+
+        ConversionPipeline.Outcome first = dictionary.convert("sugoi");
+        ConversionPipeline.Outcome second = dictionary.convert("sugoi");
+
+        assertEquals("すごい漢字", first.candidate().kanji);
+        assertEquals(RomajiDictionary.TIER_REMOTE, first.tier());
+        assertEquals(RomajiDictionary.TIER_CACHE, second.tier());
+        assertEquals(1, requests.get());
+        assertEquals(RomajiDictionary.TIER_KANA, dictionary.convert("zzqx").tier());
+        assertNull(dictionary.getBestCandidate("zzqx"));
+    }
+
+    @Test
+    void testMessageDeadlineFallsBackAndFinishesInBackground(@TempDir Path tempDir) throws Exception {
+        RomajiDictionary dictionary = new RomajiDictionary(tempDir, new ConversionStats(tempDir),
+            stubClient(Duration.ofSeconds(2)));
+        latencyMillis = 300;
+
+        long start = System.nanoTime();
+        ConvertedMessage late = ConvertedMessage.convert(MessageScan.of("sugoi"), dictionary, null, null,
+            Deadline.after(Duration.ofMillis(20)));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 250, "waited " + elapsedMillis + " ms");
+        assertTrue(late.isDeadlineMissed());
+        assertTrue(late.isConverted());
+        assertFalse(late.getSpans().get(0).text().contains("漢字"));
+        assertEquals(1, dictionary.getPrefetchDeadlineMissCount());
+        ConversionPipeline pipeline = dictionary.getPipeline();
+        assertEquals(1, pipeline.getTier(RomajiDictionary.TIER_REMOTE).getStats().getDeadlineMissCount());
+        assertEquals(0, pipeline.getTier(RomajiDictionary.TIER_DICTIONARY).getStats().getDeadlineMissCount());
+
+        // The lookup finished in the background, so the next message gets the IME result
+        ConvertedMessage next = null;
+        for (int attempt = 0; attempt < 40; attempt++) {
+            Thread.sleep(50);
+            next = ConvertedMessage.convert(MessageScan.of("sugoi"), dictionary, null, null,
+                Deadline.after(Duration.ofMillis(20)));
+            if (!next.isDeadlineMissed()) {
+                break;
+            }
+        }
+        assertFalse(next.isDeadlineMissed());
+        assertEquals("すごい漢字", next.getSpans().get(0).text());
+        assertEquals(1, requests.get());
+    }
+
     @Test
     void testCacheWorks() {
         String hiragana = "ありがとう";
@@ -59,4 +171,269 @@ public class GoogleIMEClientTest {
         client.clearCache();
         assertEquals(0, client.getCacheSize());
     }
+
+    @Test
+    void testConvertAsyncDoesNotBlock() throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofSeconds(5));
+        latencyMillis = 300;
+
+        long start = System.nanoTime();
+        CompletableFuture<String> future = stubbed.convertAsync("かんじ");
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 250, "convertAsync blocked for " + elapsedMillis + " ms");
+        assertEquals("かんじ漢字", future.get());
+    }
+
+    @Test
+    void testSyncWrapperUsesCache() throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofSeconds(5));
+
+        assertEquals(List.of("へんかん漢字", "へんかん"), stubbed.getCandidates("へんかん"));
+        assertEquals("へんかん漢字", stubbed.convert("へんかん"));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void testConcurrentRequestsOverlap() throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofSeconds(5));
+        latencyMillis = 400;
+
+        long start = System.nanoTime();
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (String word : List.of("いち", "に", "さん", "よん")) {
+            futures.add(stubbed.convertAsync(word));
+        }
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get();
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertEquals("さん漢字", futures.get(2).get());
+        assertTrue(elapsedMillis < 1500, "requests ran serially: " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void testTimeoutFallsBackToHiragana() throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofMillis(200));
+        latencyMillis = 2000;
+
+        long start = System.nanoTime();
+        assertEquals("おそい", stubbed.convert("おそい"));
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+
+        assertTrue(elapsedMillis < 1500, "timeout not applied: " + elapsedMillis + " ms");
+        assertTrue(stubbed.getCandidatesAsync("おそい").isDone());
+    }
+
+    @Test
+    void testHttpErrorFallsBackToHiragana() throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofSeconds(5));
+        status = 500;
+
+        assertEquals("えらー", stubbed.convertAsync("えらー").get());
+        assertTrue(stubbed.getCandidates("えらー").isEmpty());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void testFailuresExpireAfterNegativeTtl() throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofSeconds(5));
+        stubbed.configureCache(100, 1024 * 1024, Duration.ofHours(1), Duration.ofMillis(100));
+        status = 503;
+        assertEquals("ねっと", stubbed.convert("ねっと"));
+        assertEquals("ねっと", stubbed.convert("ねっと"));
+        assertEquals(1, requests.get());
+
+        status = 200;
+        Thread.sleep(200);
+
+        assertEquals("ねっと漢字", stubbed.convert("ねっと"));
+        assertEquals(2, requests.get());
+        assertEquals(1, stubbed.getCache().getExpiredCount());
+        assertEquals(1.0 / 3, stubbed.getCache().getHitRate(), 1e-9);
+    }
+
+    @Test
+    void testCacheStaysWithinMemoryBudget() throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofSeconds(5));
+        long budget = 3 * GoogleIMEClient.estimateBytes("あい", List.of("あい漢字", "あい"));
+        stubbed.configureCache(100, budget, Duration.ofHours(1), Duration.ofMinutes(1));
+
+        for (String word : List.of("あい", "かい", "さい", "たい", "なこ")) {
+            stubbed.convert(word);
+        }
+
+        assertEquals(3, stubbed.getCacheSize());
+        assertTrue(stubbed.getCache().getWeight() <= budget);
+        assertEquals(2, stubbed.getCache().getEvictionCount());
+    }
+
+    @Test
+    void testConcurrentLookupsShareOneRequest() throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofSeconds(5));
+        latencyMillis = 300;
+
+        List<CompletableFuture<String>> futures = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            futures.add(stubbed.convertAsync("にんき"));
+        }
+        futures.get(0).cancel(false);
+        CompletableFuture.allOf(futures.subList(1, 8).toArray(new CompletableFuture<?>[0])).get();
+
+        for (CompletableFuture<String> future : futures.subList(1, 8)) {
+            assertEquals("にんき漢字", future.get());
+        }
+        assertEquals(1, requests.get());
+        assertEquals(1, stubbed.getRequestCount());
+        assertEquals(7, stubbed.getCoalescedCount());
+
+        // Completed requests are not joined again; the cached result is used
+        assertEquals("にんき漢字", stubbed.convert("にんき"));
+        assertEquals(7, stubbed.getCoalescedCount());
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void testBatchSendsUncachedSegmentsInOneRequest() throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofSeconds(5));
+        stubbed.convert("きょう");
+
+        Map<String, List<String>> results = stubbed.getCandidatesBatchAsync(
+            List.of("きょう", "てんき", "", "いい", "てんき", "ね")).get();
+
+        assertEquals(List.of("きょう", "てんき", "いい", "ね"), new ArrayList<>(results.keySet()));
+        assertEquals("てんき漢字", results.get("てんき").get(0));
+        assertEquals("ね漢字", results.get("ね").get(0));
+        assertEquals(2, requests.get());
+
+        // Fanned-out results are cached per segment
+        assertEquals("いい漢字", stubbed.convert("いい"));
+        assertEquals(2, requests.get());
+    }
+
+    @Test
+    void testBatchFailureFallsBackPerSegment() throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofSeconds(5));
+        status = 500;
+
+        Map<String, List<String>> results = stubbed.getCandidatesBatchAsync(List.of("あさ", "ひる")).get();
+
+        assertTrue(results.get("あさ").isEmpty());
+        assertTrue(results.get("ひる").isEmpty());
+        assertEquals("ひる", stubbed.convert("ひる"));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    void testParseMultiSegmentResponse() {
+        List<GoogleIMEClient.Segment> segments = GoogleIMEClient.parseResponse(
+            "[[\"きょうは\",[\"今日は\",\"京は\"]],[\"いい\",[\"いい\",\"良い\"]],[\"かぎ,\",[\"鍵,\"]]]");
+
+        assertEquals(3, segments.size());
+        assertEquals("きょうは", segments.get(0).input());
+        assertEquals(List.of("今日は", "京は"), segments.get(0).candidates());
+        assertEquals(List.of("鍵,"), segments.get(2).candidates());
+
+        assertTrue(GoogleIMEClient.parseResponse("<html>error</html>").isEmpty());
+        assertTrue(GoogleIMEClient.parseResponse("[[\"a\"]]").isEmpty());
+    }
+
+    @Test
+    void testMatchSegmentsByTextWhenCountsDiffer() {
+        List<GoogleIMEClient.Segment> segments = List.of(
+            new GoogleIMEClient.Segment("きょう", List.of("今日")),
+            new GoogleIMEClient.Segment("は", List.of("は")),
+            new GoogleIMEClient.Segment("いい", List.of("良い")));
+
+        Map<String, List<String>> matched = GoogleIMEClient.matchSegments(List.of("きょうは", "いい"), segments);
+
+        assertEquals(Map.of("きょうは", List.of("今日"), "いい", List.of("良い")), matched);
+    }
+
+    @Test
+    void testMatchSegmentsWithEchoedCommasAndUnmatchedTail() {
+        List<GoogleIMEClient.Segment> segments = List.of(
+            new GoogleIMEClient.Segment("いい,", List.of("良い,")),
+            new GoogleIMEClient.Segment("きょう", List.of("今日")),
+            new GoogleIMEClient.Segment("は,", List.of("は,")),
+            new GoogleIMEClient.Segment("かぎ", List.of("鍵")));
+
+        Map<String, List<String>> matched = GoogleIMEClient.matchSegments(
+            List.of("いい", "きょうは", "かぎ", "ねこ", "いぬ"), segments);
+
+        assertEquals(Map.of("いい", List.of("良い,"), "きょうは", List.of("今日"), "かぎ", List.of("鍵")), matched);
+    }
+
+    @Test
+    void testCircuitOpensAndRecovers() throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofSeconds(5));
+        stubbed.configureCircuitBreaker(2, Duration.ofMillis(300));
+        stubbed.configureCache(100, 1024 * 1024, Duration.ofHours(1), Duration.ofMillis(1));
+        status = 503;
+
+        assertEquals("いち", stubbed.convert("いち"));
+        assertEquals("に", stubbed.convert("に"));
+        assertEquals(CircuitBreaker.State.OPEN, stubbed.getCircuitBreaker().getState());
+
+        // Open: answered without a request, and not cached
+        assertEquals("さん", stubbed.convert("さん"));
+        assertEquals(2, requests.get());
+        assertEquals(2, stubbed.getCache().size());
+        assertEquals(1, stubbed.getCircuitBreaker().getRejectedCount());
+        // The breaker rejects before the rate limiter, so no token was spent
+        assertEquals(2, stubbed.getRateLimiter().getGrantedCount());
+
+        status = 200;
+        Thread.sleep(400);
+        assertEquals("さん漢字", stubbed.convert("さん"));
+        assertEquals(CircuitBreaker.State.CLOSED, stubbed.getCircuitBreaker().getState());
+        assertEquals(3, requests.get());
+    }
+
+    @Test
+    void testRateLimitSkipsExcessRequests() throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofSeconds(5));
+        stubbed.configureRateLimit(0.001, 2);
+
+        assertEquals("いち漢字", stubbed.convert("いち"));
+        assertEquals("に漢字", stubbed.convert("に"));
+        assertEquals("さん", stubbed.convert("さん"));
+
+        assertEquals(2, requests.get());
+        assertEquals(1, stubbed.getRateLimiter().getRejectedCount());
+        // Rejections are not cached, so the word is retried once tokens are available
+        assertNull(stubbed.getCache().get("さん"));
+    }
+
+    @Test
+    void testTimeoutAdaptsToLatency() throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofSeconds(3));
+        stubbed.configureTimeout(Duration.ofMillis(50), Duration.ofSeconds(3), 3.0);
+
+        for (int i = 0; i < 25; i++) {
+            stubbed.convert("こ" + i);
+        }
+
+        Duration current = stubbed.getRequestTimeout().current();
+        assertTrue(current.compareTo(Duration.ofSeconds(1)) < 0, "timeout did not adapt: " + current);
+        assertEquals(25, stubbed.getRequestTimeout().getSampleCount());
+    }
+
+    @Test
+    void testResultsSurviveRestartThroughCacheFile(@TempDir Path tempDir) throws Exception {
+        GoogleIMEClient stubbed = stubClient(Duration.ofSeconds(5));
+        IMECacheFile file = new IMECacheFile(tempDir.resolve("ime-cache.bin"), 1024 * 1024, 100);
+        assertEquals(0, stubbed.attachPersistentCache(file));
+        assertEquals("さくら漢字", stubbed.convert("さくら"));
+        status = 500;
+        assertEquals("ゆき", stubbed.convert("ゆき"));
+        file.close();
+
+        URI endpoint = URI.create("http://127.0.0.1:" + stub.getAddress().getPort() + "/transliterate");
+        GoogleIMEClient restarted = new GoogleIMEClient(endpoint, Duration.ofSeconds(5));
+        assertEquals(1, restarted.attachPersistentCache(
+            new IMECacheFile(tempDir.resolve("ime-cache.bin"), 1024 * 1024, 100)));
+
+        assertEquals("さくら漢字", restarted.convert("さくら"));
+        assertEquals(2, requests.get());
+    }
 }
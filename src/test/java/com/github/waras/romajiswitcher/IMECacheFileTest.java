@@ -0,0 +1,93 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.DataOutputStream;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the append-only Google IME result file
+ */
+public class IMECacheFileTest {
+
+    private static final long LATER = System.currentTimeMillis() + 3_600_000;
+
+    @Test
+    void testRecordsSurviveReopen(@TempDir Path tempDir) throws Exception {
+        Path path = tempDir.resolve("ime-cache.bin");
+        IMECacheFile file = new IMECacheFile(path, 1024 * 1024, 100);
+        file.append("かみ", List.of("紙", "神"), LATER);
+        file.append("やま", List.of("山"), LATER);
+        file.append("かみ", List.of("神", "紙"), LATER);
+        file.append("むかし", List.of("昔"), System.currentTimeMillis() - 1);
+        file.close();
+
+        List<IMECacheFile.Entry> loaded = new IMECacheFile(path, 1024 * 1024, 100).load();
+
+        assertEquals(2, loaded.size());
+        assertEquals("やま", loaded.get(0).hiragana());
+        assertEquals(List.of("神", "紙"), loaded.get(1).candidates());
+        assertEquals(LATER, loaded.get(1).expiresAtMillis());
+    }
+
+    @Test
+    void testDamagedTailIsDropped(@TempDir Path tempDir) throws Exception {
+        Path path = tempDir.resolve("ime-cache.bin");
+        IMECacheFile file = new IMECacheFile(path, 1024 * 1024, 100);
+        file.append("うみ", List.of("海"), LATER);
+        file.append("そら", List.of("空"), LATER);
+        file.flush();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 3);
+        }
+
+        IMECacheFile reopened = new IMECacheFile(path, 1024 * 1024, 100);
+        assertEquals(List.of("うみ"), reopened.load().stream().map(IMECacheFile.Entry::hiragana).toList());
+
+        // The file was repaired, so new records are readable after it
+        reopened.append("かわ", List.of("川"), LATER);
+        reopened.flush();
+        assertEquals(2, new IMECacheFile(path, 1024 * 1024, 100).load().size());
+    }
+
+    @Test
+    void testUnknownVersionIsIgnored(@TempDir Path tempDir) throws Exception {
+        Path path = tempDir.resolve("ime-cache.bin");
+        try (DataOutputStream out = new DataOutputStream(Files.newOutputStream(path))) {
+            out.writeInt(IMECacheFile.MAGIC);
+            out.writeInt(IMECacheFile.VERSION + 1);
+            out.writeInt(12345);
+        }
+
+        IMECacheFile file = new IMECacheFile(path, 1024 * 1024, 100);
+        assertTrue(file.load().isEmpty());
+        assertTrue(Files.exists(tempDir.resolve("ime-cache.bin.bad")));
+
+        file.append("はな", List.of("花"), LATER);
+        file.flush();
+        assertEquals(1, new IMECacheFile(path, 1024 * 1024, 100).load().size());
+    }
+
+    @Test
+    void testCompactionKeepsLatestRecords(@TempDir Path tempDir) throws Exception {
+        Path path = tempDir.resolve("ime-cache.bin");
+        IMECacheFile file = new IMECacheFile(path, 2048, 5);
+        for (int i = 0; i < 200; i++) {
+            file.append("き" + (i % 10), List.of("木" + i), LATER);
+            file.flush();
+        }
+
+        assertTrue(file.size() <= 2048, "not compacted: " + file.size());
+        List<IMECacheFile.Entry> loaded = file.load();
+        assertTrue(loaded.size() <= 10);
+        IMECacheFile.Entry last = loaded.get(loaded.size() - 1);
+        assertEquals("き9", last.hiragana());
+        assertEquals(List.of("木199"), last.candidates());
+    }
+}
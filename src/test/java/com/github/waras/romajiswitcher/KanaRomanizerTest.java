@@ -0,0 +1,51 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for kana to romaji key generation
+ */
+public class KanaRomanizerTest {
+
+    @Test
+    void testBasicHepburn() {
+        assertEquals("sugoi", KanaRomanizer.toRomaji("すごい"));
+        assertEquals("chiisai", KanaRomanizer.toRomaji("ちいさい"));
+        assertEquals("tsuyoi", KanaRomanizer.toRomaji("つよい"));
+        assertEquals("fuji", KanaRomanizer.toRomaji("ふじ"));
+    }
+
+    @Test
+    void testYoonAndKatakana() {
+        assertEquals("toukyou", KanaRomanizer.toRomaji("トウキョウ"));
+        assertEquals("ryokou", KanaRomanizer.toRomaji("りょこう"));
+        assertEquals("pa-ti-", KanaRomanizer.toRomaji("パーティー"));
+        assertEquals("fairu", KanaRomanizer.toRomaji("ファイル"));
+        assertEquals("vaiorin", KanaRomanizer.toRomaji("ヴァイオリン"));
+    }
+
+    @Test
+    void testSokuon() {
+        assertEquals("gakkou", KanaRomanizer.toRomaji("がっこう"));
+        assertEquals("maccha", KanaRomanizer.toRomaji("まっちゃ"));
+        assertEquals("zasshi", KanaRomanizer.toRomaji("ざっし"));
+        assertEquals("axtu", KanaRomanizer.toRomaji("あっ"));
+    }
+
+    @Test
+    void testSyllabicN() {
+        assertEquals("konnichiha", KanaRomanizer.toRomaji("こんにちは"));
+        assertEquals("kinnen", KanaRomanizer.toRomaji("きんえん"));
+        assertEquals("konnya", KanaRomanizer.toRomaji("こんや"));
+        assertEquals("shinbun", KanaRomanizer.toRomaji("しんぶん"));
+    }
+
+    @Test
+    void testRejectsNonKana() {
+        assertNull(KanaRomanizer.toRomaji("漢字"));
+        assertNull(KanaRomanizer.toRomaji("abc"));
+        assertEquals("", KanaRomanizer.toRomaji(""));
+    }
+}
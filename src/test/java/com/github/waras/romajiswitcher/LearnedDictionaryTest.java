@@ -0,0 +1,70 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LearnedDictionary
+ */
+public class LearnedDictionaryTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testLookupRequiresSameReading() {
+        LearnedDictionary learned = new LearnedDictionary(tempDir, 10);
+        learned.promote("kawaii", new ConversionCandidate("カワイイ", "かわいい", 100), 21);
+
+        assertEquals("カワイイ", learned.get("kawaii", "かわいい").kanji);
+        assertNull(learned.get("kawaii", "かわいー"));
+        assertNull(learned.get("sugoi", "すごい"));
+    }
+
+    @Test
+    void testLeastFrequentlyUsedIsDemoted() {
+        LearnedDictionary learned = new LearnedDictionary(tempDir, 2);
+        learned.promote("a", new ConversionCandidate("亜", "あ", 100), 30);
+        learned.promote("i", new ConversionCandidate("意", "い", 100), 21);
+        learned.get("i", "い");
+        learned.promote("u", new ConversionCandidate("宇", "う", 100), 25);
+
+        // "i" had 22 uses, fewer than the others
+        assertTrue(learned.contains("a"));
+        assertFalse(learned.contains("i"));
+        assertTrue(learned.contains("u"));
+        assertEquals(1, learned.getDemotionCount());
+
+        learned.setMaximumSize(1);
+        assertEquals(1, learned.size());
+        assertTrue(learned.contains("a"));
+    }
+
+    @Test
+    void testSaveAndReload() {
+        LearnedDictionary learned = new LearnedDictionary(tempDir, 10);
+        learned.promote("sugoi", new ConversionCandidate("スゴい", "すごい", 120), 21);
+        learned.get("sugoi", "すごい");
+        learned.save();
+
+        LearnedDictionary reloaded = new LearnedDictionary(tempDir, 10);
+        assertEquals(1, reloaded.size());
+        LearnedDictionary.LearnedEntry entry = reloaded.getEntries().iterator().next();
+        assertEquals("スゴい", entry.candidate.kanji);
+        assertEquals(120, entry.candidate.baseScore);
+        assertEquals(22, entry.getHits());
+    }
+
+    @Test
+    void testDamagedFileIsIgnored() throws Exception {
+        Files.writeString(tempDir.resolve("learned-dictionary.json"), "{\"entries\": [{\"romaji\": ");
+
+        LearnedDictionary learned = new LearnedDictionary(tempDir, 10);
+        assertEquals(0, learned.size());
+    }
+}
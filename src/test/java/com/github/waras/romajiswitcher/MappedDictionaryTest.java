@@ -0,0 +1,148 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for the memory-mapped binary dictionary format
+ */
+public class MappedDictionaryTest {
+
+    @Test
+    void testWriteAndOpenRoundTrip(@TempDir Path tempDir) throws IOException {
+        Map<String, List<ConversionCandidate>> entries = new LinkedHashMap<>();
+        entries.put("kami", Arrays.asList(
+            new ConversionCandidate("神", "かみ", 120),
+            new ConversionCandidate("紙", "かみ", 110),
+            new ConversionCandidate("髪", null, 100)));
+        entries.put("sugoi", List.of(new ConversionCandidate("凄い", "すごい", 100)));
+        entries.put("a", List.of(new ConversionCandidate("亜", "あ", 10)));
+
+        Path file = tempDir.resolve("test.rjd");
+        MappedDictionary.write(file, entries);
+        MappedDictionary dictionary = MappedDictionary.open(file);
+
+        assertEquals(3, dictionary.size());
+        assertTrue(dictionary.contains("a"));
+        assertTrue(dictionary.contains("sugoi"));
+        assertFalse(dictionary.contains("kam"));
+        assertFalse(dictionary.contains("sugoii"));
+
+        List<ConversionCandidate> candidates = dictionary.getCandidates("kami");
+        assertEquals(3, candidates.size());
+        assertEquals("紙", candidates.get(1).kanji);
+        assertEquals("かみ", candidates.get(1).hiragana);
+        assertEquals(110, candidates.get(1).baseScore);
+        assertNull(candidates.get(2).hiragana);
+        assertNull(dictionary.getEntry("nai"));
+
+        List<String> visited = new ArrayList<>();
+        dictionary.forEach(entry -> visited.add(entry.romaji));
+        assertEquals(Arrays.asList("a", "kami", "sugoi"), visited);
+    }
+
+    @Test
+    void testMatchesCompactDictionary(@TempDir Path tempDir) throws IOException {
+        Map<String, List<ConversionCandidate>> entries = new HashMap<>();
+        DictionaryStoreBenchmark.generate(5000, entries::put);
+        CompactDictionary.Builder builder = CompactDictionary.builder();
+        entries.forEach(builder::add);
+        CompactDictionary compact = builder.build();
+
+        Path file = tempDir.resolve("generated.rjd");
+        MappedDictionary.write(file, entries);
+        MappedDictionary mapped = MappedDictionary.open(file);
+
+        assertEquals(compact.size(), mapped.size());
+        for (String key : entries.keySet()) {
+            List<ConversionCandidate> expected = compact.getCandidates(key);
+            List<ConversionCandidate> actual = mapped.getCandidates(key);
+            assertEquals(expected.size(), actual.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertEquals(expected.get(i).kanji, actual.get(i).kanji);
+                assertEquals(expected.get(i).baseScore, actual.get(i).baseScore);
+            }
+            assertFalse(mapped.contains(key + "x"));
+        }
+    }
+
+    @Test
+    void testRejectsCorruptFiles(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("bad.rjd");
+        MappedDictionary.write(file, Map.of("kami", List.of(new ConversionCandidate("神", "かみ", 100))));
+        byte[] bytes = Files.readAllBytes(file);
+
+        byte[] badMagic = bytes.clone();
+        badMagic[0] = 'X';
+        Files.write(file, badMagic);
+        assertThrows(IOException.class, () -> MappedDictionary.open(file));
+
+        byte[] badVersion = bytes.clone();
+        badVersion[7] = 99;
+        Files.write(file, badVersion);
+        assertThrows(IOException.class, () -> MappedDictionary.open(file));
+
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 4));
+        assertThrows(IOException.class, () -> MappedDictionary.open(file));
+
+        Files.write(file, new byte[] {1, 2, 3});
+        assertThrows(IOException.class, () -> MappedDictionary.open(file));
+    }
+
+    @Test
+    void testRejectsCorruptRecords(@TempDir Path tempDir) throws IOException {
+        Path file = tempDir.resolve("bad.rjd");
+        MappedDictionary.write(file, Map.of("kami", List.of(new ConversionCandidate("神", "かみ", 100))));
+        byte[] bytes = Files.readAllBytes(file);
+        int keyIndexOffset = ByteBuffer.wrap(bytes).getInt(24);
+        int candidateOffset = ByteBuffer.wrap(bytes).getInt(28);
+
+        // Negative pool length
+        assertThrows(IOException.class, () -> openPatched(file, bytes, 20, -1));
+        // Key record pointing past the candidate table
+        assertThrows(IOException.class, () -> openPatched(file, bytes, keyIndexOffset + 12, 2));
+        assertThrows(IOException.class, () -> openPatched(file, bytes, keyIndexOffset + 8, -1));
+        // Key and candidate strings outside the pool
+        assertThrows(IOException.class, () -> openPatched(file, bytes, keyIndexOffset, 1000));
+        assertThrows(IOException.class, () -> openPatched(file, bytes, candidateOffset + 4, -5));
+        assertThrows(IOException.class, () -> openPatched(file, bytes, candidateOffset + 12, 1000));
+
+        // Null hiragana is still accepted
+        assertNull(openPatched(file, bytes, candidateOffset + 12, -1).getCandidates("kami").get(0).hiragana);
+    }
+
+    private static MappedDictionary openPatched(Path file, byte[] bytes, int offset, int value) throws IOException {
+        byte[] patched = bytes.clone();
+        ByteBuffer.wrap(patched).putInt(offset, value);
+        Files.write(file, patched);
+        return MappedDictionary.open(file);
+    }
+
+    @Test
+    void testRomajiDictionaryUsesBinaryFile(@TempDir Path tempDir) throws IOException {
+        MappedDictionary.write(tempDir.resolve("ipadic.rjd"),
+            Map.of("wasabi", List.of(new ConversionCandidate("山葵", "わさび", 100))));
+
+        RomajiDictionary dictionary = new RomajiDictionary(tempDir, new ConversionStats(tempDir));
+
+        assertEquals(1, dictionary.size());
+        assertEquals("山葵", dictionary.getCandidates("wasabi").get(0).kanji);
+        assertFalse(dictionary.contains("sugoi"));
+    }
+
+    @Test
+    void testRomajiDictionaryFallsBackToJson(@TempDir Path tempDir) throws IOException {
+        Files.write(tempDir.resolve("ipadic.rjd"), new byte[] {0, 0, 0, 0});
+
+        RomajiDictionary dictionary = new RomajiDictionary(tempDir, new ConversionStats(tempDir));
+
+        assertTrue(dictionary.contains("sugoi"));
+    }
+}
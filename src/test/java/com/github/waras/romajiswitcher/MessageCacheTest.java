@@ -0,0 +1,81 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for MessageCache
+ */
+public class MessageCacheTest {
+
+    @Test
+    void testRepeatedMessageIsReused() {
+        MessageCache cache = new MessageCache(16, Duration.ofMinutes(1));
+        ConvertedMessage message = ConvertedMessage.convert("kono", null, null);
+        cache.put(MessageCache.key("kono", null), message);
+
+        assertSame(message, cache.get(MessageCache.key("kono", null)));
+        assertNull(cache.get(MessageCache.key("sono", null)));
+    }
+
+    @Test
+    void testDictionaryChangeMissesOldEntries(@TempDir Path tempDir) {
+        RomajiDictionary dictionary = new RomajiDictionary(tempDir, new ConversionStats(tempDir));
+        MessageCache cache = new MessageCache(16, Duration.ofMinutes(1));
+        cache.put(MessageCache.key("kono", dictionary), ConvertedMessage.convert("kono", null, null));
+
+        dictionary.registerUserEntry("kono", "此の", null);
+
+        assertNull(cache.get(MessageCache.key("kono", dictionary)));
+        assertNull(cache.get(MessageCache.key("kono", null)));
+    }
+
+    @Test
+    void testKanjiMapChangeMissesOldEntries() {
+        MessageCache cache = new MessageCache(16, Duration.ofMinutes(1));
+        cache.put(MessageCache.key("zzkono", null), ConvertedMessage.convert("zzkono", null, null));
+
+        RomajiConverter.addKanjiEntry("zzkono", "此");
+        try {
+            assertNull(cache.get(MessageCache.key("zzkono", null)));
+            cache.put(MessageCache.key("zzkono", null), ConvertedMessage.convert("zzkono", null, null));
+        } finally {
+            RomajiConverter.removeKanjiEntry("zzkono");
+        }
+        assertNull(cache.get(MessageCache.key("zzkono", null)));
+    }
+
+    @Test
+    void testKanjiMapChangeMissesDictionaryEntries(@TempDir Path tempDir) {
+        RomajiDictionary dictionary = new RomajiDictionary(tempDir, new ConversionStats(tempDir));
+        MessageCache cache = new MessageCache(16, Duration.ofMinutes(1));
+        cache.put(MessageCache.key("zzkono", dictionary), ConvertedMessage.convert("zzkono", null, null));
+
+        RomajiConverter.addKanjiEntry("zzkono", "此");
+        try {
+            assertNull(cache.get(MessageCache.key("zzkono", dictionary)));
+        } finally {
+            RomajiConverter.removeKanjiEntry("zzkono");
+        }
+    }
+
+    @Test
+    void testEntriesExpire() {
+        AtomicLong now = new AtomicLong();
+        MessageCache cache = new MessageCache(16, Duration.ofSeconds(60), now::get);
+        MessageCache.Key key = MessageCache.key("kono", null);
+        cache.put(key, ConvertedMessage.convert("kono", null, null));
+
+        now.addAndGet(Duration.ofSeconds(59).toNanos());
+        assertNotNull(cache.get(key));
+        now.addAndGet(Duration.ofSeconds(2).toNanos());
+        assertNull(cache.get(key));
+        assertEquals(1, cache.getCache().getExpiredCount());
+    }
+}
@@ -0,0 +1,53 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for MessageLexer span classification
+ */
+public class MessageLexerTest {
+
+    private static List<String> tokenize(String text) {
+        List<String> spans = new ArrayList<>();
+        MessageLexer.tokenize(text, (type, start, end) -> spans.add(type + ":" + text.substring(start, end)));
+        return spans;
+    }
+
+    @Test
+    void testWordsAndWhitespace() {
+        assertEquals(List.of("ROMAJI_WORD:arigatou", "WHITESPACE:  ", "ROMAJI_WORD:desu"),
+            tokenize("arigatou  desu"));
+    }
+
+    @Test
+    void testPunctuationAndNumbers() {
+        assertEquals(List.of("ROMAJI_WORD:sugoi", "PUNCTUATION:!!", "WHITESPACE: ", "NUMBER:1.5", "ROMAJI_WORD:kai"),
+            tokenize("sugoi!! 1.5kai"));
+    }
+
+    @Test
+    void testUrlMentionAndCommand() {
+        assertEquals(List.of("URL:https://example.com/a?b=c", "WHITESPACE: ", "MENTION:@Steve_1",
+                "WHITESPACE: ", "URL:www.example.com"),
+            tokenize("https://example.com/a?b=c @Steve_1 www.example.com"));
+        assertEquals(List.of("COMMAND:/home", "WHITESPACE: ", "ROMAJI_WORD:ie"), tokenize("/home ie"));
+    }
+
+    @Test
+    void testSpansCoverWholeMessage() {
+        String text = " kon'nichiwa, @x  http://a.b/c 12,000yen! ";
+        StringBuilder rebuilt = new StringBuilder();
+        MessageLexer.tokenize(text, (type, start, end) -> rebuilt.append(text, start, end));
+        assertEquals(text, rebuilt.toString());
+    }
+
+    @Test
+    void testConvertSkipsUrls() {
+        RomajiConverter.ConversionResult result = RomajiConverter.convert("mite https://example.com/kawaii");
+        assertEquals("みて https://example.com/kawaii", result.japanese);
+    }
+}
@@ -0,0 +1,83 @@
+package com.github.waras.romajiswitcher;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Message pre-scan: the previous scalar loops (containsFullWidthJapanese on a toCharArray copy,
+ * then the lexer testing every char) against one scan with the scalar and the Vector API scanner
+ * followed by the mask-driven lexer, for short and long romaji messages.
+ * Run with: mvn -Pbenchmark test-compile exec:exec -Dbenchmark=MessageScanBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@State(Scope.Benchmark)
+@Fork(value = 1, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class MessageScanBenchmark {
+
+    private static final String[] WORDS = {
+        "konnichiwa", "arigatou", "sugoi", "kawaii", "ok", "lol", "watashi", "nihongo", "gg",
+        "tanoshii", "desu", "ne", "minecraft", "ikou", "don't", "su-pa-"
+    };
+
+    @Param({"32", "256"})
+    public int length;
+
+    private String message;
+    private final TextScanner scalar = new ScalarTextScanner();
+    private TextScanner vector;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random random = new Random(1);
+        StringBuilder text = new StringBuilder(length);
+        while (text.length() < length) {
+            text.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        message = text.substring(0, length);
+        vector = MessageScan.scanner();
+        System.out.println("[scanner] " + vector.getName());
+    }
+
+    @Benchmark
+    public void legacyLoops(Blackhole blackhole) {
+        if (legacyContainsFullWidthJapanese(message)) {
+            return;
+        }
+        MessageLexer.tokenize(message, (type, start, end) -> blackhole.consume(end));
+    }
+
+    @Benchmark
+    public void scalarScan(Blackhole blackhole) {
+        scanAndTokenize(scalar, blackhole);
+    }
+
+    @Benchmark
+    public void vectorScan(Blackhole blackhole) {
+        scanAndTokenize(vector, blackhole);
+    }
+
+    private void scanAndTokenize(TextScanner scanner, Blackhole blackhole) {
+        MessageScan scan = scanner.scan(message);
+        if (scan.containsJapanese()) {
+            return;
+        }
+        MessageLexer.tokenize(scan, (type, start, end) -> blackhole.consume(end));
+    }
+
+    /**
+     * RomajiConverter.containsFullWidthJapanese before the pre-scan
+     */
+    private static boolean legacyContainsFullWidthJapanese(String text) {
+        for (char c : text.toCharArray()) {
+            if ((c >= 0x4E00 && c <= 0x9FFF) || (c >= 0x3040 && c <= 0x309F) || (c >= 0x30A0 && c <= 0x30FF)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
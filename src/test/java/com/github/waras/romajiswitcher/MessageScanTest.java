@@ -0,0 +1,95 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Tests for the message pre-scan and its scalar and Vector API scanners
+ */
+public class MessageScanTest {
+
+    private static final String ALPHABET = "aZ-' \t\n　@!09é日あアー";
+
+    private static String randomText(Random random, int length) {
+        StringBuilder text = new StringBuilder(length);
+        for (int i = 0; i < length; i++) {
+            // Mostly letters and spaces, like chat
+            text.append(random.nextInt(3) == 0
+                ? ALPHABET.charAt(random.nextInt(ALPHABET.length()))
+                : (char) ('a' + random.nextInt(26)));
+        }
+        return text.toString();
+    }
+
+    private static List<String> tokenize(String text, MessageScan scan) {
+        List<String> spans = new ArrayList<>();
+        MessageLexer.SpanConsumer consumer = (type, start, end) -> spans.add(type + ":" + start + "-" + end);
+        if (scan == null) {
+            MessageLexer.tokenize(text, consumer);
+        } else {
+            MessageLexer.tokenize(scan, consumer);
+        }
+        return spans;
+    }
+
+    @Test
+    void testScalarScan() {
+        MessageScan scan = new ScalarTextScanner().scan("ok 日本 x");
+
+        assertTrue(scan.containsJapanese());
+        assertEquals(3, scan.getFirstJapanese());
+        assertTrue(scan.isAsciiWordChar(0));
+        assertTrue(scan.isAsciiWhitespace(2));
+        assertFalse(scan.isAsciiWordChar(3));
+        assertEquals(2, scan.skipAsciiWord(0));
+        assertEquals(3, scan.skipAsciiWhitespace(2));
+        assertEquals(7, scan.skipAsciiWord(6));
+        assertFalse(new ScalarTextScanner().scan("romaji text").containsJapanese());
+    }
+
+    @Test
+    void testSkipAcrossMaskWords() {
+        String text = "a".repeat(130) + " b";
+        MessageScan scan = new ScalarTextScanner().scan(text);
+
+        assertEquals(130, scan.skipAsciiWord(0));
+        assertEquals(130, scan.skipAsciiWord(70));
+        assertEquals(text.length(), scan.skipAsciiWord(131));
+    }
+
+    @Test
+    void testLexerWithScanMatchesLexerWithout() {
+        Random random = new Random(7);
+        for (int round = 0; round < 500; round++) {
+            String text = randomText(random, random.nextInt(200));
+            assertEquals(tokenize(text, null), tokenize(text, new ScalarTextScanner().scan(text)), text);
+        }
+    }
+
+    @Test
+    void testVectorScanMatchesScalar() {
+        assumeTrue(MessageScan.scanner() instanceof VectorTextScanner, "jdk.incubator.vector not enabled");
+        TextScanner vector = MessageScan.scanner();
+        TextScanner scalar = new ScalarTextScanner();
+
+        Random random = new Random(11);
+        for (int round = 0; round < 500; round++) {
+            String text = randomText(random, random.nextInt(300));
+            MessageScan expected = scalar.scan(text);
+            MessageScan actual = vector.scan(text);
+            assertEquals(expected.getFirstJapanese(), actual.getFirstJapanese(), text);
+            assertEquals(scalar.indexOfJapanese(text), vector.indexOfJapanese(text), text);
+            for (int i = 0; i < text.length(); i++) {
+                assertEquals(expected.isAsciiWordChar(i), actual.isAsciiWordChar(i), text + " @" + i);
+                assertEquals(expected.isAsciiWhitespace(i), actual.isAsciiWhitespace(i), text + " @" + i);
+            }
+            assertEquals(tokenize(text, null), tokenize(text, actual), text);
+        }
+    }
+}
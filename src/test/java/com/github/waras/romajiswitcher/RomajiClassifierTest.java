@@ -0,0 +1,83 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RomajiClassifier
+ */
+public class RomajiClassifierTest {
+
+    private final RomajiClassifier classifier = new RomajiClassifier(0.5);
+
+    @Test
+    void testRomajiWordsAreAccepted() {
+        for (String word : new String[] {"arigatou", "konnichiwa", "kon'nichiwa", "san", "kitte", "Watashi", "su-pa-"}) {
+            assertTrue(classifier.isRomajiWord(word), word);
+            assertEquals(1.0, classifier.score(word, 0, word.length()), word);
+        }
+    }
+
+    @Test
+    void testNonRomajiWordsAreRejected() {
+        for (String word : new String[] {"gg", "lol", "www", "wp", "minecraft", "hello", "xD"}) {
+            assertFalse(classifier.isRomajiWord(word), word);
+        }
+        assertTrue(classifier.score("minecraft", 0, 9) < 1.0);
+    }
+
+    @Test
+    void testWordRangeInMessage() {
+        String text = "gg arigatou";
+        assertFalse(classifier.isRomajiWord(text, 0, 2));
+        assertTrue(classifier.isRomajiWord(text, 3, text.length()));
+    }
+
+    @Test
+    void testMessageShare() {
+        assertTrue(classifier.isRomajiMessage(8, 2));
+        assertTrue(classifier.isRomajiMessage(5, 5));
+        assertFalse(classifier.isRomajiMessage(2, 9));
+        assertFalse(classifier.isRomajiMessage(0, 0));
+    }
+
+    @Test
+    void testSkippedWordsAreLeftAsTyped() {
+        RomajiClassifier counted = new RomajiClassifier(0.5);
+        ConvertedMessage message = ConvertedMessage.convert("gg kono", null, null, counted);
+
+        assertEquals(2, message.getSpans().size());
+        assertEquals(new ConvertedMessage.Span("gg ", null), message.getSpans().get(0));
+        assertEquals(new ConvertedMessage.Span("この", "kono"), message.getSpans().get(1));
+        assertEquals(1, counted.getRomajiWordCount());
+        assertEquals(1, counted.getSkippedWordCount());
+        assertEquals(0, counted.getSkippedMessageCount());
+    }
+
+    @Test
+    void testMostlyEnglishMessageIsNotConverted() {
+        RomajiClassifier counted = new RomajiClassifier(0.5);
+        ConvertedMessage message = ConvertedMessage.convert("hello minecraft lol kono", null, null, counted);
+
+        assertFalse(message.isConverted());
+        assertEquals(1, counted.getMessageCount());
+        assertEquals(1, counted.getSkippedMessageCount());
+        assertEquals(0, counted.getRomajiWordCount());
+        assertEquals(4, counted.getSkippedWordCount());
+    }
+
+    @Test
+    void testKanjiMapWordIsConverted() {
+        RomajiConverter.addKanjiEntry("lol", "笑");
+        try {
+            ConvertedMessage message = ConvertedMessage.convert("lol", null, null, new RomajiClassifier(0.5));
+
+            assertEquals(List.of(new ConvertedMessage.Span("笑", "lol")), message.getSpans());
+        } finally {
+            RomajiConverter.removeKanjiEntry("lol");
+        }
+    }
+}
@@ -51,6 +51,35 @@ public class RomajiConverterTest {
         assertEquals("ん", result.japanese);
     }
 
+    @Test
+    public void testSokuon() {
+        assertEquals("きって", RomajiConverter.convertWord("kitte").japanese);
+        assertEquals("っか", RomajiConverter.convertWord("kka").japanese);
+    }
+
+    @Test
+    public void testNnBeforeNaRow() {
+        assertEquals("んな", RomajiConverter.convertWord("nna").japanese);
+        assertEquals("にゃ", RomajiConverter.convertWord("nya").japanese);
+    }
+
+    @Test
+    public void testNFollowedByVowelPair() {
+        // "na" is not taken when another vowel follows, so the n becomes ん
+        assertEquals("んあい", RomajiConverter.convertWord("nai").japanese);
+    }
+
+    @Test
+    public void testOriginalRomajiKeepsCase() {
+        RomajiConverter.ConversionResult result = RomajiConverter.convertWord("KoNo");
+        assertEquals("この", result.japanese);
+        assertEquals("kono", result.originalRomaji);
+
+        RomajiConverter.ConversionResult vowels = RomajiConverter.convertWord("AI");
+        assertEquals("あい", vowels.japanese);
+        assertEquals("AI", vowels.originalRomaji);
+    }
+
     @Test
     public void testContainsFullWidthJapaneseWithKanji() {
         assertTrue(RomajiConverter.containsFullWidthJapanese("俺今日valoするからゲームできん"));
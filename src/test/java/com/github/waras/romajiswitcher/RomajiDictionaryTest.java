@@ -4,7 +4,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.io.TempDir;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -179,4 +181,252 @@ public class RomajiDictionaryTest {
         assertTrue(dictionary.getCandidates(null).isEmpty());
         assertFalse(dictionary.contains(null));
     }
+
+    @Test
+    void testUserDictionaryIsReadBack() {
+        dictionary.registerUserEntry("yuusha", "勇者", "ゆうしゃ");
+        dictionary.registerUserEntry("quote", "\"引用\"", null);
+        dictionary.registerUserEntry("sugoi", "スゴイ", "すごい");
+
+        RomajiDictionary reloaded = new RomajiDictionary(tempDir, stats);
+
+        assertEquals("勇者", reloaded.getBestCandidate("yuusha").kanji);
+        assertEquals("\"引用\"", reloaded.getBestCandidate("quote").kanji);
+        assertNull(reloaded.getCandidates("quote").get(0).hiragana);
+        // The edited system entry keeps its system candidates and still prefers the user one
+        assertEquals("スゴイ", reloaded.getBestCandidate("sugoi").kanji);
+        assertTrue(reloaded.getCandidates("sugoi").size() > 1);
+    }
+
+    @Test
+    void testLowScoreUserEntryIsSavedAndCleared() throws Exception {
+        java.nio.file.Files.write(tempDir.resolve("user-dictionary.json"), (
+            "{\"entries\": [{\"romaji\": \"sugoi\", \"candidates\": ["
+            + "{\"kanji\": \"凄\", \"hiragana\": \"すごい\", \"baseScore\": 5}]}]}")
+            .getBytes(java.nio.charset.StandardCharsets.UTF_8));
+        RomajiDictionary loaded = new RomajiDictionary(tempDir, stats);
+        loaded.registerUserEntry("yuusha", "勇者", "ゆうしゃ");
+
+        RomajiDictionary reloaded = new RomajiDictionary(tempDir, stats);
+        assertEquals("凄", reloaded.getCandidates("sugoi").get(0).kanji);
+
+        reloaded.clearUserEntries();
+        assertTrue(reloaded.getCandidates("sugoi").stream().noneMatch(c -> c.kanji.equals("凄")));
+        assertFalse(new RomajiDictionary(tempDir, stats).getCandidates("sugoi").stream()
+            .anyMatch(c -> c.kanji.equals("凄")));
+    }
+
+    @Test
+    void testUserDictionaryFlatFormat() throws Exception {
+        java.nio.file.Files.write(tempDir.resolve("user-dictionary.json"), (
+            "{\"version\": 1, \"entries\": ["
+            + "{\"romaji\": \"Yuusha\", \"kanji\": \"勇者\", \"hiragana\": \"ゆうしゃ\", \"note\": {\"a\": [1]}},"
+            + "{\"romaji\": \"empty\"}"
+            + "]}").getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        RomajiDictionary loaded = new RomajiDictionary(tempDir, stats);
+
+        assertEquals("勇者", loaded.getBestCandidate("yuusha").kanji);
+        assertFalse(loaded.contains("empty"));
+    }
+
+    @Test
+    void testStreamingIPADICParse() throws Exception {
+        String json = "{\"entries\": ["
+            + "{\"kanji\": \"学校\", \"hiragana\": \"がっこう\", \"baseScore\": 120, \"pos\": \"名詞\"},"
+            + "{\"kanji\": \"東京\", \"hiragana\": \"とうきょう\", \"romaji\": \"tokyo\"},"
+            + "{\"kanji\": \"漢字のみ\"}"
+            + "]}";
+        CompactDictionary.Builder builder = CompactDictionary.builder();
+
+        int count = RomajiDictionary.parseIPADICJSON(new java.io.StringReader(json), builder);
+        CompactDictionary parsed = builder.build();
+
+        assertEquals(2, count);
+        assertEquals(120, parsed.getCandidates("gakkou").get(0).baseScore);
+        assertEquals(100, parsed.getCandidates("tokyo").get(0).baseScore);
+        assertFalse(parsed.contains("toukyou"));
+    }
+
+    @Test
+    void testLoadTimingsArePerPhase() {
+        RomajiDictionary.LoadTimings timings = dictionary.getLoadTimings();
+
+        assertEquals("ipadic-subset.json", timings.getSource());
+        assertTrue(timings.getParseNanos() >= 0);
+        assertTrue(timings.getIndexBuildNanos() > 0);
+        assertEquals(timings.getResourceReadNanos() + timings.getParseNanos() + timings.getIndexBuildNanos()
+            + timings.getUserOverlayNanos(), timings.getTotalNanos());
+        assertTrue(timings.toString().contains("index build"));
+    }
+
+    @Test
+    void testEnrichmentIsComputedOnceAndReused() {
+        FakeIME ime = new FakeIME();
+        RomajiDictionary enriched = new RomajiDictionary(tempDir, stats, ime);
+
+        // First hit: the IME answer is not there yet, so the dictionary candidate is used
+        assertEquals("凄い", enriched.getBestCandidate("sugoi").kanji);
+        ime.pending.get("すごい").complete(List.of("スゴい"));
+
+        ConversionCandidate first = enriched.getBestCandidate("sugoi");
+        assertEquals("スゴい", first.kanji);
+        assertSame(first, enriched.getBestCandidate("SUGOI"));
+        assertEquals(1, ime.lookups);
+        assertEquals(1, enriched.getEnrichmentCount());
+    }
+
+    @Test
+    void testEnrichmentUsesCachedResultImmediately() {
+        FakeIME ime = new FakeIME();
+        ime.cached.put("すごい", List.of("凄い"));
+        RomajiDictionary enriched = new RomajiDictionary(tempDir, stats, ime);
+
+        ConversionCandidate candidate = enriched.getBestCandidate("sugoi");
+
+        // Same kanji as the dictionary: the dictionary candidate itself is kept
+        assertEquals("凄い", candidate.kanji);
+        assertSame(candidate, enriched.getBestCandidate("sugoi"));
+        assertEquals(1, ime.lookups);
+    }
+
+    @Test
+    void testFailedEnrichmentIsRetried() {
+        FakeIME ime = new FakeIME();
+        ime.cached.put("すごい", List.of());
+        RomajiDictionary enriched = new RomajiDictionary(tempDir, stats, ime);
+
+        enriched.getBestCandidate("sugoi");
+        enriched.getBestCandidate("sugoi");
+
+        assertEquals(2, ime.lookups);
+        assertEquals(0, enriched.getEnrichmentCount());
+    }
+
+    @Test
+    void testRefreshEnrichments() {
+        FakeIME ime = new FakeIME();
+        ime.cached.put("すごい", List.of("スゴい"));
+        RomajiDictionary enriched = new RomajiDictionary(tempDir, stats, ime);
+        enriched.getBestCandidate("sugoi");
+
+        ime.cached.put("すごい", List.of("すげー"));
+        assertEquals(0, (int) enriched.refreshEnrichments(Duration.ofHours(1)).join());
+        assertEquals(1, (int) enriched.refreshEnrichments(Duration.ZERO).join());
+
+        assertEquals("すげー", enriched.getBestCandidate("sugoi").kanji);
+        assertEquals(1, ime.batches);
+    }
+
+    @Test
+    void testFrequentConversionIsLearned() {
+        FakeIME ime = new FakeIME();
+        ime.cached.put("すごい", List.of("スゴい"));
+        RomajiDictionary enriched = new RomajiDictionary(tempDir, stats, ime);
+        enriched.configureLearning(3, 10);
+
+        for (int i = 0; i < 4; i++) {
+            assertEquals("スゴい", enriched.getBestCandidate("sugoi").kanji);
+        }
+        assertTrue(enriched.getLearnedDictionary().contains("sugoi"));
+        enriched.getLearnedDictionary().save();
+
+        // After a restart the learned conversion is served without asking Google IME
+        FakeIME restarted = new FakeIME();
+        RomajiDictionary reopened = new RomajiDictionary(tempDir, stats, restarted);
+        assertEquals("スゴい", reopened.getBestCandidate("sugoi").kanji);
+        reopened.prefetchGoogleIME(List.of("sugoi")).join();
+        assertEquals(0, restarted.lookups);
+        assertEquals(0, restarted.batches);
+    }
+
+    /**
+     * Google IME stand-in: answers from {@code cached} or leaves the lookup pending
+     */
+    @Test
+    void testRefreshSendsBatchesOneAtATimeUpToTheCap() {
+        FakeIME ime = new FakeIME();
+        for (String hiragana : List.of("すごい", "かわいい", "おいしい")) {
+            ime.cached.put(hiragana, List.of(hiragana + "!"));
+        }
+        RomajiDictionary enriched = new RomajiDictionary(tempDir, stats, ime);
+        for (String romaji : List.of("sugoi", "kawaii", "oishii")) {
+            enriched.getBestCandidate(romaji);
+        }
+        assertEquals(3, enriched.getEnrichmentCount());
+
+        ime.deferBatches = true;
+        CompletableFuture<Integer> run = enriched.refreshEnrichments(Duration.ZERO, 1, 2);
+        assertEquals(1, ime.deferred.size());
+        ime.deferred.get(0).complete(null);
+        assertEquals(2, ime.deferred.size());
+        ime.deferred.get(1).complete(null);
+
+        assertEquals(2, (int) run.join());
+        assertEquals(2, ime.batches);
+    }
+
+    private static final class FakeIME extends GoogleIMEClient {
+        final Map<String, List<String>> cached = new HashMap<>();
+        final Map<String, CompletableFuture<List<String>>> pending = new HashMap<>();
+        final List<CompletableFuture<Void>> deferred = new ArrayList<>();
+        boolean deferBatches;
+        int lookups;
+        int batches;
+
+        @Override
+        public CompletableFuture<List<String>> getCandidatesAsync(String hiragana) {
+            lookups++;
+            if (cached.containsKey(hiragana)) {
+                return CompletableFuture.completedFuture(cached.get(hiragana));
+            }
+            return pending.computeIfAbsent(hiragana, key -> new CompletableFuture<>());
+        }
+
+        @Override
+        public CompletableFuture<Map<String, List<String>>> getCandidatesBatchAsync(Collection<String> segments) {
+            batches++;
+            Map<String, List<String>> results = new HashMap<>();
+            for (String segment : segments) {
+                results.put(segment, cached.getOrDefault(segment, List.of()));
+            }
+            if (deferBatches) {
+                CompletableFuture<Void> answer = new CompletableFuture<>();
+                deferred.add(answer);
+                return answer.thenApply(done -> results);
+            }
+            return CompletableFuture.completedFuture(results);
+        }
+    }
+
+    @Test
+    void testDictionaryOnlyKeySkipsClassifier() {
+        dictionary.registerUserEntry("www", "草", null);
+
+        ConvertedMessage message = ConvertedMessage.convert("www", dictionary, stats, new RomajiClassifier(0.5));
+
+        assertTrue(message.isConverted());
+        assertEquals("草", message.getSpans().get(0).text());
+    }
+
+    @Test
+    void testKanaTierResultIsNotConvertedTwice() {
+        RomajiConverter.configureWordCache(100, BoundedCache.EvictionPolicy.LRU);
+        try {
+            RomajiConverter.ConversionResult result =
+                RomajiConverter.convertWordWithDictionary("zuzuki", dictionary, stats);
+
+            assertEquals("ずずき", result.japanese);
+            assertEquals("zuzuki", result.originalRomaji);
+            BoundedCache<String, RomajiConverter.ConversionResult> cache = RomajiConverter.getWordCache();
+            assertEquals(0, cache.getHitCount());
+            assertEquals(1, cache.getMissCount());
+
+            // Mixed case words are converted as typed, without the word cache
+            assertEquals("ずずき", RomajiConverter.convertWordWithDictionary("Zuzuki", dictionary, stats).japanese);
+            assertEquals(1, cache.getMissCount());
+        } finally {
+            RomajiConverter.configureWordCache(0, BoundedCache.EvictionPolicy.LRU);
+        }
+    }
 }
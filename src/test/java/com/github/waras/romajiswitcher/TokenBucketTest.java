@@ -0,0 +1,60 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Tests for TokenBucket and AdaptiveTimeout
+ */
+public class TokenBucketTest {
+
+    @Test
+    void testBurstThenSustainedRate() {
+        AtomicLong now = new AtomicLong();
+        TokenBucket bucket = new TokenBucket(2, 3, now::get);
+
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        now.addAndGet(Duration.ofMillis(500).toNanos());
+        assertTrue(bucket.tryAcquire());
+        assertFalse(bucket.tryAcquire());
+
+        // Refill is capped at the burst size
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bucket.tryAcquire());
+        }
+        assertFalse(bucket.tryAcquire());
+
+        assertEquals(7, bucket.getGrantedCount());
+        assertEquals(3, bucket.getRejectedCount());
+    }
+
+    @Test
+    void testAdaptiveTimeoutFollowsP99() {
+        AdaptiveTimeout timeout = new AdaptiveTimeout(Duration.ofMillis(100), Duration.ofSeconds(3), 2.0);
+        assertEquals(Duration.ofSeconds(3), timeout.current());
+
+        for (int i = 1; i <= 100; i++) {
+            timeout.record(Duration.ofMillis(i < 100 ? 50 : 400).toNanos());
+        }
+        assertEquals(Duration.ofMillis(50), timeout.getP99());
+        assertEquals(Duration.ofMillis(100), timeout.current());
+
+        for (int i = 0; i < 10; i++) {
+            timeout.record(Duration.ofMillis(600).toNanos());
+        }
+        assertEquals(Duration.ofMillis(1200), timeout.current());
+
+        for (int i = 0; i < 256; i++) {
+            timeout.record(Duration.ofSeconds(5).toNanos());
+        }
+        assertEquals(Duration.ofSeconds(3), timeout.current());
+    }
+}
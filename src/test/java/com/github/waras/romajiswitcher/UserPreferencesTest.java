@@ -0,0 +1,61 @@
+package com.github.waras.romajiswitcher;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for UserPreferences and the render profiles it publishes
+ */
+public class UserPreferencesTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void testUnknownPlayerGetsDefaultProfile() {
+        UserPreferences preferences = new UserPreferences(tempDir.toFile());
+
+        assertSame(RenderProfile.DEFAULT, preferences.getProfile(UUID.randomUUID()));
+        assertTrue(RenderProfile.DEFAULT.isEnabled());
+        assertEquals("white", RenderProfile.DEFAULT.getJapaneseColor());
+        assertEquals("gray", RenderProfile.DEFAULT.getRomajiColor());
+    }
+
+    @Test
+    void testProfileIsRebuiltOnlyOnChange() {
+        UserPreferences preferences = new UserPreferences(tempDir.toFile());
+        UUID player = UUID.randomUUID();
+
+        preferences.setColors(player, "yellow", "not-a-color");
+        RenderProfile colored = preferences.getProfile(player);
+        assertEquals("yellow", colored.getJapaneseColor());
+        assertEquals("gray", colored.getRomajiColor());
+        assertSame(colored, preferences.getProfile(player));
+
+        preferences.toggleEnabled(player);
+        RenderProfile disabled = preferences.getProfile(player);
+        assertNotSame(colored, disabled);
+        assertFalse(disabled.isEnabled());
+        assertEquals("yellow", disabled.getJapaneseColor());
+    }
+
+    @Test
+    void testProfilesSurviveRestart() {
+        UUID player = UUID.randomUUID();
+        UserPreferences preferences = new UserPreferences(tempDir.toFile());
+        preferences.setColors(player, "aqua", "dark_gray");
+        preferences.setEnabled(player, false);
+        preferences.setShowRomaji(player, false);
+
+        RenderProfile reloaded = new UserPreferences(tempDir.toFile()).getProfile(player);
+        assertFalse(reloaded.isEnabled());
+        assertFalse(reloaded.isShowRomaji());
+        assertEquals("aqua", reloaded.getJapaneseColor());
+        assertEquals("dark_gray", reloaded.getRomajiColor());
+    }
+}